@@ -0,0 +1,41 @@
+package ch.epfl.rigel.coordinates;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Projection of ranges of equatorial unit vectors written with the vector API (module jdk.incubator.vector), which
+ * processes as many points at once as the SIMD registers of the processor can hold
+ * <p>
+ * This class is in its own source root (src-vector), only compiled, with {@code --add-modules jdk.incubator.vector},
+ * when the module is available, so that the sources of src build without it. EquatorialToPlaneProjection only loads
+ * it if it was compiled and the module is available at run time, the scalar loop being used otherwise.
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see EquatorialToPlaneProjection
+ */
+final class VectorPlaneProjectionKernel implements EquatorialToPlaneProjection.BatchKernel {
+
+    // Widest vector of doubles supported by the processor (initialized with the class, so that loading it fails
+    // if the module is absent)
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void project(double[] m, double[] vx, double[] vy, double[] vz, double[] outX, double[] outY,
+                        int from, int to) {
+        // the operations are done in the same order as in the scalar loop, so that the results are the same
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1);
+        int i = from;
+        for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, vx, i);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, vy, i);
+            DoubleVector z = DoubleVector.fromArray(SPECIES, vz, i);
+            DoubleVector d = one.div(one.add(x.mul(m[6])).add(y.mul(m[7])).add(z.mul(m[8])));
+            d.mul(x.mul(m[0]).add(y.mul(m[1])).add(z.mul(m[2]))).intoArray(outX, i);
+            d.mul(x.mul(m[3]).add(y.mul(m[4])).add(z.mul(m[5]))).intoArray(outY, i);
+        }
+        // the last points, fewer than the length of a vector
+        EquatorialToPlaneProjection.projectScalar(m, vx, vy, vz, outX, outY, i, to);
+    }
+}
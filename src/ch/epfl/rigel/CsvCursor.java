@@ -0,0 +1,368 @@
+package ch.epfl.rigel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Cursor over the lines and fields of a CSV content held in a byte buffer, used by the loaders of the resources
+ * <p>
+ * The fields are never copied : numbers are parsed directly from the bytes and only the selected fields
+ * which are asked for as strings are decoded (in UTF-8, without their quotes).
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ */
+public final class CsvCursor {
+
+    private static final byte QUOTE = '"';
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    // Powers of ten which are exactly represented by a double
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // Greatest mantissa for which every smaller integer is exactly represented by a double
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final ByteBuffer buffer;
+    private final byte separator;
+
+    // Bounds of the current line (the end excludes the line terminator)
+    private int lineStart;
+    private int lineEnd;
+    private int nextLineStart;
+
+    // Column and bounds of the selected field (without its quotes)
+    private int column;
+    private int fieldStart;
+    private int fieldEnd;
+    private int fieldNext;
+    private boolean fieldHasEscapedQuotes;
+
+    // Scratch array used to decode the strings when the buffer isn't backed by an array
+    private byte[] scratch = new byte[64];
+
+    /**
+     * Constructor of a cursor over the remaining bytes of the given buffer, placed before the first line
+     *
+     * @param buffer    the buffer containing the CSV content
+     * @param separator the separator of the fields
+     */
+    public CsvCursor(ByteBuffer buffer, char separator) {
+        this.buffer = buffer.slice();
+        this.separator = (byte) separator;
+        this.nextLineStart = 0;
+        this.lineStart = this.lineEnd = -1;
+    }
+
+    /**
+     * Create a cursor over the whole content of the given stream (the stream is read but not closed)
+     *
+     * @param inputStream the stream containing the CSV content
+     * @param separator   the separator of the fields
+     * @return a cursor placed before the first line
+     * @throws IOException in case of input/output error
+     */
+    public static CsvCursor of(InputStream inputStream, char separator) throws IOException {
+        return new CsvCursor(ByteBuffer.wrap(inputStream.readAllBytes()), separator);
+    }
+
+    /**
+     * Move the cursor to the next line
+     *
+     * @return {@code true} if and only if there was a next line
+     */
+    public boolean nextLine() {
+        int limit = buffer.limit();
+        if (nextLineStart >= limit) {
+            lineStart = lineEnd = limit;
+            return false;
+        }
+        lineStart = nextLineStart;
+        int i = lineStart;
+        while (i < limit && buffer.get(i) != LINE_FEED) {
+            i++;
+        }
+        nextLineStart = i + 1;
+        lineEnd = i > lineStart && buffer.get(i - 1) == CARRIAGE_RETURN ? i - 1 : i;
+        resetField();
+        return true;
+    }
+
+    /**
+     * Getter for the length of the current line
+     *
+     * @return the length in bytes of the current line, without its terminator
+     */
+    public int lineLength() {
+        return lineEnd - lineStart;
+    }
+
+    /**
+     * Select the field of the given column on the current line (a missing column is an empty field)
+     *
+     * @param column the column of the field, starting at 0
+     * @return this
+     * @throws IllegalArgumentException if column < 0
+     */
+    public CsvCursor field(int column) {
+        Preconditions.checkArgument(column >= 0);
+        if (column < this.column) {
+            resetField();
+        }
+        while (this.column < column) {
+            scanField(fieldNext);
+            this.column++;
+        }
+        return this;
+    }
+
+    /**
+     * Select a fixed range of bytes of the current line, clipped to the line (for files using fixed width columns)
+     *
+     * @param from the index of the first byte of the range in the line
+     * @param to   the index following the last byte of the range in the line
+     * @return this
+     * @throws IllegalArgumentException if from < 0 or to < from
+     */
+    public CsvCursor range(int from, int to) {
+        Preconditions.checkArgument(0 <= from && from <= to);
+        resetField();
+        fieldStart = Math.min(lineStart + from, lineEnd);
+        fieldEnd = Math.min(lineStart + to, lineEnd);
+        return this;
+    }
+
+    /**
+     * Check if the selected field only contains white spaces
+     *
+     * @return {@code true} if and only if the selected field is empty or only contains white spaces
+     */
+    public boolean isBlank() {
+        return trimmedStart() == trimmedEnd();
+    }
+
+    /**
+     * Check if the selected field starts with the given ASCII text
+     *
+     * @param ascii the text
+     * @return {@code true} if and only if the selected field starts with the given text
+     */
+    public boolean startsWith(String ascii) {
+        if (fieldEnd - fieldStart < ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (buffer.get(fieldStart + i) != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the selected field, decoded in UTF-8
+     *
+     * @return the selected field as a string, without its quotes
+     */
+    public String stringValue() {
+        int length = fieldEnd - fieldStart;
+        String s;
+        if (buffer.hasArray()) {
+            s = new String(buffer.array(), buffer.arrayOffset() + fieldStart, length, StandardCharsets.UTF_8);
+        } else {
+            if (scratch.length < length) {
+                scratch = Arrays.copyOf(scratch, Math.max(length, scratch.length * 2));
+            }
+            for (int i = 0; i < length; i++) {
+                scratch[i] = buffer.get(fieldStart + i);
+            }
+            s = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return fieldHasEscapedQuotes ? s.replace("\"\"", "\"") : s;
+    }
+
+    /**
+     * Parse the selected field as an int, directly from its bytes
+     *
+     * @return the int value of the selected field
+     * @throws NumberFormatException if the selected field isn't an int
+     */
+    public int intValue() {
+        int i = trimmedStart();
+        int end = trimmedEnd();
+        boolean negative = i < end && buffer.get(i) == '-';
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            i++;
+        }
+        // an int has at most 10 digits, anything else is left to Integer.parseInt (which fails if needed)
+        if (i == end || end - i > 10) {
+            return Integer.parseInt(stringValue());
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(stringValue());
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return Integer.parseInt(stringValue());
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parse the selected field as a double, directly from its bytes when its value can be computed exactly,
+     * with Double.parseDouble otherwise
+     *
+     * @return the double value of the selected field
+     * @throws NumberFormatException if the selected field isn't a double
+     */
+    public double doubleValue() {
+        int i = trimmedStart();
+        int end = trimmedEnd();
+        boolean negative = i < end && buffer.get(i) == '-';
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && !fraction) {
+                fraction = true;
+            } else if ('0' <= b && b <= '9') {
+                digits++;
+                if (mantissa != 0 || b != '0') {
+                    significantDigits++;
+                }
+                // more than 18 significant digits could overflow, they are left to Double.parseDouble
+                if (significantDigits > 18) {
+                    return Double.parseDouble(stringValue());
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (fraction) {
+                    exponent--;
+                }
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return Double.parseDouble(stringValue());
+        }
+
+        if (i < end && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+            i++;
+            boolean negativeExponent = i < end && buffer.get(i) == '-';
+            if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            int writtenExponent = 0;
+            for (; i < end && '0' <= buffer.get(i) && buffer.get(i) <= '9' && exponentDigits < 4; i++) {
+                writtenExponent = writtenExponent * 10 + (buffer.get(i) - '0');
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return Double.parseDouble(stringValue());
+            }
+            exponent += negativeExponent ? -writtenExponent : writtenExponent;
+        }
+
+        // the value is exact (and so correctly rounded) only if both the mantissa and the power of ten are exact
+        if (i != end || mantissa > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22) {
+            return Double.parseDouble(stringValue());
+        }
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Select the position before the first field of the current line
+     */
+    private void resetField() {
+        column = 0;
+        fieldHasEscapedQuotes = false;
+        scanField(lineStart);
+    }
+
+    /**
+     * Select the field starting at the given position of the current line
+     *
+     * @param start the position of the first byte of the field
+     */
+    private void scanField(int start) {
+        fieldHasEscapedQuotes = false;
+        if (start >= lineEnd) {
+            // missing fields are empty
+            fieldStart = fieldEnd = fieldNext = lineEnd;
+            return;
+        }
+
+        int i = start;
+        if (buffer.get(i) == QUOTE) {
+            fieldStart = ++i;
+            while (i < lineEnd) {
+                if (buffer.get(i) == QUOTE) {
+                    if (i + 1 < lineEnd && buffer.get(i + 1) == QUOTE) {
+                        fieldHasEscapedQuotes = true;
+                        i += 2;
+                        continue;
+                    }
+                    break;
+                }
+                i++;
+            }
+            fieldEnd = i;
+            while (i < lineEnd && buffer.get(i) != separator) {
+                i++;
+            }
+        } else {
+            fieldStart = i;
+            while (i < lineEnd && buffer.get(i) != separator) {
+                i++;
+            }
+            fieldEnd = i;
+        }
+        fieldNext = i + 1;
+    }
+
+    /**
+     * Return the index of the first byte of the selected field which isn't a white space
+     *
+     * @return the start of the selected field without its leading white spaces
+     */
+    private int trimmedStart() {
+        int i = fieldStart;
+        while (i < fieldEnd && buffer.get(i) <= ' ' && buffer.get(i) >= 0) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Return the index following the last byte of the selected field which isn't a white space
+     *
+     * @return the end of the selected field without its trailing white spaces
+     */
+    private int trimmedEnd() {
+        int i = fieldEnd;
+        while (i > fieldStart && buffer.get(i - 1) <= ' ' && buffer.get(i - 1) >= 0) {
+            i--;
+        }
+        return i;
+    }
+}
@@ -37,4 +37,20 @@ public final class Preconditions {
         checkArgument(interval.contains(value));
         return value;
     }
+
+    /**
+     * Checking if a range of indices is contained in the arrays of a batch operation (checked once for all values)
+     *
+     * @param from  the first index of the range
+     * @param to    the index following the last index of the range
+     * @param in1   the first input array
+     * @param in2   the second input array
+     * @param out1  the first output array
+     * @param out2  the second output array
+     * @throws IllegalArgumentException if from < 0, to < from or an array is shorter than to
+     */
+    public static void checkBatchRange(int from, int to, double[] in1, double[] in2, double[] out1, double[] out2) {
+        checkArgument(0 <= from && from <= to
+                && to <= Math.min(Math.min(in1.length, in2.length), Math.min(out1.length, out2.length)));
+    }
 }
@@ -5,7 +5,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Enum designed to load asterism onto a StarCatalogue
@@ -18,9 +19,23 @@ public enum AsterismLoader implements StarCatalogue.Loader {
 
     @Override
     public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException {
-        // Map containing an hipparcos ID with its corresponding star
-        Map<Integer, Star> hipWithStar = new HashMap<>();
-        builder.stars().forEach(star -> hipWithStar.put(star.hipparcosId(), star));
+        // Index giving the (last) index of the star of each hipparcos ID
+        // (read from the columns so that only the stars of the asterisms are created)
+        StarColumns columns = builder.columns();
+        HipparcosIndex hipWithIndex = new HipparcosIndex(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            hipWithIndex.add(columns.hipparcosId(i), i);
+        }
+
+        // Same index for the stars rejected by a filter, which are added back if an asterism contains them
+        StarColumns rejected = builder.rejectedColumns();
+        HipparcosIndex rejectedHipWithIndex = new HipparcosIndex(rejected.size());
+        for (int i = 0; i < rejected.size(); i++) {
+            rejectedHipWithIndex.add(rejected.hipparcosId(i), i);
+        }
+        // Stars added back, by their hipparcos ID (their indices following those of the stars already contained)
+        HipparcosIndex addedBack = new HipparcosIndex(columns.size() + rejected.size());
+        List<Star> stars = builder.stars();
 
         try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.US_ASCII))) {
             String s;
@@ -36,7 +51,18 @@ public enum AsterismLoader implements StarCatalogue.Loader {
                 // add the stars
                 for (String value : tabLine) {
                     int hipId = Integer.parseInt(value);
-                    starList.add(hipWithStar.get(hipId));
+                    int index = hipWithIndex.first(hipId);
+                    if (index == -1 && rejectedHipWithIndex.first(hipId) != -1) {
+                        index = addedBack.first(hipId);
+                        if (index == -1) {
+                            int rejectedIndex = rejectedHipWithIndex.first(hipId);
+                            index = columns.add(hipId, rejected.name(rejectedIndex), rejected.ra(rejectedIndex),
+                                    rejected.dec(rejectedIndex), rejected.magnitude(rejectedIndex),
+                                    rejected.colorTemperature(rejectedIndex), rejected.constellation(rejectedIndex));
+                            addedBack.add(hipId, index);
+                        }
+                    }
+                    starList.add(index != -1 ? stars.get(index) : null);
                 }
 
                 builder.addAsterism(new Asterism(starList));
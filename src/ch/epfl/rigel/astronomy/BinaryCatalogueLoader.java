@@ -0,0 +1,179 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Enum designed to load stars onto a StarCatalogue from a precompiled binary catalogue,
+ * which is memory mapped (when it is read from a file) and never parsed
+ * <p>
+ * The binary catalogue is made of (all values in big endian) :
+ * <ul>
+ * <li>a header of 24 bytes : magic number, version, number of stars, number of names and CRC32 checksum of the rest of the file</li>
+ * <li>one record of 36 bytes per star : hipparcos ID, index of its name, right ascension, declination, magnitude,
+ * color temperature and index of its constellation (-1 if it is unknown)</li>
+ * <li>the section of names (which also holds the constellations) : for each name, its length in bytes followed by
+ * its UTF-8 encoding</li>
+ * </ul>
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see HygDatabaseLoader
+ */
+public enum BinaryCatalogueLoader implements StarCatalogue.Loader {
+    INSTANCE();
+
+    // "RIGL" in ASCII
+    public static final int MAGIC = 0x5249474C;
+    public static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 24;
+    private static final int RECORD_SIZE = 36;
+
+    @Override
+    public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException {
+        ByteBuffer buffer;
+        try (inputStream) {
+            buffer = bufferOf(inputStream).order(ByteOrder.BIG_ENDIAN);
+        }
+
+        // check the header
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a binary star catalogue");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("unsupported binary star catalogue version " + buffer.getInt(4));
+        }
+        int starCount = buffer.getInt(8);
+        int nameCount = buffer.getInt(12);
+        long checksum = buffer.getLong(16);
+        if (starCount < 0 || nameCount < 0 || (long) starCount * RECORD_SIZE > buffer.remaining() - HEADER_SIZE) {
+            throw new IOException("truncated binary star catalogue");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(HEADER_SIZE));
+        if (crc.getValue() != checksum) {
+            throw new IOException("corrupted binary star catalogue");
+        }
+
+        // decode the names once, the stars only referencing them by their index
+        String[] names = new String[nameCount];
+        ByteBuffer nameSection = buffer.duplicate().position(HEADER_SIZE + starCount * RECORD_SIZE);
+        for (int i = 0; i < nameCount; i++) {
+            byte[] name = new byte[Short.toUnsignedInt(nameSection.getShort())];
+            nameSection.get(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+        }
+
+        for (int i = 0; i < starCount; i++) {
+            int record = HEADER_SIZE + i * RECORD_SIZE;
+            int hipparcosId = buffer.getInt(record);
+            int nameIndex = buffer.getInt(record + 4);
+            double ra = buffer.getDouble(record + 8);
+            double dec = buffer.getDouble(record + 16);
+            int constellationIndex = buffer.getInt(record + 32);
+
+            Preconditions.checkArgument(hipparcosId >= 0 && 0 <= nameIndex && nameIndex < nameCount);
+            Preconditions.checkArgument(-1 <= constellationIndex && constellationIndex < nameCount);
+            Preconditions.checkArgument(EquatorialCoordinates.isValidRa(ra) && EquatorialCoordinates.isValidDec(dec));
+            builder.addLoadedStar(hipparcosId, names[nameIndex], ra, dec, buffer.getFloat(record + 24),
+                    buffer.getInt(record + 28), constellationIndex != -1 ? names[constellationIndex] : null);
+        }
+    }
+
+    /**
+     * Convert a HYG database (CSV) into a binary catalogue
+     *
+     * @param csvStream    the input stream of the HYG database
+     * @param binaryStream the output stream where to write the binary catalogue
+     * @throws IOException in case of input/output error
+     */
+    public static void convert(InputStream csvStream, OutputStream binaryStream) throws IOException {
+        write(new StarCatalogue.Builder().loadFrom(csvStream, HygDatabaseLoader.INSTANCE).columns(), binaryStream);
+    }
+
+    /**
+     * Write the stars of the given columns as a binary catalogue
+     *
+     * @param columns      the columns of the stars to write
+     * @param binaryStream the output stream where to write the binary catalogue
+     * @throws IOException              in case of input/output error
+     * @throws IllegalArgumentException if a name is longer than 65535 bytes
+     */
+    static void write(StarColumns columns, OutputStream binaryStream) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(columns.size() * RECORD_SIZE);
+        DataOutputStream bodyOutput = new DataOutputStream(body);
+        for (int i = 0; i < columns.size(); i++) {
+            bodyOutput.writeInt(columns.hipparcosId(i));
+            bodyOutput.writeInt(columns.nameIndex(i));
+            bodyOutput.writeDouble(columns.ra(i));
+            bodyOutput.writeDouble(columns.dec(i));
+            bodyOutput.writeFloat(columns.magnitude(i));
+            bodyOutput.writeInt(columns.colorTemperature(i));
+            bodyOutput.writeInt(columns.constellationIndex(i));
+        }
+        for (int i = 0; i < columns.nameCount(); i++) {
+            byte[] name = columns.pooledName(i).getBytes(StandardCharsets.UTF_8);
+            Preconditions.checkArgument(name.length <= 0xFFFF);
+            bodyOutput.writeShort(name.length);
+            bodyOutput.write(name);
+        }
+        bodyOutput.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(body.toByteArray());
+
+        DataOutputStream output = new DataOutputStream(binaryStream);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(columns.size());
+        output.writeInt(columns.nameCount());
+        output.writeLong(crc.getValue());
+        body.writeTo(output);
+        output.flush();
+    }
+
+    /**
+     * Convert a HYG database file into a binary catalogue file
+     *
+     * @param args the path of the HYG database and the path of the binary catalogue to write
+     * @throws IOException in case of input/output error
+     */
+    public static void main(String[] args) throws IOException {
+        Preconditions.checkArgument(args.length == 2);
+        try (InputStream csvStream = new FileInputStream(args[0]);
+             OutputStream binaryStream = new FileOutputStream(args[1])) {
+            convert(csvStream, binaryStream);
+        }
+    }
+
+    /**
+     * Return a buffer containing the content of the given stream, memory mapped if the stream is a file
+     *
+     * @param inputStream the input stream
+     * @return a buffer containing the remaining content of the stream
+     * @throws IOException in case of input/output error
+     */
+    private static ByteBuffer bufferOf(InputStream inputStream) throws IOException {
+        if (inputStream instanceof FileInputStream) {
+            FileChannel channel = ((FileInputStream) inputStream).getChannel();
+            long position = channel.position();
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position);
+        }
+        return ByteBuffer.wrap(inputStream.readAllBytes());
+    }
+}
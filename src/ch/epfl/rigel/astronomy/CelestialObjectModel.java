@@ -10,6 +10,7 @@ import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
  * @see SunModel
  * @see MoonModel
  * @see PlanetModel
+ * @see SingleObjectModel
  */
 public interface CelestialObjectModel<O> {
 
@@ -21,5 +22,4 @@ public interface CelestialObjectModel<O> {
      * @return modeled object O
      */
     O at(double daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion);
-
 }
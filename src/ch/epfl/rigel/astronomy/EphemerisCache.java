@@ -0,0 +1,380 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+import ch.epfl.rigel.math.Angle;
+
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the equatorial positions, angular sizes and magnitudes of the sun, the moon and the planets, which don't
+ * depend on the observer and change smoothly with time, so that the skies observed at many instants (animations,
+ * batches of observations) don't evaluate the models each time
+ * <p>
+ * The time is cut into segments, shorter for the moon which moves faster, in each of which the models are evaluated
+ * at a few Chebyshev nodes and interpolated by a Chebyshev polynomial (the positions through their unit vectors, so
+ * that the right ascension can wrap around). When a segment is computed, the interpolation is checked against the
+ * models at its ends and between its nodes : if the position or the angular size of a body differs by more than the
+ * tolerance (or its magnitude or the phase of the moon by more than a thousandth), the model of this body only is
+ * evaluated instead for the instants of this segment (the magnitudes of Mercury and Venus, for instance, vary too
+ * fast near their inferior conjunction to be interpolated, while their positions and the other bodies still are).
+ * The least recently used segments are removed first. The cache can be used by several threads.
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see SolarSystemEvaluator
+ */
+public final class EphemerisCache {
+
+    // Default tolerance on the positions and the angular sizes, in rad
+    public static final double DEFAULT_TOLERANCE = Angle.ofArcsec(0.1);
+
+    // Tolerance on the magnitudes and the phase of the moon
+    private static final double MAGNITUDE_TOLERANCE = 1e-3;
+    // Number of nodes of each segment (the degree of the polynomials plus one)
+    private static final int NODE_COUNT = 12;
+    // Number of evaluations of the models to compute a segment, at its nodes and at the instants checked
+    private static final int EVALUATIONS_PER_SEGMENT = 2 * NODE_COUNT + 1;
+    // Duration of the segments of the sun and the planets, then of the moon, in days
+    private static final double SEGMENT_DAYS = 16;
+    private static final double MOON_SEGMENT_DAYS = 2;
+    // Indices of the bodies of the segments of the sun and the planets, then of the moon
+    private static final int[] BODIES = {0, 2, 3, 4, 5, 6, 7, 8};
+    private static final int[] MOON_BODIES = {1};
+    // Number of values interpolated for each body : the unit vector of its position, its angular size and its
+    // magnitude (its phase for the moon)
+    private static final int VALUES_PER_BODY = 5;
+
+    private final double tolerance;
+    // Segments, identified by their index, from the least recently used to the most recently used
+    private final LinkedHashMap<Long, Segment> segments;
+    private final LinkedHashMap<Long, Segment> moonSegments;
+    private long evaluationCount;
+
+    /**
+     * Constructor of an empty cache
+     *
+     * @param capacity  the maximal number of segments kept for the moon, and for the sun and the planets
+     * @param tolerance the greatest difference between the interpolated positions (or angular sizes) and those of
+     *                  the models, in rad
+     * @throws IllegalArgumentException if the capacity or the tolerance isn't strictly positive
+     */
+    public EphemerisCache(int capacity, double tolerance) {
+        Preconditions.checkArgument(capacity > 0);
+        Preconditions.checkArgument(tolerance > 0);
+        this.tolerance = tolerance;
+        this.segments = newSegmentMap(capacity);
+        this.moonSegments = newSegmentMap(capacity);
+    }
+
+    /**
+     * Return the sun, the moon and the planets at the given time, interpolated from the segments of the cache when
+     * they are first needed
+     *
+     * @param when the zoned date time
+     * @return the solar system at the given time
+     */
+    public SolarSystem solarSystem(ZonedDateTime when) {
+        return solarSystem(when.toInstant().toEpochMilli());
+    }
+
+    /**
+     * Return the sun, the moon and the planets at the given instant, interpolated from the segments of the cache when
+     * they are first needed, without handling any time zone
+     *
+     * @param epochMillis the instant, in milliseconds since 01.01.1970 0am UTC
+     * @return the solar system at the given instant
+     */
+    public SolarSystem solarSystem(long epochMillis) {
+        return new SolarSystem(epochMillis, this);
+    }
+
+    /**
+     * Getter for the number of segments in the cache
+     *
+     * @return the number of segments of the moon, and of the sun and the planets, in the cache
+     */
+    public synchronized int size() {
+        return segments.size() + moonSegments.size();
+    }
+
+    /**
+     * Getter for the number of evaluations of the models
+     *
+     * @return the number of times the models were evaluated by the cache since its creation (the models of some of the
+     * bodies evaluated for an instant counting as one evaluation)
+     */
+    public synchronized long evaluationCount() {
+        return evaluationCount;
+    }
+
+    /**
+     * Remove all the segments of the cache (the count of evaluations is kept)
+     */
+    public synchronized void clear() {
+        segments.clear();
+        moonSegments.clear();
+    }
+
+    /**
+     * Return the evaluator of the bodies at the given time, interpolated from the segments containing it
+     *
+     * @param daysSinceJ2010                 days since Epoch.J2010 (positive or negative)
+     * @param eclipticToEquatorialConversion conversion of the bodies' coordinates at the given time, used if the
+     *                                       models have to be evaluated
+     * @return the evaluator of the bodies at the given time
+     */
+    SolarSystemEvaluator evaluatorAt(double daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion) {
+        Segment segment = segment(segments, SEGMENT_DAYS, BODIES, daysSinceJ2010);
+        Segment moonSegment = segment(moonSegments, MOON_SEGMENT_DAYS, MOON_BODIES, daysSinceJ2010);
+
+        double[] ra = new double[SolarSystemEvaluator.BODY_COUNT];
+        double[] dec = new double[SolarSystemEvaluator.BODY_COUNT];
+        double[] angularSizes = new double[SolarSystemEvaluator.BODY_COUNT];
+        double[] magnitudes = new double[SolarSystemEvaluator.BODY_COUNT];
+        // the terms shared by the models, computed once for the instant if some of them have to be evaluated
+        SolarSystemEvaluator.SharedTerms shared = null;
+        if (!segment.interpolatesAll() || !moonSegment.interpolatesAll()) {
+            shared = new SolarSystemEvaluator.SharedTerms(daysSinceJ2010);
+            synchronized (this) {
+                evaluationCount++;
+            }
+        }
+        segment.interpolate(daysSinceJ2010, shared, eclipticToEquatorialConversion, BODIES,
+                ra, dec, angularSizes, magnitudes);
+        moonSegment.interpolate(daysSinceJ2010, shared, eclipticToEquatorialConversion, MOON_BODIES,
+                ra, dec, angularSizes, magnitudes);
+        // the magnitude of the moon was interpolated (or evaluated) in place of its phase
+        double moonPhase = Math.min(Math.max(magnitudes[1], 0), 1);
+        magnitudes[1] = 0;
+
+        // the anomalies of the sun are cheaper to compute than to interpolate
+        double sunMeanAnomaly = shared != null ? shared.sunMeanAnomaly() : SunModel.meanAnomaly(daysSinceJ2010);
+        double sunEclipticLon = shared != null ?
+                shared.sunEclipticLon() : SunModel.eclipticLon(SunModel.realAnomaly(sunMeanAnomaly));
+        return new SolarSystemEvaluator(sunMeanAnomaly, sunEclipticLon, moonPhase, ra, dec, angularSizes, magnitudes);
+    }
+
+    /**
+     * Return the segment containing the given time, computing it (and adding it to the cache) if the cache doesn't
+     * contain it
+     *
+     * @param map            the segments of the bodies
+     * @param segmentDays    the duration of the segments of the bodies, in days
+     * @param bodies         the indices of the bodies
+     * @param daysSinceJ2010 days since Epoch.J2010 (positive or negative)
+     * @return the segment containing the given time
+     */
+    private Segment segment(Map<Long, Segment> map, double segmentDays, int[] bodies, double daysSinceJ2010) {
+        long index = (long) Math.floor(daysSinceJ2010 / segmentDays);
+        Segment segment;
+        synchronized (this) {
+            segment = map.get(index);
+        }
+        if (segment == null) {
+            // computed outside of the lock, so that the other threads aren't blocked
+            segment = new Segment(index * segmentDays, segmentDays, bodies, tolerance);
+            synchronized (this) {
+                evaluationCount += EVALUATIONS_PER_SEGMENT;
+                map.put(index, segment);
+            }
+        }
+        return segment;
+    }
+
+    /**
+     * Return an empty map of segments removing its least recently used segment beyond the given capacity
+     *
+     * @param capacity the maximal number of segments
+     * @return the map of segments
+     */
+    private static LinkedHashMap<Long, Segment> newSegmentMap(int capacity) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Segment> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Evaluate the values interpolated of the given bodies with the models
+     *
+     * @param daysSinceJ2010 days since Epoch.J2010 (positive or negative)
+     * @param bodies         the indices of the bodies
+     * @return the unit vector of the equatorial position, the angular size and the magnitude (the phase for the
+     * moon) of each body
+     */
+    private static double[] valuesAt(double daysSinceJ2010, int[] bodies) {
+        SolarSystemEvaluator evaluator = new SolarSystemEvaluator(daysSinceJ2010,
+                new EclipticToEquatorialConversion(Epoch.J2010.epochMillisPlusDays(daysSinceJ2010)));
+        double[] ra = new double[SolarSystemEvaluator.BODY_COUNT];
+        double[] dec = new double[SolarSystemEvaluator.BODY_COUNT];
+        double[] angularSizes = new double[SolarSystemEvaluator.BODY_COUNT];
+        double[] magnitudes = new double[SolarSystemEvaluator.BODY_COUNT];
+        evaluator.writeTo(ra, dec, angularSizes, magnitudes, 0);
+        magnitudes[1] = evaluator.moonPhase();
+
+        double[] values = new double[VALUES_PER_BODY * bodies.length];
+        for (int i = 0; i < bodies.length; i++) {
+            int body = bodies[i];
+            int offset = VALUES_PER_BODY * i;
+            double cosDec = Math.cos(dec[body]);
+            values[offset] = cosDec * Math.cos(ra[body]);
+            values[offset + 1] = cosDec * Math.sin(ra[body]);
+            values[offset + 2] = Math.sin(dec[body]);
+            values[offset + 3] = angularSizes[body];
+            values[offset + 4] = magnitudes[body];
+        }
+        return values;
+    }
+
+    /**
+     * Segment of time in which the values of some bodies are interpolated
+     */
+    private static final class Segment {
+
+        private final double middle;
+        private final double halfLength;
+        // Chebyshev coefficients of each value of each body, or null for a body whose model is evaluated instead
+        private final double[][][] coefficients;
+
+        /**
+         * Constructor of a segment, evaluating the models at its nodes then checking the interpolation
+         *
+         * @param start     the start of the segment, in days since Epoch.J2010
+         * @param length    the duration of the segment, in days
+         * @param bodies    the indices of the bodies
+         * @param tolerance the tolerance on the positions and the angular sizes
+         */
+        private Segment(double start, double length, int[] bodies, double tolerance) {
+            this.halfLength = length / 2;
+            this.middle = start + halfLength;
+
+            double[][] nodeValues = new double[NODE_COUNT][];
+            for (int k = 0; k < NODE_COUNT; k++) {
+                nodeValues[k] = valuesAt(middle + halfLength * Math.cos(Math.PI * (k + 0.5) / NODE_COUNT), bodies);
+            }
+            double[][][] coefficients = new double[bodies.length][VALUES_PER_BODY][NODE_COUNT];
+            for (int i = 0; i < bodies.length; i++) {
+                for (int v = 0; v < VALUES_PER_BODY; v++) {
+                    for (int j = 0; j < NODE_COUNT; j++) {
+                        double sum = 0;
+                        for (int k = 0; k < NODE_COUNT; k++) {
+                            sum += nodeValues[k][VALUES_PER_BODY * i + v] * Math.cos(Math.PI * j * (k + 0.5) / NODE_COUNT);
+                        }
+                        coefficients[i][v][j] = 2 * sum / NODE_COUNT;
+                    }
+                }
+            }
+            removeInaccurateBodies(coefficients, bodies, tolerance);
+            this.coefficients = coefficients;
+        }
+
+        /**
+         * Check the interpolation of each body against the models at the ends of the segment and between its nodes,
+         * removing the coefficients of the bodies whose interpolation isn't within the tolerances at an instant
+         * checked
+         *
+         * @param coefficients the Chebyshev coefficients of each value of each body
+         * @param bodies       the indices of the bodies
+         * @param tolerance    the tolerance on the positions and the angular sizes
+         */
+        private void removeInaccurateBodies(double[][][] coefficients, int[] bodies, double tolerance) {
+            for (int k = 0; k <= NODE_COUNT; k++) {
+                double t = Math.cos(Math.PI * k / NODE_COUNT);
+                double[] expected = valuesAt(middle + halfLength * t, bodies);
+                for (int i = 0; i < bodies.length; i++) {
+                    if (coefficients[i] == null) {
+                        continue;
+                    }
+                    int offset = VALUES_PER_BODY * i;
+                    double dx = chebyshev(coefficients[i][0], t) - expected[offset];
+                    double dy = chebyshev(coefficients[i][1], t) - expected[offset + 1];
+                    double dz = chebyshev(coefficients[i][2], t) - expected[offset + 2];
+                    if (Math.sqrt(dx * dx + dy * dy + dz * dz) > tolerance
+                            || Math.abs(chebyshev(coefficients[i][3], t) - expected[offset + 3]) > tolerance
+                            || Math.abs(chebyshev(coefficients[i][4], t) - expected[offset + 4]) > MAGNITUDE_TOLERANCE) {
+                        coefficients[i] = null;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Check if all the bodies of the segment are interpolated
+         *
+         * @return true if and only if no model has to be evaluated for the instants of the segment
+         */
+        private boolean interpolatesAll() {
+            for (double[][] bodyCoefficients : coefficients) {
+                if (bodyCoefficients == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Interpolate the values of the bodies at the given time (contained in the segment), evaluating the models of
+         * the bodies which can't be interpolated in the segment
+         *
+         * @param daysSinceJ2010                 days since Epoch.J2010
+         * @param shared                         the terms shared by the models at the given time, which can be null
+         *                                       if all the bodies are interpolated
+         * @param eclipticToEquatorialConversion conversion of the bodies' coordinates at the given time, used if
+         *                                       models have to be evaluated
+         * @param bodies                         the indices of the bodies
+         * @param ra                             where to write the right ascensions, at the index of each body
+         * @param dec                            where to write the declinations, at the index of each body
+         * @param angularSizes                   where to write the angular sizes, at the index of each body
+         * @param magnitudes                     where to write the magnitudes (the phase for the moon), at the
+         *                                       index of each body
+         */
+        private void interpolate(double daysSinceJ2010, SolarSystemEvaluator.SharedTerms shared,
+                                 EclipticToEquatorialConversion eclipticToEquatorialConversion, int[] bodies,
+                                 double[] ra, double[] dec, double[] angularSizes, double[] magnitudes) {
+            double t = (daysSinceJ2010 - middle) / halfLength;
+            double[] terms = null;
+            for (int i = 0; i < bodies.length; i++) {
+                int body = bodies[i];
+                double[][] bodyCoefficients = coefficients[i];
+                if (bodyCoefficients == null) {
+                    if (terms == null) {
+                        terms = new double[4];
+                    }
+                    SolarSystemEvaluator.evaluateBody(body, shared, eclipticToEquatorialConversion, terms,
+                            ra, dec, angularSizes, magnitudes);
+                    continue;
+                }
+                double x = chebyshev(bodyCoefficients[0], t);
+                double y = chebyshev(bodyCoefficients[1], t);
+                double z = chebyshev(bodyCoefficients[2], t);
+                ra[body] = Angle.normalizePositive(Math.atan2(y, x));
+                dec[body] = Math.atan2(z, Math.hypot(x, y));
+                angularSizes[body] = Math.max(chebyshev(bodyCoefficients[3], t), 0);
+                magnitudes[body] = chebyshev(bodyCoefficients[4], t);
+            }
+        }
+
+        /**
+         * Evaluate a Chebyshev series with Clenshaw's algorithm
+         *
+         * @param coefficients the coefficients of the series
+         * @param t            the variable, in [-1, 1]
+         * @return the value of the series
+         */
+        private static double chebyshev(double[] coefficients, double t) {
+            double b1 = 0;
+            double b2 = 0;
+            for (int j = coefficients.length - 1; j >= 1; j--) {
+                double b0 = 2 * t * b1 - b2 + coefficients[j];
+                b2 = b1;
+                b1 = b0;
+            }
+            return t * b1 - b2 + coefficients[0] / 2;
+        }
+    }
+}
@@ -23,9 +23,12 @@ public enum Epoch {
 
     private static final double MILLIS_PER_DAY = 24d * 60 * 60 * 1000;
     private static final double DAYS_PER_JULIAN_CENTURY = 36525;
+    // Julian date of 01.01.1970 0am UTC, the origin of the epoch milliseconds
+    private static final double JULIAN_DATE_AT_EPOCH_MILLIS_ORIGIN = 2440587.5;
 
-    // The specific date
+    // The specific date, and the same instant in milliseconds since 01.01.1970 0am UTC
     private final ZonedDateTime date;
+    private final long epochMillis;
 
     /**
      * Constructor of epoch
@@ -34,6 +37,17 @@ public enum Epoch {
      */
     Epoch(ZonedDateTime date) {
         this.date = date;
+        this.epochMillis = date.toInstant().toEpochMilli();
+    }
+
+    /**
+     * Compute the julian date of an instant
+     *
+     * @param epochMillis the instant, in milliseconds since 01.01.1970 0am UTC
+     * @return the julian date of the instant, in days (can be decimal)
+     */
+    public static double julianDate(long epochMillis) {
+        return epochMillis / MILLIS_PER_DAY + JULIAN_DATE_AT_EPOCH_MILLIS_ORIGIN;
     }
 
     /**
@@ -43,7 +57,27 @@ public enum Epoch {
      * @return difference in days (can be decimal)
      */
     public double daysUntil(ZonedDateTime when) {
-        return date.until(when, ChronoUnit.MILLIS) / MILLIS_PER_DAY;
+        return daysUntil(when.toInstant().toEpochMilli());
+    }
+
+    /**
+     * Compute the difference between an Epoch and a given instant, without handling any time zone
+     *
+     * @param epochMillis the instant, in milliseconds since 01.01.1970 0am UTC
+     * @return difference in days (can be decimal)
+     */
+    public double daysUntil(long epochMillis) {
+        return (epochMillis - this.epochMillis) / MILLIS_PER_DAY;
+    }
+
+    /**
+     * Compute the difference between an Epoch and a given julian date
+     *
+     * @param julianDate the julian date, in days
+     * @return difference in days (can be decimal)
+     */
+    public double daysUntilJulianDate(double julianDate) {
+        return julianDate - julianDate(epochMillis);
     }
 
     /**
@@ -56,4 +90,36 @@ public enum Epoch {
         return daysUntil(when) / DAYS_PER_JULIAN_CENTURY;
     }
 
+    /**
+     * Compute the difference between an Epoch and a given instant, without handling any time zone
+     *
+     * @param epochMillis the instant, in milliseconds since 01.01.1970 0am UTC
+     * @return difference in julian centuries (can be decimal)
+     */
+    public double julianCenturiesUntil(long epochMillis) {
+        return daysUntil(epochMillis) / DAYS_PER_JULIAN_CENTURY;
+    }
+
+    /**
+     * Compute the date-time couple a given number of days after the epoch (the inverse of daysUntil, to the
+     * millisecond)
+     *
+     * @param days the number of days after the epoch (can be decimal or negative)
+     * @return the date-time couple, with the time zone of the epoch
+     */
+    public ZonedDateTime plusDays(double days) {
+        return date.plus(Math.round(days * MILLIS_PER_DAY), ChronoUnit.MILLIS);
+    }
+
+    /**
+     * Compute the instant a given number of days after the epoch (the inverse of daysUntil, to the millisecond),
+     * without handling any time zone
+     *
+     * @param days the number of days after the epoch (can be decimal or negative)
+     * @return the instant, in milliseconds since 01.01.1970 0am UTC
+     */
+    public long epochMillisPlusDays(double days) {
+        return epochMillis + Math.round(days * MILLIS_PER_DAY);
+    }
+
 }
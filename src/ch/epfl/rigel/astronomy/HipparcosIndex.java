@@ -0,0 +1,104 @@
+package ch.epfl.rigel.astronomy;
+
+import java.util.Arrays;
+
+/**
+ * Primitive hash table giving the indices of the stars having a given hipparcos ID
+ * (open addressing on the IDs, the stars sharing an ID being chained by their index, without any boxing)
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see StarCatalogue
+ * @see AsterismLoader
+ */
+final class HipparcosIndex {
+
+    private static final int NONE = -1;
+
+    // Table of the hipparcos IDs, with the index of the last star added for each of them (NONE for free slots)
+    private final int[] ids;
+    private final int[] heads;
+    private final int mask;
+
+    // For each index, the index of the previous star added with the same hipparcos ID (or NONE)
+    private final int[] next;
+    // Number of slots probed and of indices followed since the creation of the index
+    private long operationCount;
+
+    /**
+     * Constructor of an empty index
+     *
+     * @param indexCount the number of indices that can be added, which must be in [0, indexCount[
+     */
+    HipparcosIndex(int indexCount) {
+        // the table is kept at most half full, so that the probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(indexCount, 1) * 2 - 1) << 1;
+        ids = new int[capacity];
+        heads = new int[capacity];
+        Arrays.fill(heads, NONE);
+        mask = capacity - 1;
+        next = new int[Math.max(indexCount, 0)];
+    }
+
+    /**
+     * Add an index for the given hipparcos ID, which will be the first one returned for it
+     *
+     * @param hipparcosId the hipparcos ID
+     * @param index       the index, in [0, indexCount[, and added at most once
+     */
+    void add(int hipparcosId, int index) {
+        int slot = slotOf(hipparcosId);
+        ids[slot] = hipparcosId;
+        next[index] = heads[slot];
+        heads[slot] = index;
+    }
+
+    /**
+     * Return the last index added for the given hipparcos ID
+     *
+     * @param hipparcosId the hipparcos ID
+     * @return the last index added for the hipparcos ID, or -1 if there is none
+     */
+    int first(int hipparcosId) {
+        return heads[slotOf(hipparcosId)];
+    }
+
+    /**
+     * Return the index added before the given one for the same hipparcos ID
+     *
+     * @param index an index which was added
+     * @return the index added before the given one for the same hipparcos ID, or -1 if there is none
+     */
+    int next(int index) {
+        operationCount++;
+        return next[index];
+    }
+
+    /**
+     * Getter for the number of operations done by the index, which grows linearly with the number of calls as long
+     * as the probe sequences and the stars sharing a hipparcos ID stay few
+     *
+     * @return the number of slots probed and of indices followed since the creation of the index
+     */
+    long operationCount() {
+        return operationCount;
+    }
+
+    /**
+     * Return the slot of the table containing the given hipparcos ID, or the free slot where to add it
+     *
+     * @param hipparcosId the hipparcos ID
+     * @return the slot of the hipparcos ID
+     */
+    private int slotOf(int hipparcosId) {
+        // scrambling the bits, since consecutive IDs are frequent
+        int hash = hipparcosId * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        operationCount++;
+        while (heads[slot] != NONE && ids[slot] != hipparcosId) {
+            slot = (slot + 1) & mask;
+            operationCount++;
+        }
+        return slot;
+    }
+}
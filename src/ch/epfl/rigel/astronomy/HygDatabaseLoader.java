@@ -1,54 +1,146 @@
 package ch.epfl.rigel.astronomy;
 
+import ch.epfl.rigel.CsvCursor;
+import ch.epfl.rigel.Preconditions;
 import ch.epfl.rigel.coordinates.EquatorialCoordinates;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Enum designed to load stars onto a StarCatalogue
+ * (PARALLEL parses the database in chunks on the common ForkJoinPool, keeping the order of the stars)
  *
  * @author Bastien Faivre (310929)
  * @author Kamil Mellouk (312327)
  */
 public enum HygDatabaseLoader implements StarCatalogue.Loader {
-    INSTANCE();
+    INSTANCE(false),
+    PARALLEL(true);
+
+    // Minimal size (in bytes) of a chunk parsed in parallel
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+    // Number of chunks per thread of the pool, so that the threads stay busy even if some chunks are slower
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final boolean parallel;
+
+    /**
+     * Constructor of a HYG database loader
+     *
+     * @param parallel whether the database is parsed in parallel
+     */
+    HygDatabaseLoader(boolean parallel) {
+        this.parallel = parallel;
+    }
 
     @Override
     public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException {
-        try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.US_ASCII))) {
+        byte[] bytes;
+        try (inputStream) {
+            bytes = inputStream.readAllBytes();
+        }
+
+        if (parallel) {
+            int chunkCount = Math.min(ForkJoinPool.commonPool().getParallelism() * CHUNKS_PER_THREAD,
+                    bytes.length / MIN_CHUNK_SIZE);
+            loadInChunks(bytes, builder, Math.max(chunkCount, 1));
+        } else {
             // skipping the first line (column headers)
-            bufferedReader.readLine();
-            String s;
-            while ((s = bufferedReader.readLine()) != null) {
-
-                // Splitting the line into an array containing its different columns
-                String[] col = s.split(",");
-
-                // get the name of the star, or a substitute if it is not specified
-                String proper;
-                if (!col[ColumnIndex.PROPER.ordinal()].isBlank()) {
-                    proper = col[ColumnIndex.PROPER.ordinal()];
-                } else if (!col[ColumnIndex.BAYER.ordinal()].isBlank()) {
-                    proper = col[ColumnIndex.BAYER.ordinal()] + " " + col[ColumnIndex.CON.ordinal()];
-                } else {
-                    proper = "? " + col[ColumnIndex.CON.ordinal()];
-                }
-
-                builder.addStar(new Star(
-                                !col[ColumnIndex.HIP.ordinal()].isBlank() ? Integer.parseInt(col[ColumnIndex.HIP.ordinal()]) : 0,
-                                proper,
-                                EquatorialCoordinates.of((Double.parseDouble(col[ColumnIndex.RARAD.ordinal()])),
-                                        Double.parseDouble(col[ColumnIndex.DECRAD.ordinal()])),
-                                !col[ColumnIndex.MAG.ordinal()].isBlank() ? (float) Double.parseDouble(col[ColumnIndex.MAG.ordinal()]) : 0f,  // parseDouble instead of parseFloat for precision purposes
-                                !col[ColumnIndex.CI.ordinal()].isBlank() ? (float) Double.parseDouble(col[ColumnIndex.CI.ordinal()]) : 0f // parseDouble instead of parseFloat for precision purposes
-                        )
-                );
+            int start = nextLineStart(bytes, 0);
+            addStars(bytes, start, bytes.length, builder);
+        }
+    }
+
+    /**
+     * Load the stars of the given database, split at line boundaries into chunks which are parsed in parallel
+     *
+     * @param bytes      the content of the database
+     * @param builder    where to add the stars (filtered by its filter), in the order of the database
+     * @param chunkCount the number of chunks
+     */
+    static void loadInChunks(byte[] bytes, StarCatalogue.Builder builder, int chunkCount) {
+        // skipping the first line (column headers)
+        int start = nextLineStart(bytes, 0);
+
+        List<ForkJoinTask<StarCatalogue.Builder>> chunks = new ArrayList<>(chunkCount);
+        for (int i = 1; i <= chunkCount; i++) {
+            int from = start;
+            int to = i == chunkCount ? bytes.length :
+                    Math.max(from, nextLineStart(bytes, start + (int) ((long) (bytes.length - start) * i / chunkCount) - 1));
+            chunks.add(ForkJoinPool.commonPool().submit(() -> {
+                // each chunk is parsed into its own builder, merged afterwards
+                StarCatalogue.Builder chunkBuilder = new StarCatalogue.Builder(builder.filter());
+                addStars(bytes, from, to, chunkBuilder);
+                return chunkBuilder;
+            }));
+            start = to;
+        }
+
+        // merge the chunks in their order, so that the stars keep the order of the database
+        for (ForkJoinTask<StarCatalogue.Builder> chunk : chunks) {
+            StarCatalogue.Builder chunkBuilder = chunk.join();
+            builder.columns().addAll(chunkBuilder.columns());
+            builder.rejectedColumns().addAll(chunkBuilder.rejectedColumns());
+        }
+    }
+
+    /**
+     * Add the stars described by the lines contained in the given part of the database to the builder
+     *
+     * @param bytes   the content of the database
+     * @param from    the start of the first line
+     * @param to      the end of the last line
+     * @param builder where to add the stars
+     */
+    private static void addStars(byte[] bytes, int from, int to, StarCatalogue.Builder builder) {
+        // the fields are read in place, without splitting the lines
+        CsvCursor col = new CsvCursor(ByteBuffer.wrap(bytes, from, to - from), ',');
+        while (col.nextLine()) {
+
+            // get the name of the star, or a substitute if it is not specified
+            String constellation = col.field(ColumnIndex.CON.ordinal()).stringValue();
+            String proper;
+            if (!col.field(ColumnIndex.PROPER.ordinal()).isBlank()) {
+                proper = col.stringValue();
+            } else if (!col.field(ColumnIndex.BAYER.ordinal()).isBlank()) {
+                proper = col.stringValue() + " " + constellation;
+            } else {
+                proper = "? " + constellation;
             }
+
+            int hipparcosId = !col.field(ColumnIndex.HIP.ordinal()).isBlank() ? col.intValue() : 0;
+            double ra = col.field(ColumnIndex.RARAD.ordinal()).doubleValue();
+            double dec = col.field(ColumnIndex.DECRAD.ordinal()).doubleValue();
+            // parsed as doubles instead of floats for precision purposes
+            float magnitude = !col.field(ColumnIndex.MAG.ordinal()).isBlank() ? (float) col.doubleValue() : 0f;
+            float colorIndex = !col.field(ColumnIndex.CI.ordinal()).isBlank() ? (float) col.doubleValue() : 0f;
+
+            Preconditions.checkArgument(hipparcosId >= 0);
+            Preconditions.checkArgument(EquatorialCoordinates.isValidRa(ra) && EquatorialCoordinates.isValidDec(dec));
+            // the star is stored directly in the columns of the builder (if the filter accepts it), without creating a Star
+            builder.addLoadedStar(hipparcosId, proper, ra, dec, magnitude, Star.colorTemperatureOf(colorIndex), constellation);
+        }
+    }
+
+    /**
+     * Return the index of the start of the line following the given position
+     *
+     * @param bytes    the content of the database
+     * @param position the position
+     * @return the index following the first line feed at or after the position, or the length of the content
+     */
+    private static int nextLineStart(byte[] bytes, int position) {
+        int i = Math.max(position, 0);
+        while (i < bytes.length && bytes[i] != '\n') {
+            i++;
         }
+        return Math.min(i + 1, bytes.length);
     }
 
 
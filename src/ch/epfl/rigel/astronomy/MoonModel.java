@@ -1,5 +1,6 @@
 package ch.epfl.rigel.astronomy;
 
+import ch.epfl.rigel.Preconditions;
 import ch.epfl.rigel.coordinates.EclipticCoordinates;
 import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
 import ch.epfl.rigel.math.Angle;
@@ -10,7 +11,7 @@ import ch.epfl.rigel.math.Angle;
  * @author Bastien Faivre (310929)
  * @author Kamil Mellouk (312327)
  */
-public enum MoonModel implements CelestialObjectModel<Moon> {
+public enum MoonModel implements SingleObjectModel<Moon> {
     MOON();
 
     // Lunar constants relative to the Epoch J2010 (could be declared public, but only used locally so left private)
@@ -30,9 +31,30 @@ public enum MoonModel implements CelestialObjectModel<Moon> {
      */
     @Override
     public Moon at(double daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion) {
-        Sun currentSun = SunModel.SUN.at(daysSinceJ2010, eclipticToEquatorialConversion);
-        double sinOfSunMeanAnomaly = Math.sin(currentSun.meanAnomaly());
-        double sunGeoEclLon = currentSun.eclipticPos().lon();
+        double sunMeanAnomaly = SunModel.meanAnomaly(daysSinceJ2010);
+        double[] terms = new double[4];
+        eclipticTerms(daysSinceJ2010, sunMeanAnomaly, SunModel.eclipticLon(SunModel.realAnomaly(sunMeanAnomaly)), terms);
+
+        return new Moon(
+                eclipticToEquatorialConversion.apply(EclipticCoordinates.of(terms[0], terms[1])),
+                (float) terms[2],
+                0,
+                (float) terms[3]
+        );
+    }
+
+    /**
+     * Compute the position, the angular size and the phase of the moon, given the terms of the sun at the same time
+     * (so that they aren't computed again when the sun is also computed)
+     *
+     * @param daysSinceJ2010 days since Epoch.J2010 (positive or negative)
+     * @param sunMeanAnomaly the mean anomaly of the sun
+     * @param sunGeoEclLon   the geocentric ecliptic longitude of the sun
+     * @param out            where to write the ecliptic longitude (in [0, 2*PI[) and latitude, the angular size and
+     *                       the phase of the moon, in this order
+     */
+    void eclipticTerms(double daysSinceJ2010, double sunMeanAnomaly, double sunGeoEclLon, double[] out) {
+        double sinOfSunMeanAnomaly = Math.sin(sunMeanAnomaly);
 
         double meanOrbitalLon = Angle.ofDeg(13.1763966) * daysSinceJ2010 + MEAN_LON;
 
@@ -59,21 +81,46 @@ public enum MoonModel implements CelestialObjectModel<Moon> {
         // compute an intermediate value for performances
         double intermediateValue = Math.sin(realOrbitalLon - ascendingNodeCorrectedLon);
 
-        double eclipticLon = Angle.normalizePositive(Math.atan2(intermediateValue * Math.cos(ORBIT_INCLINATION), Math.cos(realOrbitalLon - ascendingNodeCorrectedLon)) + ascendingNodeCorrectedLon);
-        double eclipticLat = Math.asin(intermediateValue * Math.sin(ORBIT_INCLINATION));
-        EclipticCoordinates eclipticCoordinates = EclipticCoordinates.of(eclipticLon, eclipticLat);
-
-        double phase = (1 - Math.cos(realOrbitalLon - sunGeoEclLon)) / 2;
+        out[0] = Angle.normalizePositive(Math.atan2(intermediateValue * Math.cos(ORBIT_INCLINATION), Math.cos(realOrbitalLon - ascendingNodeCorrectedLon)) + ascendingNodeCorrectedLon);
+        out[1] = Math.asin(intermediateValue * Math.sin(ORBIT_INCLINATION));
 
         double distanceEarthMoon = (1 - ORBIT_ECCENTRICITY_SQUARED) / (1 + ORBIT_ECCENTRICITY * Math.cos(correctedAnomaly + centralEquationCorrection));
-        double angularSize = Angle.ofDeg(0.5181) / distanceEarthMoon;
-
-        return new Moon(
-                eclipticToEquatorialConversion.apply(eclipticCoordinates),
-                (float) angularSize,
-                0,
-                (float) phase
-        );
+        out[2] = Angle.ofDeg(0.5181) / distanceEarthMoon;
+        out[3] = (1 - Math.cos(realOrbitalLon - sunGeoEclLon)) / 2;
+    }
 
+    /**
+     * Compute the model at a range of instants with the same conversion, writing the results into arrays without
+     * creating any object
+     *
+     * @param daysSinceJ2010                 the instants, in days since Epoch.J2010 (positive or negative)
+     * @param eclipticToEquatorialConversion conversion of the objects' coordinates
+     * @param outRa                          where to write the right ascensions, in rad
+     * @param outDec                         where to write the declinations, in rad
+     * @param outAngularSizes                where to write the angular sizes, in rad
+     * @param outMagnitudes                  where to write the magnitudes
+     * @param from                           the first index of the range
+     * @param to                             the index following the last index of the range
+     * @throws IllegalArgumentException if the range isn't contained in the arrays
+     */
+    @Override
+    public void atBatch(double[] daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion,
+                        double[] outRa, double[] outDec, double[] outAngularSizes, double[] outMagnitudes,
+                        int from, int to) {
+        Preconditions.checkArgument(to <= daysSinceJ2010.length);
+        Preconditions.checkBatchRange(from, to, outRa, outDec, outAngularSizes, outMagnitudes);
+        double[] terms = new double[4];
+        for (int i = from; i < to; i++) {
+            double days = daysSinceJ2010[i];
+            double sunMeanAnomaly = SunModel.meanAnomaly(days);
+            eclipticTerms(days, sunMeanAnomaly, SunModel.eclipticLon(SunModel.realAnomaly(sunMeanAnomaly)), terms);
+            outRa[i] = terms[0];
+            outDec[i] = terms[1];
+            outAngularSizes[i] = terms[2];
+            outMagnitudes[i] = 0;
+        }
+        // the ecliptic coordinates are converted in place
+        eclipticToEquatorialConversion.applyBatch(outRa, outDec, outRa, outDec, from, to);
     }
+
 }
@@ -1,9 +1,15 @@
 package ch.epfl.rigel.astronomy;
 
+import ch.epfl.rigel.Preconditions;
 import ch.epfl.rigel.coordinates.*;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Representation of the sky at a given time and place
@@ -14,18 +20,49 @@ import java.util.*;
 
 public final class ObservedSky {
 
-    // Associating each celestial object(s) with its position(s)
-    private final Map<CelestialObjectType, double[]> objectPosMap = new HashMap<>();
+    /**
+     * Number of stars to project from which they are projected in parallel by the constructors without threshold
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 50_000;
+    // Minimal number of stars of a chunk projected in parallel
+    private static final int MIN_CHUNK_SIZE = 4_096;
+    // Number of chunks per thread of the pool, so that the threads stay busy even if some chunks are slower
+    private static final int CHUNKS_PER_THREAD = 4;
 
-    private final Sun sun;
-    private final Moon moon;
-    private final List<Planet> planets;
+    // Layers of the sky, in the order of their objects in the buffer of positions
+    private final List<SkyLayer> layers;
+    // Objects of each layer with their positions, each layer computed when first needed (in the order of the layers)
+    private final LayerGroup[] layerGroups;
+    // Positions of the objects of all the layers in a single buffer, and its index, gathered when first needed
+    // (guarded by the groups of the layers, like the groups themselves)
+    private volatile Positions positions;
+    private volatile PlaneIndex planeIndex;
 
     private final StarCatalogue catalogue;
-    private final List<Star> stars;
     private final Set<Asterism> asterisms;
+    // Indices in the catalogue of the stars of the asterisms, always kept so that the asterisms are never dropped
+    private final int[] asterismStars;
+    // Stars of the sky with their positions, projected when first needed
+    private volatile ProjectedStars projectedStars;
+    // Sky whose stars are shared (null if the stars are projected by this sky)
+    private final ObservedSky starSource;
 
-    private final HorizontalCoordinates sunHorPos;
+    // Parameters of the observation, kept to derive other skies from this one
+    // Observation instant, in milliseconds since 01.01.1970 0am UTC, and time zone of the observation time
+    private final long epochMillis;
+    private final ZoneId zone;
+    // Observation time, built when first needed for the skies computed from an instant
+    private volatile ZonedDateTime when;
+    private final GeographicCoordinates where;
+    private final StereographicProjection projection;
+    private final Viewport viewport;
+    private final double maxMagnitude;
+    private final int parallelThreshold;
+    private final int brighterStarCount;
+    private final EquatorialToHorizontalConversion equToHorConversion;
+    // The sun, the moon and the planets (each kind computed when first needed), which can have been computed at
+    // a slightly different time
+    private final SolarSystem solarSystem;
 
     /**
      * Constructor of the observed sky
@@ -36,53 +73,381 @@ public final class ObservedSky {
      * @param catalogue               the catalogue of stars
      */
     public ObservedSky(ZonedDateTime when, GeographicCoordinates where, StereographicProjection stereographicProjection, StarCatalogue catalogue) {
-        EquatorialToHorizontalConversion equToHorConversion = new EquatorialToHorizontalConversion(when, where);
-        EclipticToEquatorialConversion eclToEquConversion = new EclipticToEquatorialConversion(when);
-        double daysFromJ2010UntilWhen = Epoch.J2010.daysUntil(when);
-
-        // add sun
-        this.sun = SunModel.SUN.at(daysFromJ2010UntilWhen, eclToEquConversion);
-        sunHorPos = equToHorConversion.apply(this.sun.equatorialPos());
-        CartesianCoordinates sunPosition = stereographicProjection.apply(sunHorPos);
-        this.objectPosMap.put(CelestialObjectType.SUN, new double[]{sunPosition.x(), sunPosition.y()});
-
-        // add moon
-        this.moon = MoonModel.MOON.at(daysFromJ2010UntilWhen, eclToEquConversion);
-        CartesianCoordinates moonPosition = stereographicProjection.apply(equToHorConversion.apply(this.moon.equatorialPos()));
-        this.objectPosMap.put(CelestialObjectType.MOON, new double[]{moonPosition.x(), moonPosition.y()});
-
-        // add planets
-        List<Planet> tempPlanetList = new ArrayList<>();
-        double[] planetPositions = new double[14];
-        int planetIndex = 0;
-        for (PlanetModel planetModel : PlanetModel.values()) {
-            // the earth is skipped
-            if (!planetModel.equals(PlanetModel.EARTH)) {
-                Planet planet = planetModel.at(daysFromJ2010UntilWhen, eclToEquConversion);
-                tempPlanetList.add(planet);
-
-                CartesianCoordinates position = stereographicProjection.apply(equToHorConversion.apply(planet.equatorialPos()));
-                planetPositions[planetIndex] = position.x();
-                planetPositions[planetIndex + 1] = position.y();
-                planetIndex += 2;
-            }
-        }
-        this.objectPosMap.put(CelestialObjectType.PLANETS, planetPositions);
-        this.planets = tempPlanetList;
+        this(when, where, stereographicProjection, catalogue, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Constructor of the observed sky only containing the stars at least as bright as a given magnitude
+     * (if the catalogue is sorted by magnitude, otherwise all the stars are kept) and the stars of the asterisms,
+     * so that their lines can always be drawn
+     *
+     * @param when                    the observation zoned date time
+     * @param where                   the observation position
+     * @param stereographicProjection the stereographic projection
+     * @param catalogue               the catalogue of stars
+     * @param maxMagnitude            the greatest magnitude of the stars to observe
+     * @see StarCatalogue#sortedByMagnitude()
+     */
+    public ObservedSky(ZonedDateTime when, GeographicCoordinates where, StereographicProjection stereographicProjection,
+                       StarCatalogue catalogue, double maxMagnitude) {
+        this(when, where, stereographicProjection, null, catalogue, maxMagnitude, DEFAULT_PARALLEL_THRESHOLD, null, null,
+                SkyLayer.BUILT_IN);
+    }
+
+    /**
+     * Constructor of the observed sky only containing the stars at least as bright as a given magnitude
+     * (if the catalogue is sorted by magnitude) which are visible in the given viewport, the stars of the asterisms
+     * being always kept so that their lines can be drawn
+     *
+     * @param when         the observation zoned date time
+     * @param where        the observation position
+     * @param viewport     the visible part of the sky, with its projection
+     * @param catalogue    the catalogue of stars
+     * @param maxMagnitude the greatest magnitude of the stars to observe
+     */
+    public ObservedSky(ZonedDateTime when, GeographicCoordinates where, Viewport viewport, StarCatalogue catalogue,
+                       double maxMagnitude) {
+        this(when, where, viewport.projection(), viewport, catalogue, maxMagnitude, DEFAULT_PARALLEL_THRESHOLD, null, null,
+                SkyLayer.BUILT_IN);
+    }
+
+    /**
+     * Constructor of the observed sky only containing the stars at least as bright as a given magnitude,
+     * the stars being projected in parallel if there are at least parallelThreshold of them
+     * (the result being the same as if they were projected one after the other)
+     *
+     * @param when                    the observation zoned date time
+     * @param where                   the observation position
+     * @param stereographicProjection the stereographic projection
+     * @param catalogue               the catalogue of stars
+     * @param maxMagnitude            the greatest magnitude of the stars to observe
+     * @param parallelThreshold       the number of stars from which they are projected in parallel
+     * (Integer.MAX_VALUE to always project them on the calling thread)
+     * @throws IllegalArgumentException if parallelThreshold isn't strictly positive
+     */
+    public ObservedSky(ZonedDateTime when, GeographicCoordinates where, StereographicProjection stereographicProjection,
+                       StarCatalogue catalogue, double maxMagnitude, int parallelThreshold) {
+        this(when, where, stereographicProjection, null, catalogue, maxMagnitude, parallelThreshold, null, null, SkyLayer.BUILT_IN);
+    }
+
+    /**
+     * Constructor of the observed sky culled to the given viewport, the stars being projected in parallel if there
+     * are at least parallelThreshold of them (the result being the same as if they were projected one after the other)
+     *
+     * @param when              the observation zoned date time
+     * @param where             the observation position
+     * @param viewport          the visible part of the sky, with its projection
+     * @param catalogue         the catalogue of stars
+     * @param maxMagnitude      the greatest magnitude of the stars to observe
+     * @param parallelThreshold the number of stars from which they are projected in parallel
+     * (Integer.MAX_VALUE to always project them on the calling thread)
+     * @throws IllegalArgumentException if parallelThreshold isn't strictly positive
+     */
+    public ObservedSky(ZonedDateTime when, GeographicCoordinates where, Viewport viewport, StarCatalogue catalogue,
+                       double maxMagnitude, int parallelThreshold) {
+        this(when, where, viewport.projection(), viewport, catalogue, maxMagnitude, parallelThreshold, null, null, SkyLayer.BUILT_IN);
+    }
+
+    /**
+     * Constructor of the observed sky only containing the stars at least as bright as a given magnitude,
+     * with a solar system computed at the same time (shared by several skies)
+     *
+     * @param solarSystem             the sun, the moon and the planets at the observation time
+     * @param when                    the observation zoned date time
+     * @param where                   the observation position
+     * @param stereographicProjection the stereographic projection
+     * @param catalogue               the catalogue of stars
+     * @param maxMagnitude            the greatest magnitude of the stars to observe
+     */
+    ObservedSky(SolarSystem solarSystem, ZonedDateTime when, GeographicCoordinates where,
+                StereographicProjection stereographicProjection, StarCatalogue catalogue, double maxMagnitude) {
+        this(when, where, stereographicProjection, null, catalogue, maxMagnitude, DEFAULT_PARALLEL_THRESHOLD,
+                null, solarSystem, SkyLayer.BUILT_IN);
+    }
+
+    /**
+     * Constructor of the observed sky, culled if a viewport is given
+     *
+     * @param when                    the observation zoned date time
+     * @param where                   the observation position
+     * @param stereographicProjection the stereographic projection
+     * @param viewport                the visible part of the sky, or null to keep all the stars
+     * @param catalogue               the catalogue of stars
+     * @param maxMagnitude            the greatest magnitude of the stars to observe
+     * @param parallelThreshold       the number of stars from which they are projected in parallel
+     * @param previous                a sky with the same catalogue and greatest magnitude, whose selection of stars
+     *                                and asterisms is reused (or null)
+     * @param solarSystem             the sun, the moon and the planets to reuse, or null to compute them at the time
+     *                                of the observation
+     * @param layers                  the layers of the sky, the built-in ones first
+     */
+    private ObservedSky(ZonedDateTime when, GeographicCoordinates where, StereographicProjection stereographicProjection,
+                        Viewport viewport, StarCatalogue catalogue, double maxMagnitude, int parallelThreshold,
+                        ObservedSky previous, SolarSystem solarSystem, List<SkyLayer> layers) {
+        this(when.toInstant().toEpochMilli(), when.getZone(), where, stereographicProjection, viewport, catalogue,
+                maxMagnitude, parallelThreshold, previous, solarSystem, layers);
+        this.when = when;
+    }
+
+    /**
+     * Constructor of the observed sky at an instant, culled if a viewport is given, whose observation time is only
+     * built if asked
+     *
+     * @param epochMillis             the observation instant, in milliseconds since 01.01.1970 0am UTC
+     * @param zone                    the time zone of the observation time
+     * @param where                   the observation position
+     * @param stereographicProjection the stereographic projection
+     * @param viewport                the visible part of the sky, or null to keep all the stars
+     * @param catalogue               the catalogue of stars
+     * @param maxMagnitude            the greatest magnitude of the stars to observe
+     * @param parallelThreshold       the number of stars from which they are projected in parallel
+     * @param previous                a sky with the same catalogue and greatest magnitude, whose selection of stars
+     *                                and asterisms is reused (or null)
+     * @param solarSystem             the sun, the moon and the planets to reuse, or null to compute them at the time
+     *                                of the observation
+     * @param layers                  the layers of the sky, the built-in ones first
+     */
+    private ObservedSky(long epochMillis, ZoneId zone, GeographicCoordinates where,
+                        StereographicProjection stereographicProjection, Viewport viewport, StarCatalogue catalogue,
+                        double maxMagnitude, int parallelThreshold, ObservedSky previous, SolarSystem solarSystem,
+                        List<SkyLayer> layers) {
+        Preconditions.checkArgument(parallelThreshold > 0);
+        this.epochMillis = epochMillis;
+        this.zone = zone;
+        this.where = where;
+        this.projection = stereographicProjection;
+        this.viewport = viewport;
+        this.maxMagnitude = maxMagnitude;
+        this.parallelThreshold = parallelThreshold;
+        this.equToHorConversion = new EquatorialToHorizontalConversion(epochMillis, where);
+        this.solarSystem = solarSystem == null ? new SolarSystem(epochMillis) : solarSystem;
+        this.layers = List.copyOf(layers);
+        this.layerGroups = new LayerGroup[this.layers.size()];
+        this.starSource = null;
 
         this.catalogue = catalogue;
-        this.stars = catalogue.stars();
+        this.brighterStarCount = previous == null ? catalogue.brighterStarCount(maxMagnitude) : previous.brighterStarCount;
         this.asterisms = catalogue.asterisms();
-        // add stars
-        double[] starPositions = new double[this.stars.size() * 2];
-        int starIndex = 0;
-        for (Star star : catalogue.stars()) {
-            CartesianCoordinates position = stereographicProjection.apply(equToHorConversion.apply(star.equatorialPos()));
-            starPositions[starIndex] = position.x();
-            starPositions[starIndex + 1] = position.y();
-            starIndex += 2;
+        this.asterismStars = previous == null ? asterismStars(catalogue, asterisms) : previous.asterismStars;
+    }
+
+    /**
+     * Constructor of the same sky as another one stamped with another observation time or with other layers, sharing
+     * the objects of the layers they have in common (and the buffer of their positions if they have the same layers)
+     *
+     * @param sky    the sky
+     * @param when   the observation zoned date time given to the sky, whose objects keep the positions of the
+     *               observation time of the other sky
+     * @param layers the layers of the sky, the built-in ones first
+     */
+    private ObservedSky(ObservedSky sky, ZonedDateTime when, List<SkyLayer> layers) {
+        this(sky, when.toInstant().toEpochMilli(), when.getZone(), layers);
+        this.when = when;
+    }
+
+    /**
+     * Constructor of the same sky as another one stamped with another observation instant or with other layers, as
+     * ObservedSky(ObservedSky, ZonedDateTime, List), whose observation time is only built if asked
+     *
+     * @param sky         the sky
+     * @param epochMillis the observation instant given to the sky, in milliseconds since 01.01.1970 0am UTC
+     * @param zone        the time zone of the observation time
+     * @param layers      the layers of the sky, the built-in ones first
+     */
+    private ObservedSky(ObservedSky sky, long epochMillis, ZoneId zone, List<SkyLayer> layers) {
+        this.epochMillis = epochMillis;
+        this.zone = zone;
+        this.layers = List.copyOf(layers);
+        this.layerGroups = new LayerGroup[this.layers.size()];
+        synchronized (sky.layerGroups) {
+            for (int l = 0; l < layerGroups.length; l++) {
+                int index = sky.layers.indexOf(this.layers.get(l));
+                layerGroups[l] = index == -1 ? null : sky.layerGroups[index];
+            }
+            if (this.layers.equals(sky.layers)) {
+                this.positions = sky.positions;
+                this.planeIndex = sky.planeIndex;
+            }
         }
-        this.objectPosMap.put(CelestialObjectType.STARS, starPositions);
+        this.where = sky.where;
+        this.projection = sky.projection;
+        this.viewport = sky.viewport;
+        this.maxMagnitude = sky.maxMagnitude;
+        this.parallelThreshold = sky.parallelThreshold;
+        this.equToHorConversion = sky.equToHorConversion;
+        this.solarSystem = sky.solarSystem;
+        this.starSource = sky.starSource == null ? sky : sky.starSource;
+
+        this.catalogue = sky.catalogue;
+        this.brighterStarCount = sky.brighterStarCount;
+        this.asterisms = sky.asterisms;
+        this.asterismStars = sky.asterismStars;
+    }
+
+    /**
+     * Return the same sky seen with another projection, without culling, which only projects the objects again
+     * (the sun, the moon, the planets and the selection of the stars being reused)
+     *
+     * @param projection the new stereographic projection
+     * @return the sky observed at the same time and place with the given projection
+     */
+    public ObservedSky withProjection(StereographicProjection projection) {
+        return new ObservedSky(epochMillis, zone, where, projection, null, catalogue, maxMagnitude, parallelThreshold,
+                this, solarSystem, layers);
+    }
+
+    /**
+     * Return the same sky culled to another viewport, which only projects the objects again
+     * (the sun, the moon, the planets and the selection of the stars being reused)
+     *
+     * @param viewport the new visible part of the sky, with its projection
+     * @return the sky observed at the same time and place, culled to the given viewport
+     */
+    public ObservedSky withViewport(Viewport viewport) {
+        return new ObservedSky(epochMillis, zone, where, viewport.projection(), viewport, catalogue, maxMagnitude,
+                parallelThreshold, this, solarSystem, layers);
+    }
+
+    /**
+     * Return the sky observed at another time or place with the same projection (and viewport), the sun, the moon and
+     * the planets being reused if they were computed at most modelTolerance away from the new time
+     * (their equatorial positions changing slowly, while their horizontal positions are always recomputed)
+     *
+     * @param when           the new observation zoned date time
+     * @param where          the new observation position
+     * @param modelTolerance the greatest difference of time for which the sun, the moon and the planets are reused
+     * @return the sky observed at the given time and place
+     * @throws IllegalArgumentException if modelTolerance is negative
+     */
+    public ObservedSky at(ZonedDateTime when, GeographicCoordinates where, Duration modelTolerance) {
+        Preconditions.checkArgument(!modelTolerance.isNegative());
+        double toleranceDays = modelTolerance.toMillis() / (double) Duration.ofDays(1).toMillis();
+        boolean reuseModels = Math.abs(Epoch.J2010.daysUntil(when) - solarSystem.daysFromJ2010()) <= toleranceDays;
+        return new ObservedSky(when, where, projection, viewport, catalogue, maxMagnitude, parallelThreshold,
+                this, reuseModels ? solarSystem : null, layers);
+    }
+
+    /**
+     * Return the sky observed at another time or place with the same projection (and viewport), the sun, the moon and
+     * the planets being interpolated by a cache of ephemerides (or reused at the same time), so that the skies of
+     * an animation share the evaluations of their models
+     *
+     * @param when        the new observation zoned date time
+     * @param where       the new observation position
+     * @param ephemerides the cache interpolating the sun, the moon and the planets
+     * @return the sky observed at the given time and place
+     */
+    public ObservedSky at(ZonedDateTime when, GeographicCoordinates where, EphemerisCache ephemerides) {
+        long epochMillis = when.toInstant().toEpochMilli();
+        SolarSystem solarSystem = this.epochMillis == epochMillis ? this.solarSystem : ephemerides.solarSystem(epochMillis);
+        return new ObservedSky(when, where, projection, viewport, catalogue, maxMagnitude, parallelThreshold,
+                this, solarSystem, layers);
+    }
+
+    /**
+     * Return the sky observed at another instant or place, as at(ZonedDateTime, GeographicCoordinates,
+     * EphemerisCache), the observation time of the new sky being in the time zone of this one (and only built if
+     * asked, so that the skies of an animation don't create any)
+     *
+     * @param epochMillis the new observation instant, in milliseconds since 01.01.1970 0am UTC
+     * @param where       the new observation position
+     * @param ephemerides the cache interpolating the sun, the moon and the planets
+     * @return the sky observed at the given instant and place
+     */
+    public ObservedSky at(long epochMillis, GeographicCoordinates where, EphemerisCache ephemerides) {
+        SolarSystem solarSystem = this.epochMillis == epochMillis ? this.solarSystem : ephemerides.solarSystem(epochMillis);
+        return new ObservedSky(epochMillis, zone, where, projection, viewport, catalogue, maxMagnitude,
+                parallelThreshold, this, solarSystem, layers);
+    }
+
+    /**
+     * Return the same sky with other layers of objects registered after the built-in ones, sharing the objects of the
+     * built-in layers of this sky (the stars being projected once for both)
+     *
+     * @param layers the layers of the objects added to the stars, the planets, the sun and the moon
+     * @return the sky observed at the same time and place with the given layers
+     * @see SkyLayer#BUILT_IN
+     */
+    public ObservedSky withLayers(List<SkyLayer> layers) {
+        List<SkyLayer> registered = new ArrayList<>(SkyLayer.BUILT_IN);
+        registered.addAll(layers);
+        return new ObservedSky(this, epochMillis, zone, registered);
+    }
+
+    /**
+     * Return the same sky stamped with another observation time, sharing all its objects and their positions (which
+     * stay those of the observation time of this sky), for the skies of a cache which are the same in a slot of time
+     *
+     * @param when the observation zoned date time given to the sky
+     * @return the same sky whose observation time is the given one
+     * @see ObservedSkyCache
+     */
+    ObservedSky stampedAt(ZonedDateTime when) {
+        return new ObservedSky(this, when, layers);
+    }
+
+    /**
+     * Getter for the observation zoned date time
+     *
+     * @return the observation zoned date time (built the first time it is asked for a sky computed from an instant)
+     */
+    public ZonedDateTime when() {
+        ZonedDateTime when = this.when;
+        if (when == null) {
+            synchronized (this) {
+                when = this.when;
+                if (when == null) {
+                    when = ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), zone);
+                    this.when = when;
+                }
+            }
+        }
+        return when;
+    }
+
+    /**
+     * Getter for the observation instant
+     *
+     * @return the observation instant, in milliseconds since 01.01.1970 0am UTC
+     */
+    public long epochMillis() {
+        return epochMillis;
+    }
+
+    /**
+     * Getter for the observation position
+     *
+     * @return the observation position
+     */
+    public GeographicCoordinates where() {
+        return where;
+    }
+
+    /**
+     * Getter for the stereographic projection
+     *
+     * @return the stereographic projection of the sky
+     */
+    public StereographicProjection projection() {
+        return projection;
+    }
+
+    /**
+     * Getter for the viewport
+     *
+     * @return the visible part of the plane of the sky, or null if the sky isn't culled
+     */
+    public Viewport viewport() {
+        return viewport;
+    }
+
+    /**
+     * Getter for the greatest magnitude of the stars to observe
+     *
+     * @return the greatest magnitude of the stars to observe
+     */
+    public double maxMagnitude() {
+        return maxMagnitude;
     }
 
     /**
@@ -91,7 +456,7 @@ public final class ObservedSky {
      * @return the sun
      */
     public Sun sun() {
-        return sun;
+        return solarSystem.sun();
     }
 
     /**
@@ -100,10 +465,8 @@ public final class ObservedSky {
      * @return the position of the sun
      */
     public CartesianCoordinates sunPosition() {
-        return CartesianCoordinates.of(
-                objectPosMap.get(CelestialObjectType.SUN)[0],
-                objectPosMap.get(CelestialObjectType.SUN)[1]
-        );
+        double[] positions = layerGroup(SkyLayer.SUN).positions;
+        return CartesianCoordinates.of(positions[0], positions[1]);
     }
 
     /**
@@ -112,7 +475,7 @@ public final class ObservedSky {
      * @return the horizontal coordinates of the sun
      */
     public HorizontalCoordinates sunHorPos() {
-        return sunHorPos;
+        return equToHorConversion.apply(sun().equatorialPos());
     }
 
     /**
@@ -121,7 +484,7 @@ public final class ObservedSky {
      * @return the moon
      */
     public Moon moon() {
-        return moon;
+        return solarSystem.moon();
     }
 
     /**
@@ -130,10 +493,8 @@ public final class ObservedSky {
      * @return the position of the moon
      */
     public CartesianCoordinates moonPosition() {
-        return CartesianCoordinates.of(
-                objectPosMap.get(CelestialObjectType.MOON)[0],
-                objectPosMap.get(CelestialObjectType.MOON)[1]
-        );
+        double[] positions = layerGroup(SkyLayer.MOON).positions;
+        return CartesianCoordinates.of(positions[0], positions[1]);
     }
 
     /**
@@ -142,7 +503,7 @@ public final class ObservedSky {
      * @return the list containing the 7 extraterrestrial planets
      */
     public List<Planet> planets() {
-        return planets;
+        return solarSystem.planets();
     }
 
     /**
@@ -151,16 +512,93 @@ public final class ObservedSky {
      * @return the array containing the coordinates of the 7 extraterrestrial planets
      */
     public double[] planetPositions() {
-        return objectPosMap.get(CelestialObjectType.PLANETS);
+        return layerGroup(SkyLayer.PLANETS).positions.clone();
+    }
+
+    /**
+     * Getter for the layers of the sky : the built-in ones (the stars, the planets, the sun and the moon) followed by
+     * the ones added
+     *
+     * @return the unmodifiable list of the layers of the sky, in the order of their objects in the buffer of positions
+     */
+    public List<SkyLayer> layers() {
+        return layers;
     }
 
     /**
-     * Getter for the list of stars of the star catalogue used
+     * Getter for the objects of a layer, computed the first time they are needed (the stars of the sky being only
+     * created when asked)
      *
-     * @return the list of stars of the star catalogue used
+     * @param layer the layer
+     * @return the unmodifiable list of the objects of the layer, in the order of their positions
+     * @throws IllegalArgumentException if the layer isn't a layer of the sky
+     */
+    public List<? extends CelestialObject> objectsOf(SkyLayer layer) {
+        return layerGroup(layer).objects;
+    }
+
+    /**
+     * Getter for the coordinates of the objects of all the layers, computed the first time they are needed
+     * (not copied, so it mustn't be modified)
+     *
+     * @return the array {x0, y0, x1, y1, ...} of the coordinates of the objects, those of each layer starting at its
+     * offset
+     * @see #offsetOf(SkyLayer)
+     */
+    public double[] positions() {
+        return computedPositions().buffer;
+    }
+
+    /**
+     * Return the index of the first object of a layer among the objects of all the layers
+     *
+     * @param layer the layer
+     * @return the index of the first object of the layer in the buffer of positions (half the index of its
+     * x-coordinate), the objects of a layer being followed by those of the next one
+     * @throws IllegalArgumentException if the layer isn't a layer of the sky
+     */
+    public int offsetOf(SkyLayer layer) {
+        return computedPositions().offsets[layerIndex(layer)];
+    }
+
+    /**
+     * Getter for the list of stars of the sky, which are the first stars of the star catalogue used followed by the
+     * fainter stars of the asterisms
+     *
+     * @return the list of stars of the sky
      */
     public List<Star> stars() {
-        return stars;
+        return projectedStars().stars;
+    }
+
+    /**
+     * Getter for the star catalogue used, whose columns give the values of the stars without creating them
+     *
+     * @return the star catalogue used
+     */
+    public StarCatalogue catalogue() {
+        return catalogue;
+    }
+
+    /**
+     * Getter for the number of stars of the sky, which are the first stars of the catalogue and the fainter stars of
+     * the asterisms
+     *
+     * @return the number of stars of the sky
+     */
+    public int starCount() {
+        return projectedStars().count;
+    }
+
+    /**
+     * Return the index in the catalogue of a star of the sky
+     *
+     * @param index the index of the star in the sky (and in the array of positions), in [0, starCount()[
+     * @return the index of the star in the catalogue
+     */
+    public int starIndex(int index) {
+        int[] starIndices = projectedStars().indices;
+        return starIndices == null ? index : starIndices[index];
     }
 
     /**
@@ -169,12 +607,12 @@ public final class ObservedSky {
      * @return the array containing the coordinates of the stars
      */
     public double[] starPositions() {
-        return objectPosMap.get(CelestialObjectType.STARS);
+        return projectedStars().positions;
     }
 
 
     /**
-     * Getter for the set of asterism of the star catalogue used
+     * Getter for the set of asterism of the star catalogue used, whose stars are always in the sky
      *
      * @return the set of asterism of the star catalogue used
      */
@@ -186,14 +624,25 @@ public final class ObservedSky {
      * the list of the stars indices containing in the given asterism
      *
      * @param asterism the asterism of we want to get its stars indices
-     * @return the the list of the stars indices containing in the given asterism
+     * @return the the list of the stars indices (in the sky) containing in the given asterism
      */
     public List<Integer> asterismIndices(Asterism asterism) {
-        return catalogue.asterismIndices(asterism);
+        List<Integer> indices = catalogue.asterismIndices(asterism);
+        int[] starIndices = projectedStars().indices;
+        if (starIndices == null) {
+            return indices;
+        }
+        // the stars of the sky are in increasing order of their index in the catalogue
+        List<Integer> skyIndices = new ArrayList<>(indices.size());
+        for (int index : indices) {
+            skyIndices.add(Arrays.binarySearch(starIndices, index));
+        }
+        return Collections.unmodifiableList(skyIndices);
     }
 
     /**
      * Return the closest celestial object of the given coordinates but in the range of the given max distance
+     * (found with the index of the positions of the objects, built the first time it is needed)
      *
      * @param coordinates the given point
      * @param maxDistance the limit range
@@ -201,68 +650,718 @@ public final class ObservedSky {
      * or Optional.empty() if there isn't any celestial object in the specific range
      */
     public Optional<CelestialObject> objectClosestTo(CartesianCoordinates coordinates, double maxDistance) {
-        // we work with the square of distances for performances
-        double minDistanceSquared = maxDistance * maxDistance;
-        CelestialObject closestObject = null;
-
-        double x = coordinates.x();
-        double y = coordinates.y();
-
-        CelestialObjectType typeOfclosestObject = null;
-        int index = 0;
-
-        for (CelestialObjectType type : objectPosMap.keySet()) {
-            double[] positions = objectPosMap.get(type);
-            for (int i = 0; i < positions.length; i += 2) {
-                CartesianCoordinates pos = CartesianCoordinates.of(positions[i], positions[i + 1]);
-                if (Math.abs(x - pos.x()) < maxDistance && Math.abs(y - pos.y()) < maxDistance) {
-                    double distanceSquared = distanceBetweenSquared(pos, coordinates);
-                    if (distanceSquared < minDistanceSquared) {
-                        minDistanceSquared = distanceSquared;
-                        typeOfclosestObject = type;
-                        index = i;
-                    }
+        int id = planeIndex().nearest(coordinates.x(), coordinates.y(), maxDistance, null);
+        return id == -1 ? Optional.empty() : Optional.of(objectOf(id));
+    }
+
+    /**
+     * Return the closest celestial object of the given layers to the given coordinates, but in the range of the given
+     * max distance (the objects of the other layers being skipped by the search of the index of all the positions)
+     *
+     * @param coordinates the given point
+     * @param maxDistance the limit range
+     * @param layers      the layers of the objects to search
+     * @return the closest celestial object of the given layers (the first one in the order of the layers if several
+     * are at the same distance), or Optional.empty() if there isn't any in the specific range
+     */
+    public Optional<CelestialObject> objectClosestTo(CartesianCoordinates coordinates, double maxDistance,
+                                                     Set<SkyLayer> layers) {
+        boolean[] searched = new boolean[this.layers.size()];
+        boolean searchesAll = true;
+        for (int l = 0; l < searched.length; l++) {
+            searched[l] = layers.contains(this.layers.get(l));
+            searchesAll &= searched[l];
+        }
+        Positions positions = computedPositions();
+        int id = planeIndex().nearest(coordinates.x(), coordinates.y(), maxDistance,
+                searchesAll ? null : i -> searched[positions.layerOf(i)]);
+        return id == -1 ? Optional.empty() : Optional.of(objectOf(id));
+    }
+
+    /**
+     * Return the celestial objects at most at a given distance of the given coordinates
+     *
+     * @param coordinates the given point
+     * @param radius      the distance
+     * @return the objects at most at the distance radius of the point, in the order of the layers (and in the order of
+     * the sky among the objects of each layer)
+     */
+    public Selection objectsWithin(CartesianCoordinates coordinates, double radius) {
+        int[] ids = planeIndex().within(coordinates.x(), coordinates.y(), radius);
+        return new Selection(this, ids, distances(ids, coordinates));
+    }
+
+    /**
+     * Return the k closest celestial objects to the given coordinates
+     *
+     * @param coordinates the given point
+     * @param k           the number of objects
+     * @return the k closest objects (or all the objects if there are less of them), by increasing distance
+     * @throws IllegalArgumentException if k is negative
+     */
+    public Selection kNearest(CartesianCoordinates coordinates, int k) {
+        int[] ids = planeIndex().kNearest(coordinates.x(), coordinates.y(), k);
+        return new Selection(this, ids, distances(ids, coordinates));
+    }
+
+    /**
+     * Project the equatorial positions of objects on the plane of the sky
+     *
+     * @param objects the objects
+     * @return the array {x0, y0, x1, y1, ...} of the coordinates of the objects, in their order
+     * @see SkyLayer#positionsIn(ObservedSky, List)
+     */
+    public double[] project(List<? extends CelestialObject> objects) {
+        double[] positions = new double[2 * objects.size()];
+        for (int i = 0; i < objects.size(); i++) {
+            CartesianCoordinates position = projection.apply(equToHorConversion.apply(objects.get(i).equatorialPos()));
+            positions[2 * i] = position.x();
+            positions[2 * i + 1] = position.y();
+        }
+        return positions;
+    }
+
+    /**
+     * Getter for the number of days from J2010 to the observation time, at which the objects of the layers are computed
+     *
+     * @return the number of days from J2010 to the observation time
+     */
+    double daysFromJ2010() {
+        return Epoch.J2010.daysUntil(epochMillis);
+    }
+
+    /**
+     * Getter for the conversion from ecliptic to equatorial coordinates at the observation time, the one of the solar
+     * system being reused if it was computed at the same time
+     *
+     * @return the conversion from ecliptic to equatorial coordinates at the observation time
+     */
+    EclipticToEquatorialConversion eclToEquConversion() {
+        return daysFromJ2010() == solarSystem.daysFromJ2010() ?
+                solarSystem.eclToEquConversion() : new EclipticToEquatorialConversion(epochMillis);
+    }
+
+    /**
+     * Return the index of a layer among the layers of the sky
+     *
+     * @param layer the layer
+     * @return the index of the layer
+     * @throws IllegalArgumentException if the layer isn't a layer of the sky
+     */
+    private int layerIndex(SkyLayer layer) {
+        int index = layers.indexOf(layer);
+        Preconditions.checkArgument(index != -1);
+        return index;
+    }
+
+    /**
+     * Getter for the objects of a layer with their positions, computed and projected the first time they are needed
+     *
+     * @param layer the layer
+     * @return the objects of the layer with their positions
+     * @throws IllegalArgumentException if the layer isn't a layer of the sky
+     */
+    private LayerGroup layerGroup(SkyLayer layer) {
+        return layerGroup(layerIndex(layer));
+    }
+
+    /**
+     * Getter for the objects of a layer with their positions, computed and projected the first time they are needed
+     *
+     * @param l the index of the layer
+     * @return the objects of the layer with their positions
+     */
+    private LayerGroup layerGroup(int l) {
+        synchronized (layerGroups) {
+            LayerGroup group = layerGroups[l];
+            if (group == null) {
+                group = new LayerGroup(layers.get(l), this);
+                layerGroups[l] = group;
+            }
+            return group;
+        }
+    }
+
+    /**
+     * Getter for the positions of the objects of all the layers, gathered the first time they are needed
+     *
+     * @return the positions of the objects of the layers in a single buffer
+     */
+    private Positions computedPositions() {
+        Positions positions = this.positions;
+        if (positions == null) {
+            synchronized (layerGroups) {
+                positions = this.positions;
+                if (positions == null) {
+                    positions = new Positions(this);
+                    this.positions = positions;
                 }
             }
         }
+        return positions;
+    }
+
+    /**
+     * Getter for the index of the positions of the objects, built the first time it is needed
+     *
+     * @return the index of the positions of the objects, whose identifiers are their indices in the buffer
+     */
+    private PlaneIndex planeIndex() {
+        PlaneIndex index = planeIndex;
+        if (index == null) {
+            synchronized (layerGroups) {
+                index = planeIndex;
+                if (index == null) {
+                    index = new PlaneIndex(computedPositions().buffer);
+                    planeIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Getter for the stars of the sky, projected the first time they are needed
+     *
+     * @return the stars of the sky with their positions
+     */
+    private ProjectedStars projectedStars() {
+        if (starSource != null) {
+            return starSource.projectedStars();
+        }
+        ProjectedStars stars = projectedStars;
+        if (stars == null) {
+            synchronized (this) {
+                stars = projectedStars;
+                if (stars == null) {
+                    stars = projectStars();
+                    projectedStars = stars;
+                }
+            }
+        }
+        return stars;
+    }
+
+    /**
+     * Select and project the stars of the sky : the first stars of the catalogue, or only the ones visible in the
+     * viewport if the sky is culled, and the ones of the asterisms
+     *
+     * @return the stars of the sky with their positions
+     */
+    private ProjectedStars projectStars() {
+        // the stars to project : the first stars of the catalogue, or the ones which can be visible in the viewport,
+        // with the ones of the asterisms (none if they are all among the first stars and the sky isn't culled)
+        int[] candidates = viewport == null ? firstStarsWith(asterismStars, brighterStarCount) :
+                candidateStars(catalogue, brighterStarCount, viewport, equToHorConversion, asterismStars);
+        int candidateCount = candidates == null ? brighterStarCount : candidates.length;
+
+        // the stars are projected (in chunks on the common ForkJoinPool if there are enough of them), each star
+        // being computed the same way whatever its chunk
+        EquatorialToPlaneProjection equToPlaneProjection = new EquatorialToPlaneProjection(epochMillis, where, projection);
+        double[] xs = new double[candidateCount];
+        double[] ys = new double[candidateCount];
+        double[] sinAlts = viewport != null && viewport.horizonCulling() ? new double[candidateCount] : null;
+        StarChunk starProjection = new StarChunk(equToPlaneProjection, catalogue.unitVectors(), candidates, xs, ys, sinAlts);
+        if (candidateCount >= parallelThreshold) {
+            int chunkCount = Math.min(ForkJoinPool.commonPool().getParallelism() * CHUNKS_PER_THREAD,
+                    candidateCount / MIN_CHUNK_SIZE);
+            chunkCount = Math.max(chunkCount, 1);
+            List<ForkJoinTask<?>> chunks = new ArrayList<>();
+            for (int c = 0; c < chunkCount; c++) {
+                int from = (int) ((long) candidateCount * c / chunkCount);
+                int to = (int) ((long) candidateCount * (c + 1) / chunkCount);
+                chunks.add(ForkJoinPool.commonPool().submit(() -> starProjection.project(from, to)));
+            }
+            try {
+                for (ForkJoinTask<?> chunk : chunks) {
+                    chunk.join();
+                }
+            } catch (RuntimeException | Error e) {
+                // the stars can't be projected : the chunks which haven't started yet are dropped
+                for (ForkJoinTask<?> chunk : chunks) {
+                    chunk.cancel(false);
+                }
+                throw e;
+            }
+        } else {
+            starProjection.project(0, candidateCount);
+        }
+
+        if (viewport == null) {
+            return new ProjectedStars(catalogue, candidates, candidateCount, interleaved(xs, ys, candidateCount));
+        }
+        // only the visible candidates are kept, compacted in place
+        int count = 0;
+        int asterismStar = 0;
+        for (int k = 0; k < candidateCount; k++) {
+            int i = candidates[k];
+            while (asterismStar < asterismStars.length && asterismStars[asterismStar] < i) {
+                asterismStar++;
+            }
+            boolean inAsterism = asterismStar < asterismStars.length && asterismStars[asterismStar] == i;
+            if (inAsterism || ((sinAlts == null || sinAlts[k] >= 0) && viewport.contains(xs[k], ys[k]))) {
+                candidates[count] = i;
+                xs[count] = xs[k];
+                ys[count] = ys[k];
+                count++;
+            }
+        }
+        return new ProjectedStars(catalogue, Arrays.copyOf(candidates, count), count, interleaved(xs, ys, count));
+    }
+
+    /**
+     * Return the layer of the object of the given identifier in the selections
+     *
+     * @param id the identifier : the index of the object in the buffer of positions
+     * @return the layer of the object of the identifier
+     */
+    private SkyLayer layerOf(int id) {
+        return layers.get(computedPositions().layerOf(id));
+    }
+
+    /**
+     * Return the index of the object of the given identifier among the objects of its layer
+     *
+     * @param id the identifier : the index of the object in the buffer of positions
+     * @return the index of the object in the list of the objects of its layer
+     */
+    private int indexOf(int id) {
+        Positions positions = computedPositions();
+        return id - positions.offsets[positions.layerOf(id)];
+    }
+
+    /**
+     * Return the object of the given identifier in the selections
+     *
+     * @param id the identifier : the index of the object in the buffer of positions
+     * @return the object of the identifier
+     */
+    private CelestialObject objectOf(int id) {
+        Positions positions = computedPositions();
+        int l = positions.layerOf(id);
+        return layerGroup(l).objects.get(id - positions.offsets[l]);
+    }
+
+    /**
+     * Return the distances between objects and the given coordinates
+     *
+     * @param ids         the identifiers of the objects
+     * @param coordinates the coordinates
+     * @return the distances between the objects and the coordinates, in the order of the identifiers
+     */
+    private double[] distances(int[] ids, CartesianCoordinates coordinates) {
+        double[] buffer = computedPositions().buffer;
+        double[] distances = new double[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            distances[i] = Math.sqrt(distanceSquared(buffer, ids[i], coordinates.x(), coordinates.y()));
+        }
+        return distances;
+    }
+
+    /**
+     * Return the square of the distance between a point of an array of positions and the given coordinates
+     *
+     * @param positions the array {x0, y0, x1, y1, ...} of the coordinates of the points
+     * @param index     the index of the point (half the index of its x-coordinate)
+     * @param x         the x-coordinate
+     * @param y         the y-coordinate
+     * @return the square of the distance between the point and the coordinates
+     */
+    private static double distanceSquared(double[] positions, int index, double x, double y) {
+        double dx = positions[2 * index] - x;
+        double dy = positions[2 * index + 1] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Return the first stars of the catalogue followed by the given stars which aren't among them
+     *
+     * @param stars     the indices of the other stars, in increasing order and without duplicates
+     * @param starCount the number of first stars of the catalogue
+     * @return the indices in the catalogue of the stars, in increasing order, or null if the given stars are all
+     * among the first stars
+     */
+    private static int[] firstStarsWith(int[] stars, int starCount) {
+        int first = 0;
+        while (first < stars.length && stars[first] < starCount) {
+            first++;
+        }
+        if (first == stars.length) {
+            return null;
+        }
+        int[] indices = new int[starCount + stars.length - first];
+        Arrays.setAll(indices, i -> i);
+        System.arraycopy(stars, first, indices, starCount, stars.length - first);
+        return indices;
+    }
+
+    /**
+     * Return the indices of the stars of the given asterisms
+     *
+     * @param catalogue the catalogue of stars
+     * @param asterisms the asterisms
+     * @return the indices in the catalogue of the stars of the asterisms, in increasing order and without duplicates
+     */
+    private static int[] asterismStars(StarCatalogue catalogue, Set<Asterism> asterisms) {
+        int count = 0;
+        for (Asterism asterism : asterisms) {
+            count += asterism.stars().size();
+        }
+        int[] stars = new int[count];
+        int i = 0;
+        for (Asterism asterism : asterisms) {
+            for (int index : catalogue.asterismIndices(asterism)) {
+                stars[i++] = index;
+            }
+        }
+        return sortedWithoutDuplicates(stars, count);
+    }
+
+    /**
+     * Return the stars which can be visible in the viewport, found with the spatial index of the catalogue
+     *
+     * @param catalogue          the catalogue of stars
+     * @param brighterStarCount  the number of first stars of the catalogue bright enough
+     * @param viewport           the viewport
+     * @param equToHorConversion the conversion to horizontal coordinates
+     * @param asterismStars      the stars of the asterisms, always kept
+     * @return the indices in the catalogue of the candidate stars, in increasing order and without duplicates
+     */
+    private static int[] candidateStars(StarCatalogue catalogue, int brighterStarCount, Viewport viewport,
+                                        EquatorialToHorizontalConversion equToHorConversion, int[] asterismStars) {
+        double radius = viewport.angularRadius();
+        if (radius >= Math.PI) {
+            int[] candidates = firstStarsWith(asterismStars, brighterStarCount);
+            if (candidates == null) {
+                candidates = new int[brighterStarCount];
+                Arrays.setAll(candidates, i -> i);
+            }
+            return candidates;
+        }
 
-        if (typeOfclosestObject != null) {
-            switch (typeOfclosestObject) {
-                case SUN:
-                    closestObject = sun;
-                    break;
-                case MOON:
-                    closestObject = moon;
-                    break;
-                case PLANETS:
-                    closestObject = planets().get(index / 2);
-                    break;
-                case STARS:
-                    closestObject = stars().get(index / 2);
-                    break;
+        // the stars in the cap around the center of the projection containing the whole viewport
+        SphericalIndex index = catalogue.spatialIndex();
+        int[] ranges = index.rangesInCap(equToHorConversion.inverseApply(viewport.projection().center()), radius);
+        int count = asterismStars.length;
+        for (int r = 0; r < ranges.length; r += 2) {
+            count += ranges[r + 1] - ranges[r];
+        }
+        int[] candidates = Arrays.copyOf(asterismStars, count);
+        int i = asterismStars.length;
+        for (int r = 0; r < ranges.length; r += 2) {
+            for (int position = ranges[r]; position < ranges[r + 1]; position++) {
+                int star = index.starIndex(position);
+                if (star < brighterStarCount) {
+                    candidates[i++] = star;
+                }
             }
         }
+        return sortedWithoutDuplicates(candidates, i);
+    }
 
-        return Optional.ofNullable(closestObject);
+    /**
+     * Sort the first values of an array and remove their duplicates
+     *
+     * @param values the array
+     * @param count  the number of values to consider
+     * @return a new array containing the first values of the array, in increasing order and without duplicates
+     */
+    private static int[] sortedWithoutDuplicates(int[] values, int count) {
+        Arrays.sort(values, 0, count);
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (size == 0 || values[size - 1] != values[i]) {
+                values[size++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, size);
     }
 
     /**
-     * Compute the distance between the two given points
+     * Interleave the first coordinates of two arrays of coordinates
      *
-     * @param p1 the first point
-     * @param p2 the second point
-     * @return the distance between the two given points
+     * @param xs    the x-coordinates
+     * @param ys    the y-coordinates
+     * @param count the number of points
+     * @return the array {x0, y0, x1, y1, ...} of the first count points
      */
-    private double distanceBetweenSquared(CartesianCoordinates p1, CartesianCoordinates p2) {
-        return (p1.x() - p2.x()) * (p1.x() - p2.x()) +
-                (p1.y() - p2.y()) * (p1.y() - p2.y());
+    private static double[] interleaved(double[] xs, double[] ys, int count) {
+        double[] positions = new double[2 * count];
+        for (int i = 0; i < count; i++) {
+            positions[2 * i] = xs[i];
+            positions[2 * i + 1] = ys[i];
+        }
+        return positions;
     }
 
     /**
-     * Enumeration of the CelestialObjects to observe
+     * Result of a query by position on an observed sky : a list of objects given by their layer and their index
+     * among the objects of their layer, without creating them
      */
-    private enum CelestialObjectType {
-        SUN, MOON, PLANETS, STARS
+    public static final class Selection {
+        private final ObservedSky sky;
+        // Identifiers of the objects : their indices in the buffer of positions of the sky
+        private final int[] ids;
+        // Distances between the objects and the point of the query, in the order of the identifiers
+        private final double[] distances;
+
+        /**
+         * Constructor of a selection
+         *
+         * @param sky       the sky
+         * @param ids       the identifiers of the objects (their indices in the buffer of positions of the sky)
+         * @param distances the distances between the objects and the point of the query
+         */
+        private Selection(ObservedSky sky, int[] ids, double[] distances) {
+            this.sky = sky;
+            this.ids = ids;
+            this.distances = distances;
+        }
+
+        /**
+         * Getter for the number of objects
+         *
+         * @return the number of objects of the selection
+         */
+        public int size() {
+            return ids.length;
+        }
+
+        /**
+         * Getter for the layer of an object
+         *
+         * @param i the index of the object in the selection
+         * @return the layer of the object
+         */
+        public SkyLayer layer(int i) {
+            return sky.layerOf(ids[i]);
+        }
+
+        /**
+         * Getter for the index of an object among the objects of its layer
+         *
+         * @param i the index of the object in the selection
+         * @return the index of the object in the list of the objects of its layer (the index of the star in the sky
+         * for the stars), its position in the buffer of positions being at the offset of the layer plus this index
+         */
+        public int index(int i) {
+            return sky.indexOf(ids[i]);
+        }
+
+        /**
+         * Getter for the distance between an object and the point of the query
+         *
+         * @param i the index of the object in the selection
+         * @return the distance between the object and the point of the query, on the plane
+         */
+        public double distance(int i) {
+            return distances[i];
+        }
+
+        /**
+         * Getter for an object
+         *
+         * @param i the index of the object in the selection
+         * @return the object (the star being created if it wasn't already)
+         */
+        public CelestialObject object(int i) {
+            return sky.objectOf(ids[i]);
+        }
+
+        /**
+         * Return the indices of the objects of a layer among the objects of their layer
+         *
+         * @param layer the layer of the objects
+         * @return the indices of the objects of the selection of the given layer, in the order of the selection
+         * @throws IllegalArgumentException if the layer isn't a layer of the sky
+         */
+        public int[] indicesOf(SkyLayer layer) {
+            // the objects of the layer are those whose identifiers are in its range of the buffer
+            int from = sky.offsetOf(layer);
+            int to = from + sky.objectsOf(layer).size();
+            int count = 0;
+            for (int id : ids) {
+                count += from <= id && id < to ? 1 : 0;
+            }
+            int[] indices = new int[count];
+            int k = 0;
+            for (int id : ids) {
+                if (from <= id && id < to) {
+                    indices[k++] = id - from;
+                }
+            }
+            return indices;
+        }
+    }
+
+    /**
+     * Objects of a layer with their positions
+     */
+    private static final class LayerGroup {
+        private final List<? extends CelestialObject> objects;
+        private final double[] positions;
+
+        /**
+         * Constructor computing the objects of a layer in a sky, with their positions
+         *
+         * @param layer the layer
+         * @param sky   the sky
+         * @throws IllegalArgumentException if the layer doesn't give a position for each of its objects
+         */
+        LayerGroup(SkyLayer layer, ObservedSky sky) {
+            this.objects = Collections.unmodifiableList(layer.objectsIn(sky));
+            this.positions = layer.positionsIn(sky, objects);
+            Preconditions.checkArgument(positions.length == 2 * objects.size());
+        }
+    }
+
+    /**
+     * Positions of the objects of all the layers of a sky in a single buffer
+     */
+    private static final class Positions {
+        // Index of the first object of each layer, the last one being the number of objects
+        private final int[] offsets;
+        private final double[] buffer;
+
+        /**
+         * Constructor gathering the positions of the objects of the layers of a sky, computing those which weren't yet
+         *
+         * @param sky the sky
+         */
+        Positions(ObservedSky sky) {
+            int layerCount = sky.layers.size();
+            offsets = new int[layerCount + 1];
+            for (int l = 0; l < layerCount; l++) {
+                offsets[l + 1] = offsets[l] + sky.layerGroup(l).objects.size();
+            }
+            buffer = new double[2 * offsets[layerCount]];
+            for (int l = 0; l < layerCount; l++) {
+                double[] positions = sky.layerGroup(l).positions;
+                System.arraycopy(positions, 0, buffer, 2 * offsets[l], positions.length);
+            }
+        }
+
+        /**
+         * Return the index of the layer of the object of the given identifier
+         *
+         * @param id the identifier : the index of the object in the buffer
+         * @return the index of the layer of the object, whose range of identifiers contains the identifier
+         */
+        int layerOf(int id) {
+            // the last layer starting at or before the identifier, the empty layers starting at the same offset as the
+            // next one
+            int low = 0;
+            int high = offsets.length - 2;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (offsets[middle] <= id) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Stars of a sky with their positions
+     */
+    private static final class ProjectedStars {
+        // Indices in the catalogue of the stars of the sky, in increasing order (null if they are the first stars)
+        private final int[] indices;
+        // Number of stars of the sky : the prefix of the catalogue containing the stars bright enough,
+        // or only those of them which are visible if the sky is culled
+        private final int count;
+        private final double[] positions;
+        private final List<Star> stars;
+
+        /**
+         * Constructor of the stars of a sky
+         *
+         * @param catalogue the catalogue of stars
+         * @param indices   the indices in the catalogue of the stars, or null if they are the first stars
+         * @param count     the number of stars
+         * @param positions the coordinates of the stars
+         */
+        ProjectedStars(StarCatalogue catalogue, int[] indices, int count, double[] positions) {
+            this.indices = indices;
+            this.count = count;
+            this.positions = positions;
+            this.stars = indices == null ? catalogue.stars().subList(0, count) : new AbstractList<>() {
+                @Override
+                public Star get(int index) {
+                    return catalogue.stars().get(indices[index]);
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+            };
+        }
+    }
+
+    /**
+     * Projection of the stars to observe, which can be done by ranges on different threads
+     */
+    private static final class StarChunk {
+        private final EquatorialToPlaneProjection projection;
+        private final double[][] unitVectors;
+        // Indices in the catalogue of the stars to project, or null for the first stars of the catalogue
+        private final int[] candidates;
+        // Unit vectors of the stars to project (those of the catalogue, or where to gather the ones of the candidates)
+        private final double[] vx;
+        private final double[] vy;
+        private final double[] vz;
+        // Where to write the positions of the stars, and the sines of their altitudes (null if not needed)
+        private final double[] xs;
+        private final double[] ys;
+        private final double[] sinAlts;
+
+        /**
+         * Constructor of the projection of the stars
+         *
+         * @param projection  the projection of the equatorial unit vectors on the plane
+         * @param unitVectors the columns of the unit vectors of the stars of the catalogue
+         * @param candidates  the indices of the stars to project, or null for the first stars of the catalogue
+         * @param xs          where to write the x-coordinates of the stars
+         * @param ys          where to write the y-coordinates of the stars
+         * @param sinAlts     where to write the sines of the altitudes of the stars, or null
+         */
+        StarChunk(EquatorialToPlaneProjection projection, double[][] unitVectors, int[] candidates,
+                  double[] xs, double[] ys, double[] sinAlts) {
+            this.projection = projection;
+            this.unitVectors = unitVectors;
+            this.candidates = candidates;
+            this.vx = candidates == null ? unitVectors[0] : new double[candidates.length];
+            this.vy = candidates == null ? unitVectors[1] : new double[candidates.length];
+            this.vz = candidates == null ? unitVectors[2] : new double[candidates.length];
+            this.xs = xs;
+            this.ys = ys;
+            this.sinAlts = sinAlts;
+        }
+
+        /**
+         * Project a range of the stars, each range only writing its own part of the arrays
+         *
+         * @param from the first index of the range
+         * @param to   the index following the last index of the range
+         */
+        void project(int from, int to) {
+            if (candidates != null) {
+                // gathering the unit vectors of the candidates, projected together
+                for (int k = from; k < to; k++) {
+                    vx[k] = unitVectors[0][candidates[k]];
+                    vy[k] = unitVectors[1][candidates[k]];
+                    vz[k] = unitVectors[2][candidates[k]];
+                }
+            }
+            projection.applyBatch(vx, vy, vz, xs, ys, from, to);
+            if (sinAlts != null) {
+                projection.sinAltitudes(vx, vy, vz, sinAlts, from, to);
+            }
+        }
     }
 
 }
@@ -0,0 +1,225 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import ch.epfl.rigel.coordinates.Viewport;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of the most recently used observed skies, so that going back to a recent state (time, place, view or
+ * display options) doesn't compute the sky again
+ * <p>
+ * The skies are identified by the slot of time containing their observation time, the position of the observer,
+ * the center of the projection, the visible part of the plane (if culled), the greatest magnitude of the stars and
+ * the catalogue (by identity) : a sky found in the cache can thus have been observed at a slightly different time
+ * of the same slot. It is then stamped with the requested time (its when() and epochMillis() being those of the
+ * request), while the positions of its objects stay those of the time it was observed at : the positions are
+ * quantized to the slots of time. The cache can be used by several threads.
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see ObservedSky
+ */
+public final class ObservedSkyCache {
+
+    // Skies of the cache, from the least recently used to the most recently used
+    private final LinkedHashMap<Key, ObservedSky> skies;
+    private final long timeSlotMillis;
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Constructor of an empty cache
+     *
+     * @param capacity the maximal number of skies kept
+     * @param timeSlot the duration of the slots of time in which the skies are considered the same
+     * @throws IllegalArgumentException if the capacity isn't strictly positive or the duration is shorter than 1 ms
+     */
+    public ObservedSkyCache(int capacity, Duration timeSlot) {
+        Preconditions.checkArgument(capacity > 0);
+        Preconditions.checkArgument(timeSlot.toMillis() > 0);
+        this.timeSlotMillis = timeSlot.toMillis();
+        this.skies = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ObservedSky> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Return the sky of the cache with the given parameters, counting a hit or a miss
+     * (stamped with the given observation time, the positions of its objects being those of the time of the cached
+     * sky, in the same slot of time)
+     *
+     * @param when         the observation zoned date time
+     * @param where        the observation position
+     * @param projection   the stereographic projection
+     * @param viewport     the visible part of the plane of the sky, or null if the sky isn't culled
+     * @param catalogue    the catalogue of stars
+     * @param maxMagnitude the greatest magnitude of the stars to observe
+     * @return the sky with the given parameters, or null if the cache doesn't contain it
+     */
+    public synchronized ObservedSky get(ZonedDateTime when, GeographicCoordinates where,
+                                        StereographicProjection projection, Viewport viewport,
+                                        StarCatalogue catalogue, double maxMagnitude) {
+        ObservedSky sky = skies.get(keyOf(when, where, projection, viewport, catalogue, maxMagnitude));
+        if (sky == null) {
+            missCount++;
+        } else {
+            hitCount++;
+            if (!sky.when().equals(when)) {
+                sky = sky.stampedAt(when);
+            }
+        }
+        return sky;
+    }
+
+    /**
+     * Add a sky to the cache, removing the least recently used one if the cache is full (the skies with added layers,
+     * which the parameters of the cache don't identify, aren't added : their layers can be added to the cached sky)
+     *
+     * @param sky the sky to add
+     * @see ObservedSky#withLayers(List)
+     */
+    public synchronized void put(ObservedSky sky) {
+        Key key = keyOf(sky.when(), sky.where(), sky.projection(), sky.viewport(), sky.catalogue(), sky.maxMagnitude());
+        if (sky.layers().equals(SkyLayer.BUILT_IN)) {
+            skies.put(key, sky);
+        }
+    }
+
+    /**
+     * Return the sky with the given parameters, computing it (and adding it to the cache) if the cache doesn't
+     * contain it
+     *
+     * @param when         the observation zoned date time
+     * @param where        the observation position
+     * @param viewport     the visible part of the plane of the sky
+     * @param catalogue    the catalogue of stars
+     * @param maxMagnitude the greatest magnitude of the stars to observe
+     * @return the sky with the given parameters
+     */
+    public ObservedSky sky(ZonedDateTime when, GeographicCoordinates where, Viewport viewport,
+                           StarCatalogue catalogue, double maxMagnitude) {
+        ObservedSky sky = get(when, where, viewport.projection(), viewport, catalogue, maxMagnitude);
+        if (sky == null) {
+            // computed outside of the lock, so that the other threads aren't blocked
+            sky = new ObservedSky(when, where, viewport, catalogue, maxMagnitude);
+            put(sky);
+        }
+        return sky;
+    }
+
+    /**
+     * Getter for the number of skies in the cache
+     *
+     * @return the number of skies in the cache
+     */
+    public synchronized int size() {
+        return skies.size();
+    }
+
+    /**
+     * Getter for the number of hits
+     *
+     * @return the number of skies found in the cache since its creation
+     */
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Getter for the number of misses
+     *
+     * @return the number of skies not found in the cache since its creation
+     */
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    /**
+     * Remove all the skies of the cache (the counts are kept)
+     */
+    public synchronized void clear() {
+        skies.clear();
+    }
+
+    /**
+     * Return the key of the sky with the given parameters
+     *
+     * @param when         the observation zoned date time
+     * @param where        the observation position
+     * @param projection   the stereographic projection
+     * @param viewport     the visible part of the plane of the sky, or null if the sky isn't culled
+     * @param catalogue    the catalogue of stars
+     * @param maxMagnitude the greatest magnitude of the stars to observe
+     * @return the key of the sky
+     */
+    private Key keyOf(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection,
+                      Viewport viewport, StarCatalogue catalogue, double maxMagnitude) {
+        long timeSlot = Math.floorDiv(when.toInstant().toEpochMilli(), timeSlotMillis);
+        HorizontalCoordinates center = projection.center();
+        double[] parameters = viewport == null ?
+                new double[]{where.lon(), where.lat(), center.az(), center.alt(), maxMagnitude} :
+                new double[]{where.lon(), where.lat(), center.az(), center.alt(), maxMagnitude,
+                        viewport.xBounds().low(), viewport.xBounds().high(),
+                        viewport.yBounds().low(), viewport.yBounds().high(), viewport.horizonCulling() ? 1 : 0};
+        return new Key(timeSlot, parameters, catalogue);
+    }
+
+    /**
+     * Key of a sky in the cache
+     */
+    private static final class Key {
+
+        private final long timeSlot;
+        private final double[] parameters;
+        // Compared by identity, since the catalogues are immutable
+        private final StarCatalogue catalogue;
+
+        /**
+         * Constructor of a key
+         *
+         * @param timeSlot   the number of the slot of time of the observation
+         * @param parameters the other parameters of the observation
+         * @param catalogue  the catalogue of stars
+         */
+        private Key(long timeSlot, double[] parameters, StarCatalogue catalogue) {
+            this.timeSlot = timeSlot;
+            this.parameters = parameters;
+            this.catalogue = catalogue;
+        }
+
+        /**
+         * @param obj the object
+         * @return true if and only if the object is a key with the same parameters
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return timeSlot == that.timeSlot && catalogue == that.catalogue
+                    && Arrays.equals(parameters, that.parameters);
+        }
+
+        /**
+         * @return the hash code of the parameters
+         */
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Long.hashCode(timeSlot) + Arrays.hashCode(parameters))
+                    + System.identityHashCode(catalogue);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialToHorizontalConversion;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+
+/**
+ * Observation of the sky at a given time from several places
+ * <p>
+ * The equatorial positions of the sun, the moon and the planets don't depend on the observer : they are computed
+ * once for all the observers, and only the conversions to horizontal coordinates are done for each observer,
+ * in parallel.
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see SolarSystem
+ */
+public final class ObserverBatch {
+
+    // Observation time, also kept in milliseconds since 01.01.1970 0am UTC for the conversions
+    private final ZonedDateTime when;
+    private final long epochMillis;
+    private final StarCatalogue catalogue;
+    private final SolarSystem solarSystem;
+    // Equatorial coordinates of the sun, the moon and the planets, in this order
+    private final double[] bodyRa;
+    private final double[] bodyDec;
+
+    /**
+     * Constructor of the batch, computing the sun, the moon and the planets at the given time
+     *
+     * @param when      the observation zoned date time
+     * @param catalogue the catalogue of stars
+     */
+    public ObserverBatch(ZonedDateTime when, StarCatalogue catalogue) {
+        this(when, catalogue, new SolarSystem(when));
+    }
+
+    /**
+     * Constructor of the batch, interpolating the sun, the moon and the planets at the given time with a cache of
+     * ephemerides (shared by the batches of an animation)
+     *
+     * @param when        the observation zoned date time
+     * @param catalogue   the catalogue of stars
+     * @param ephemerides the cache interpolating the sun, the moon and the planets
+     */
+    public ObserverBatch(ZonedDateTime when, StarCatalogue catalogue, EphemerisCache ephemerides) {
+        this(when, catalogue, ephemerides.solarSystem(when));
+    }
+
+    /**
+     * Constructor of the batch with the given sun, moon and planets
+     *
+     * @param when        the observation zoned date time
+     * @param catalogue   the catalogue of stars
+     * @param solarSystem the sun, the moon and the planets at the given time
+     */
+    private ObserverBatch(ZonedDateTime when, StarCatalogue catalogue, SolarSystem solarSystem) {
+        this.when = when;
+        this.epochMillis = when.toInstant().toEpochMilli();
+        this.catalogue = catalogue;
+        this.solarSystem = solarSystem;
+
+        bodyRa = new double[SolarSystemEvaluator.BODY_COUNT];
+        bodyDec = new double[SolarSystemEvaluator.BODY_COUNT];
+        solarSystem.evaluator().writeTo(bodyRa, bodyDec, new double[SolarSystemEvaluator.BODY_COUNT],
+                new double[SolarSystemEvaluator.BODY_COUNT], 0);
+    }
+
+    /**
+     * Getter for the sun, the moon and the planets shared by the observers
+     *
+     * @return the solar system at the time of the observation
+     */
+    public SolarSystem solarSystem() {
+        return solarSystem;
+    }
+
+    /**
+     * Return the horizontal positions of the sun, the moon and the planets for each observer
+     *
+     * @param observers the positions of the observers
+     * @return for each observer (in the same order), the array containing the azimuth then the altitude (in rad)
+     * of the sun, the moon and the 7 planets, in this order
+     */
+    public double[][] bodyPositions(List<GeographicCoordinates> observers) {
+        return forEachObserver(observers, double[][]::new, i -> {
+            GeographicCoordinates where = observers.get(i);
+            int count = bodyRa.length;
+            double[] az = new double[count];
+            double[] alt = new double[count];
+            new EquatorialToHorizontalConversion(epochMillis, where).applyBatch(bodyRa, bodyDec, az, alt, 0, count);
+            double[] positions = new double[2 * count];
+            for (int j = 0; j < count; j++) {
+                positions[2 * j] = az[j];
+                positions[2 * j + 1] = alt[j];
+            }
+            return positions;
+        });
+    }
+
+    /**
+     * Return the stars above the horizon for each observer
+     *
+     * @param observers    the positions of the observers
+     * @param maxMagnitude the greatest magnitude of the stars to observe (the fainter stars being skipped at once if
+     *                     the catalogue is sorted by magnitude, as by the sky)
+     * @return for each observer (in the same order), the indices in the catalogue of the stars above the horizon
+     * at least as bright as maxMagnitude, in increasing order
+     * @see StarCatalogue#brighterStarCount(double)
+     */
+    public int[][] visibleStars(List<GeographicCoordinates> observers, double maxMagnitude) {
+        int brighterStarCount = catalogue.brighterStarCount(maxMagnitude);
+        // the magnitudes of the stars only have to be checked if they aren't sorted
+        boolean checkMagnitudes = !catalogue.isSortedByMagnitude();
+        double[][] vectors = catalogue.unitVectors();
+        return forEachObserver(observers, int[][]::new, i -> {
+            GeographicCoordinates where = observers.get(i);
+            double[] sinAlts = new double[brighterStarCount];
+            new EquatorialToHorizontalConversion(epochMillis, where)
+                    .sinAltitudes(vectors[0], vectors[1], vectors[2], sinAlts, 0, brighterStarCount);
+            int[] indices = new int[brighterStarCount];
+            int count = 0;
+            for (int j = 0; j < brighterStarCount; j++) {
+                if (sinAlts[j] >= 0 && (!checkMagnitudes || catalogue.magnitude(j) <= maxMagnitude)) {
+                    indices[count++] = j;
+                }
+            }
+            int[] visible = new int[count];
+            System.arraycopy(indices, 0, visible, 0, count);
+            return visible;
+        });
+    }
+
+    /**
+     * Return the sky observed by each observer, all the skies sharing the same sun, moon and planets as well as the
+     * same selection of stars and asterisms
+     *
+     * @param observers    the positions of the observers
+     * @param projection   the stereographic projection of the skies
+     * @param maxMagnitude the greatest magnitude of the stars to observe
+     * @return the unmodifiable list of the skies observed by the observers, in the same order
+     */
+    public List<ObservedSky> skies(List<GeographicCoordinates> observers, StereographicProjection projection,
+                                   double maxMagnitude) {
+        if (observers.isEmpty()) {
+            return List.of();
+        }
+        ObservedSky first = new ObservedSky(solarSystem, when, observers.get(0), projection, catalogue, maxMagnitude);
+        // same time, so that the other skies reuse the solar system of the first one
+        ObservedSky[] skies = forEachObserver(observers, ObservedSky[]::new,
+                i -> i == 0 ? first : first.at(when, observers.get(i), Duration.ZERO));
+        return List.of(skies);
+    }
+
+    /**
+     * Compute a result for each observer, in parallel
+     *
+     * @param observers the positions of the observers
+     * @param newArray  the constructor of the array of the results
+     * @param compute   the computation of the result of an observer, given its index
+     * @param <T>       the type of the results
+     * @return the array of the results, in the order of the observers
+     */
+    private static <T> T[] forEachObserver(List<GeographicCoordinates> observers, IntFunction<T[]> newArray,
+                                           IntFunction<T> compute) {
+        List<ForkJoinTask<T>> tasks = new ArrayList<>(observers.size());
+        for (int i = 0; i < observers.size(); i++) {
+            int index = i;
+            tasks.add(ForkJoinPool.commonPool().submit(() -> compute.apply(index)));
+        }
+        T[] results = newArray.apply(observers.size());
+        for (int i = 0; i < results.length; i++) {
+            results[i] = tasks.get(i).join();
+        }
+        return results;
+    }
+}
@@ -0,0 +1,495 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable implicit k-d tree over points of the plane, to find the points close to a position without scanning
+ * all of them
+ * <p>
+ * The points are reordered so that, in each range of the tree, the point in the middle splits the others by
+ * one of its coordinates (x on even depths, y on odd depths) : the ones before it are lower, the ones after it
+ * are greater. The small ranges are scanned.
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see ObservedSky#objectClosestTo(ch.epfl.rigel.coordinates.CartesianCoordinates, double)
+ */
+final class PlaneIndex {
+
+    // Greatest number of points of a range which is scanned instead of being split
+    private static final int LEAF_SIZE = 8;
+
+    // Coordinates of the points and their identifiers, in the order of the tree
+    private final double[] xs;
+    private final double[] ys;
+    private final int[] ids;
+
+    /**
+     * Constructor of the index of the given points, the ones with infinite or undefined coordinates being ignored
+     *
+     * @param positions the array {x0, y0, x1, y1, ...} of the coordinates of the points, the identifier of each
+     *                  point being its index in the array (half the index of its x-coordinate)
+     */
+    PlaneIndex(double[] positions) {
+        int count = 0;
+        for (int i = 0; i < positions.length; i += 2) {
+            if (Double.isFinite(positions[i]) && Double.isFinite(positions[i + 1])) {
+                count++;
+            }
+        }
+        xs = new double[count];
+        ys = new double[count];
+        ids = new int[count];
+        int k = 0;
+        for (int i = 0; i < positions.length; i += 2) {
+            if (Double.isFinite(positions[i]) && Double.isFinite(positions[i + 1])) {
+                xs[k] = positions[i];
+                ys[k] = positions[i + 1];
+                ids[k] = i / 2;
+                k++;
+            }
+        }
+        build(0, count, true);
+    }
+
+    /**
+     * Getter for the number of points
+     *
+     * @return the number of points of the index (with finite coordinates)
+     */
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Return the closest point to a position, strictly closer than a given distance
+     * (the one with the lowest identifier if several are at the same distance), without allocating anything
+     *
+     * @param x           the x-coordinate of the position
+     * @param y           the y-coordinate of the position
+     * @param maxDistance the distance
+     * @return the identifier of the closest point, or -1 if there is none strictly closer than maxDistance
+     */
+    int nearest(double x, double y, double maxDistance) {
+        return nearest(x, y, maxDistance, null);
+    }
+
+    /**
+     * Return the closest accepted point to a position, strictly closer than a given distance, the other points being
+     * skipped (to search only some ranges of identifiers without building another index)
+     *
+     * @param x           the x-coordinate of the position
+     * @param y           the y-coordinate of the position
+     * @param maxDistance the distance
+     * @param accepted    the test of the identifiers of the points which can be found, or null to accept all of them
+     * @return the identifier of the closest accepted point, or -1 if there is none strictly closer than maxDistance
+     * @see #nearest(double, double, double)
+     */
+    int nearest(double x, double y, double maxDistance, IntPredicate accepted) {
+        int best = nearest(0, ids.length, true, x, y, accepted, -1, maxDistance * maxDistance);
+        return best == -1 ? -1 : ids[best];
+    }
+
+    /**
+     * Return the points at most at a given distance of a position
+     *
+     * @param x      the x-coordinate of the position
+     * @param y      the y-coordinate of the position
+     * @param radius the distance
+     * @return the identifiers of the points at most at the distance radius of the position, in increasing order
+     */
+    int[] within(double x, double y, double radius) {
+        IdList found = new IdList();
+        if (radius >= 0) {
+            within(0, ids.length, true, x, y, radius, found);
+        }
+        int[] result = found.toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Return the k closest points to a position
+     *
+     * @param x the x-coordinate of the position
+     * @param y the y-coordinate of the position
+     * @param k the number of points
+     * @return the identifiers of the k closest points (or of all the points if there are less of them), by increasing
+     * distance (and increasing identifier for the points at the same distance)
+     * @throws IllegalArgumentException if k is negative
+     */
+    int[] kNearest(double x, double y, int k) {
+        Preconditions.checkArgument(k >= 0);
+        NearestHeap heap = new NearestHeap(Math.min(k, ids.length));
+        if (heap.capacity() > 0) {
+            nearest(0, ids.length, true, x, y, heap);
+        }
+        return heap.sortedIds();
+    }
+
+    /**
+     * Sort the points of a range into a tree
+     *
+     * @param from   the first position of the range
+     * @param to     the position following the last position of the range
+     * @param splitX whether the range is split by the x-coordinates
+     */
+    private void build(int from, int to, boolean splitX) {
+        if (to - from <= LEAF_SIZE) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        select(from, to, middle, splitX);
+        build(from, middle, !splitX);
+        build(middle + 1, to, !splitX);
+    }
+
+    /**
+     * Find the closest point to a position in a range of the tree
+     *
+     * @param from       the first position of the range
+     * @param to         the position following the last position of the range
+     * @param splitX     whether the range is split by the x-coordinates
+     * @param x          the x-coordinate of the position
+     * @param y          the y-coordinate of the position
+     * @param accepted   the test of the identifiers of the points which can be found, or null
+     * @param best       the position of the closest point found so far, or -1
+     * @param bestDistSq the square of the distance to beat (to the closest point found so far, if any)
+     * @return the position of the closest point found, or -1
+     */
+    private int nearest(int from, int to, boolean splitX, double x, double y, IntPredicate accepted, int best,
+                        double bestDistSq) {
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                double distSq = distanceSquared(i, x, y);
+                if ((distSq < bestDistSq || (distSq == bestDistSq && best != -1 && ids[i] < ids[best]))
+                        && (accepted == null || accepted.test(ids[i]))) {
+                    best = i;
+                    bestDistSq = distSq;
+                }
+            }
+            return best;
+        }
+
+        int middle = (from + to) >>> 1;
+        double distSq = distanceSquared(middle, x, y);
+        if ((distSq < bestDistSq || (distSq == bestDistSq && best != -1 && ids[middle] < ids[best]))
+                && (accepted == null || accepted.test(ids[middle]))) {
+            best = middle;
+            bestDistSq = distSq;
+        }
+        // the side containing the position is searched first, the other one only if it can contain a closer point
+        double delta = splitX ? x - xs[middle] : y - ys[middle];
+        boolean lowFirst = delta < 0;
+        best = lowFirst ? nearest(from, middle, !splitX, x, y, accepted, best, bestDistSq)
+                : nearest(middle + 1, to, !splitX, x, y, accepted, best, bestDistSq);
+        if (best != -1) {
+            bestDistSq = distanceSquared(best, x, y);
+        }
+        if (delta * delta <= bestDistSq) {
+            best = lowFirst ? nearest(middle + 1, to, !splitX, x, y, accepted, best, bestDistSq)
+                    : nearest(from, middle, !splitX, x, y, accepted, best, bestDistSq);
+        }
+        return best;
+    }
+
+    /**
+     * Add the points of a range of the tree at most at a given distance of a position
+     *
+     * @param from   the first position of the range
+     * @param to     the position following the last position of the range
+     * @param splitX whether the range is split by the x-coordinates
+     * @param x      the x-coordinate of the position
+     * @param y      the y-coordinate of the position
+     * @param radius the distance
+     * @param found  where to add the identifiers of the points
+     */
+    private void within(int from, int to, boolean splitX, double x, double y, double radius, IdList found) {
+        double radiusSq = radius * radius;
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                if (distanceSquared(i, x, y) <= radiusSq) {
+                    found.add(ids[i]);
+                }
+            }
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        if (distanceSquared(middle, x, y) <= radiusSq) {
+            found.add(ids[middle]);
+        }
+        double delta = splitX ? x - xs[middle] : y - ys[middle];
+        if (delta <= radius) {
+            within(from, middle, !splitX, x, y, radius, found);
+        }
+        if (delta >= -radius) {
+            within(middle + 1, to, !splitX, x, y, radius, found);
+        }
+    }
+
+    /**
+     * Add the points of a range of the tree to a heap of the closest points found, if they are closer
+     *
+     * @param from   the first position of the range
+     * @param to     the position following the last position of the range
+     * @param splitX whether the range is split by the x-coordinates
+     * @param x      the x-coordinate of the position
+     * @param y      the y-coordinate of the position
+     * @param heap   the closest points found so far
+     */
+    private void nearest(int from, int to, boolean splitX, double x, double y, NearestHeap heap) {
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                heap.offer(ids[i], distanceSquared(i, x, y));
+            }
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        heap.offer(ids[middle], distanceSquared(middle, x, y));
+        double delta = splitX ? x - xs[middle] : y - ys[middle];
+        boolean lowFirst = delta < 0;
+        if (lowFirst) {
+            nearest(from, middle, !splitX, x, y, heap);
+        } else {
+            nearest(middle + 1, to, !splitX, x, y, heap);
+        }
+        if (!heap.isFull() || delta * delta <= heap.worstDistanceSquared()) {
+            if (lowFirst) {
+                nearest(middle + 1, to, !splitX, x, y, heap);
+            } else {
+                nearest(from, middle, !splitX, x, y, heap);
+            }
+        }
+    }
+
+    /**
+     * Return the square of the distance between a point and a position
+     *
+     * @param i the position of the point in the tree
+     * @param x the x-coordinate of the position
+     * @param y the y-coordinate of the position
+     * @return the square of the distance between the point and the position
+     */
+    private double distanceSquared(int i, double x, double y) {
+        double dx = xs[i] - x;
+        double dy = ys[i] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Reorder a range of points so that the point at the given position is the one which would be there if the
+     * range were sorted, the points before it being lower and the ones after it greater (quickselect)
+     *
+     * @param from   the first position of the range
+     * @param to     the position following the last position of the range
+     * @param k      the position to select
+     * @param splitX whether the points are compared by their x-coordinates
+     */
+    private void select(int from, int to, int k, boolean splitX) {
+        double[] keys = splitX ? xs : ys;
+        int low = from;
+        int high = to - 1;
+        while (low < high) {
+            // median of three as pivot, so that sorted inputs stay linear
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < keys[low]) swap(middle, low);
+            if (keys[high] < keys[low]) swap(high, low);
+            if (keys[high] < keys[middle]) swap(high, middle);
+            double pivot = keys[middle];
+
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Swap two points of the tree
+     *
+     * @param i the position of the first point
+     * @param j the position of the second point
+     */
+    private void swap(int i, int j) {
+        double x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        double y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+
+    /**
+     * Growable list of identifiers, without boxing
+     */
+    private static final class IdList {
+        private int[] values = new int[16];
+        private int size = 0;
+
+        /**
+         * Add an identifier
+         *
+         * @param id the identifier
+         */
+        void add(int id) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = id;
+        }
+
+        /**
+         * Return the identifiers as an array
+         *
+         * @return the identifiers added, in their order
+         */
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Bounded max-heap of the closest points found, ordered by distance then by identifier
+     */
+    private static final class NearestHeap {
+        private final int[] heapIds;
+        private final double[] heapDistSq;
+        private int size = 0;
+
+        /**
+         * Constructor of an empty heap
+         *
+         * @param capacity the greatest number of points kept
+         */
+        NearestHeap(int capacity) {
+            heapIds = new int[capacity];
+            heapDistSq = new double[capacity];
+        }
+
+        /**
+         * Getter for the capacity
+         *
+         * @return the greatest number of points kept
+         */
+        int capacity() {
+            return heapIds.length;
+        }
+
+        /**
+         * Check if the heap is full
+         *
+         * @return {@code true} if and only if the heap contains as many points as its capacity
+         */
+        boolean isFull() {
+            return size == heapIds.length;
+        }
+
+        /**
+         * Getter for the distance of the farthest point kept
+         *
+         * @return the square of the distance of the farthest point kept (the heap mustn't be empty)
+         */
+        double worstDistanceSquared() {
+            return heapDistSq[0];
+        }
+
+        /**
+         * Add a point if the heap isn't full or if it is closer than the farthest point kept, which is then removed
+         *
+         * @param id     the identifier of the point
+         * @param distSq the square of the distance of the point
+         */
+        void offer(int id, double distSq) {
+            if (!isFull()) {
+                // sift up
+                int i = size++;
+                while (i > 0 && greater(id, distSq, (i - 1) / 2)) {
+                    heapIds[i] = heapIds[(i - 1) / 2];
+                    heapDistSq[i] = heapDistSq[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                heapIds[i] = id;
+                heapDistSq[i] = distSq;
+            } else if (size > 0 && !greater(id, distSq, 0)) {
+                siftDown(id, distSq, size);
+            }
+        }
+
+        /**
+         * Return the identifiers of the points kept, emptying the heap
+         *
+         * @return the identifiers of the points kept, by increasing distance then increasing identifier
+         */
+        int[] sortedIds() {
+            int[] sorted = new int[size];
+            while (size > 0) {
+                int last = --size;
+                sorted[last] = heapIds[0];
+                siftDown(heapIds[last], heapDistSq[last], last);
+            }
+            return sorted;
+        }
+
+        /**
+         * Put a point at the root of the heap and move it down to its place among the first points
+         *
+         * @param id     the identifier of the point
+         * @param distSq the square of the distance of the point
+         * @param count  the number of points of the heap
+         */
+        private void siftDown(int id, double distSq, int count) {
+            int i = 0;
+            while (2 * i + 1 < count) {
+                int child = 2 * i + 1;
+                if (child + 1 < count && greater(heapIds[child + 1], heapDistSq[child + 1], child)) {
+                    child++;
+                }
+                if (greater(id, distSq, child)) {
+                    break;
+                }
+                heapIds[i] = heapIds[child];
+                heapDistSq[i] = heapDistSq[child];
+                i = child;
+            }
+            if (count > 0) {
+                heapIds[i] = id;
+                heapDistSq[i] = distSq;
+            }
+        }
+
+        /**
+         * Compare a point with a point of the heap
+         *
+         * @param id     the identifier of the point
+         * @param distSq the square of the distance of the point
+         * @param i      the position of the point of the heap
+         * @return {@code true} if and only if the point is farther than the point of the heap
+         * (or at the same distance with a greater identifier)
+         */
+        private boolean greater(int id, double distSq, int i) {
+            return distSq > heapDistSq[i] || (distSq == heapDistSq[i] && id > heapIds[i]);
+        }
+    }
+}
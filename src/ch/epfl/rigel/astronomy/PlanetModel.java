@@ -1,5 +1,6 @@
 package ch.epfl.rigel.astronomy;
 
+import ch.epfl.rigel.Preconditions;
 import ch.epfl.rigel.coordinates.EclipticCoordinates;
 import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
 import ch.epfl.rigel.math.Angle;
@@ -12,7 +13,7 @@ import java.util.List;
  * @author Bastien Faivre (310929)
  * @author Kamil Mellouk (312327)
  */
-public enum PlanetModel implements CelestialObjectModel<Planet> {
+public enum PlanetModel implements SingleObjectModel<Planet> {
 
     MERCURY("Mercury", 0.24085, 75.5671, 77.612, 0.205627,
             0.387098, 7.0051, 48.449, 6.74, -0.42),
@@ -79,6 +80,15 @@ public enum PlanetModel implements CelestialObjectModel<Planet> {
         this.magnitudeAtOneAU = magnitudeAtOneAU;
     }
 
+    /**
+     * Getter for the name of the planet
+     *
+     * @return the name of the planet
+     */
+    String planetName() {
+        return name;
+    }
+
     /**
      * Compute the model of the planet
      *
@@ -88,9 +98,31 @@ public enum PlanetModel implements CelestialObjectModel<Planet> {
      */
     @Override
     public Planet at(double daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion) {
-        double realAnomaly = realAnomaly(this, daysSinceJ2010);
-        double distanceToSun = (halfAxisOrbit * (1 - orbitEccentricity * orbitEccentricity)) / (1 + orbitEccentricity * Math.cos(realAnomaly));
-        double heliocentricLon = realAnomaly + lonAtPerigee;
+        double earthRealAnomaly = EARTH.realAnomaly(daysSinceJ2010);
+        double[] terms = new double[4];
+        eclipticTerms(daysSinceJ2010, EARTH.distanceToSun(earthRealAnomaly), EARTH.heliocentricLon(earthRealAnomaly), terms);
+
+        return new Planet(
+                name,
+                eclipticToEquatorialConversion.apply(EclipticCoordinates.of(terms[0], terms[1])),
+                (float) terms[2],
+                (float) terms[3]);
+    }
+
+    /**
+     * Compute the position, the angular size and the magnitude of the planet, given the terms of the earth at the
+     * same time (so that they are computed once for all the planets)
+     *
+     * @param daysSinceJ2010       days since Epoch.J2010 (positive or negative)
+     * @param distanceEarthSun     the distance between the earth and the sun
+     * @param earthHeliocentricLon the heliocentric longitude of the earth
+     * @param out                  where to write the geocentric ecliptic longitude (in [0, 2*PI[) and latitude, the
+     *                             angular size and the magnitude of the planet, in this order
+     */
+    void eclipticTerms(double daysSinceJ2010, double distanceEarthSun, double earthHeliocentricLon, double[] out) {
+        double realAnomaly = realAnomaly(daysSinceJ2010);
+        double distanceToSun = distanceToSun(realAnomaly);
+        double heliocentricLon = heliocentricLon(realAnomaly);
 
         // compute an intermediate value for the performances
         double firstIntermediateValue = Math.sin(heliocentricLon - ascendingNodeLon);
@@ -102,10 +134,6 @@ public enum PlanetModel implements CelestialObjectModel<Planet> {
         double projectedRadiusOnEcliptic = distanceToSun * cosHelEclLat;
         double heliocentricEclipticLon = Math.atan2(firstIntermediateValue * Math.cos(orbitInclinationAtEcliptic), Math.cos(heliocentricLon - ascendingNodeLon)) + ascendingNodeLon;
 
-        double earthRealAnomaly = realAnomaly(PlanetModel.EARTH, daysSinceJ2010);
-        double distanceEarthSun = (PlanetModel.EARTH.halfAxisOrbit * (1 - PlanetModel.EARTH.orbitEccentricity * PlanetModel.EARTH.orbitEccentricity)) / (1 + PlanetModel.EARTH.orbitEccentricity * Math.cos(earthRealAnomaly));
-        double earthHeliocentricLon = earthRealAnomaly + PlanetModel.EARTH.lonAtPerigee;
-
         // compute an intermediate value for performances
         double secondIntermediateValue = distanceEarthSun * Math.sin(heliocentricEclipticLon - earthHeliocentricLon);
 
@@ -118,30 +146,79 @@ public enum PlanetModel implements CelestialObjectModel<Planet> {
         }
 
         double geocentricEclipticLat = Math.atan((projectedRadiusOnEcliptic * Math.tan(heliocentricEclipticLat) * Math.sin(geocentricEclipticLon - heliocentricEclipticLon)) / secondIntermediateValue);
-        EclipticCoordinates geocentricEclipticCoordinates = EclipticCoordinates.of(Angle.normalizePositive(geocentricEclipticLon), geocentricEclipticLat);
 
         double distanceEarthPlanet = Math.sqrt(distanceEarthSun * distanceEarthSun + distanceToSun * distanceToSun - 2 * distanceToSun * distanceEarthSun * Math.cos(heliocentricLon - earthHeliocentricLon) * cosHelEclLat);
-        double angularSize = angularSizeAtOneAU / distanceEarthPlanet;
         double phase = (1 + Math.cos(geocentricEclipticLon - heliocentricLon)) / 2;
-        double magnitude = magnitudeAtOneAU + 5 * Math.log10(distanceToSun * distanceEarthPlanet / Math.sqrt(phase));
 
-        return new Planet(
-                name,
-                eclipticToEquatorialConversion.apply(geocentricEclipticCoordinates),
-                (float) angularSize,
-                (float) magnitude);
+        out[0] = Angle.normalizePositive(geocentricEclipticLon);
+        out[1] = geocentricEclipticLat;
+        out[2] = angularSizeAtOneAU / distanceEarthPlanet;
+        out[3] = magnitudeAtOneAU + 5 * Math.log10(distanceToSun * distanceEarthPlanet / Math.sqrt(phase));
     }
 
     /**
-     * Compute the real anomaly of the given planet
+     * Compute the real anomaly of the planet
      *
-     * @param planetModel    the given planet
      * @param daysSinceJ2010 the number of days since J2010
-     * @return the real anomaly of the given planet
+     * @return the real anomaly of the planet
      */
-    private double realAnomaly(PlanetModel planetModel, double daysSinceJ2010) {
-        double meanAnomaly = TAU_OVER_DAYS_PER_YEAR * (daysSinceJ2010 / planetModel.revolutionPeriod) + planetModel.lonAtJ2010 - planetModel.lonAtPerigee;
-        return meanAnomaly + 2 * planetModel.orbitEccentricity * Math.sin(meanAnomaly);
+    double realAnomaly(double daysSinceJ2010) {
+        double meanAnomaly = TAU_OVER_DAYS_PER_YEAR * (daysSinceJ2010 / revolutionPeriod) + lonAtJ2010 - lonAtPerigee;
+        return meanAnomaly + 2 * orbitEccentricity * Math.sin(meanAnomaly);
+    }
+
+    /**
+     * Compute the distance between the planet and the sun
+     *
+     * @param realAnomaly the real anomaly of the planet
+     * @return the distance between the planet and the sun, in AU
+     */
+    double distanceToSun(double realAnomaly) {
+        return (halfAxisOrbit * (1 - orbitEccentricity * orbitEccentricity)) / (1 + orbitEccentricity * Math.cos(realAnomaly));
+    }
+
+    /**
+     * Compute the heliocentric longitude of the planet
+     *
+     * @param realAnomaly the real anomaly of the planet
+     * @return the heliocentric longitude of the planet (not normalized)
+     */
+    double heliocentricLon(double realAnomaly) {
+        return realAnomaly + lonAtPerigee;
+    }
+
+    /**
+     * Compute the model at a range of instants with the same conversion, writing the results into arrays without
+     * creating any object
+     *
+     * @param daysSinceJ2010                 the instants, in days since Epoch.J2010 (positive or negative)
+     * @param eclipticToEquatorialConversion conversion of the objects' coordinates
+     * @param outRa                          where to write the right ascensions, in rad
+     * @param outDec                         where to write the declinations, in rad
+     * @param outAngularSizes                where to write the angular sizes, in rad
+     * @param outMagnitudes                  where to write the magnitudes
+     * @param from                           the first index of the range
+     * @param to                             the index following the last index of the range
+     * @throws IllegalArgumentException if the range isn't contained in the arrays
+     */
+    @Override
+    public void atBatch(double[] daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion,
+                        double[] outRa, double[] outDec, double[] outAngularSizes, double[] outMagnitudes,
+                        int from, int to) {
+        Preconditions.checkArgument(to <= daysSinceJ2010.length);
+        Preconditions.checkBatchRange(from, to, outRa, outDec, outAngularSizes, outMagnitudes);
+        double[] terms = new double[4];
+        for (int i = from; i < to; i++) {
+            double days = daysSinceJ2010[i];
+            double earthRealAnomaly = EARTH.realAnomaly(days);
+            eclipticTerms(days, EARTH.distanceToSun(earthRealAnomaly), EARTH.heliocentricLon(earthRealAnomaly), terms);
+            outRa[i] = terms[0];
+            outDec[i] = terms[1];
+            outAngularSizes[i] = terms[2];
+            outMagnitudes[i] = terms[3];
+        }
+        // the ecliptic coordinates are converted in place
+        eclipticToEquatorialConversion.applyBatch(outRa, outDec, outRa, outDec, from, to);
     }
 
 }
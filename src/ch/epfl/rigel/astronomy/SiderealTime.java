@@ -4,12 +4,8 @@ import ch.epfl.rigel.coordinates.GeographicCoordinates;
 import ch.epfl.rigel.math.Angle;
 import ch.epfl.rigel.math.Polynomial;
 
-import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 
-import static java.time.temporal.ChronoUnit.DAYS;
-import static java.time.temporal.ChronoUnit.MILLIS;
-
 /**
  * Representing sidereal time with some methods (not instanciable class)
  *
@@ -21,8 +17,9 @@ public final class SiderealTime {
     // Polynomials used to compute the sidereal time
     private static final Polynomial S0_POLYNOMIAL = Polynomial.of(0.000025862, 2400.051336, 6.697374558);
     private static final Polynomial S1_POLYNOMIAL = Polynomial.of(1.002737909, 0);
-    // Number of milliseconds in an hour
+    // Number of milliseconds in an hour, then in a day
     private static final double MILLISECONDS_PER_HOUR = 3_600_000;
+    private static final long MILLISECONDS_PER_DAY = 86_400_000;
 
     /**
      * Private default constructor
@@ -38,11 +35,21 @@ public final class SiderealTime {
      * @return sidereal time (in rad) of this point of observation, with respect to greenwich and J2000
      */
     public static double greenwich(ZonedDateTime when) {
-        ZonedDateTime whenInUTC = when.withZoneSameInstant(ZoneOffset.UTC);
-        ZonedDateTime whenInUTCTruncatedToDays = whenInUTC.truncatedTo(DAYS);
+        return greenwich(when.toInstant().toEpochMilli());
+    }
+
+    /**
+     * Compute the sidereal time with respect to greenwich and J2000, without handling any time zone
+     *
+     * @param epochMillis instant of observation, in milliseconds since 01.01.1970 0am UTC
+     * @return sidereal time (in rad) of this point of observation, with respect to greenwich and J2000
+     */
+    public static double greenwich(long epochMillis) {
+        // the days start at 0am UTC, as the epoch milliseconds
+        long dayStartMillis = Math.floorDiv(epochMillis, MILLISECONDS_PER_DAY) * MILLISECONDS_PER_DAY;
 
-        double T = Epoch.J2000.julianCenturiesUntil(whenInUTCTruncatedToDays);
-        double t = whenInUTCTruncatedToDays.until(whenInUTC, MILLIS) / MILLISECONDS_PER_HOUR;
+        double T = Epoch.J2000.julianCenturiesUntil(dayStartMillis);
+        double t = (epochMillis - dayStartMillis) / MILLISECONDS_PER_HOUR;
         double s0 = S0_POLYNOMIAL.at(T);
         double s1 = S1_POLYNOMIAL.at(t);
 
@@ -57,7 +64,18 @@ public final class SiderealTime {
      * @return sidereal time of this point of observation, with respect to the given position and J2000
      */
     public static double local(ZonedDateTime when, GeographicCoordinates where) {
-        return Angle.normalizePositive(greenwich(when) + where.lon());
+        return local(when.toInstant().toEpochMilli(), where);
+    }
+
+    /**
+     * Compute the sidereal time with respect to a given position and J2000, without handling any time zone
+     *
+     * @param epochMillis instant of observation, in milliseconds since 01.01.1970 0am UTC
+     * @param where       position of observation
+     * @return sidereal time of this point of observation, with respect to the given position and J2000
+     */
+    public static double local(long epochMillis, GeographicCoordinates where) {
+        return Angle.normalizePositive(greenwich(epochMillis) + where.lon());
     }
 
 }
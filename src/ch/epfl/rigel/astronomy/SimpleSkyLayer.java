@@ -0,0 +1,54 @@
+package ch.epfl.rigel.astronomy;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Layer whose objects and positions in a sky are given by functions of the sky
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see SkyLayer#of(String, CelestialObjectModel)
+ */
+final class SimpleSkyLayer implements SkyLayer {
+
+    private final String name;
+    private final Function<ObservedSky, List<? extends CelestialObject>> objects;
+    private final BiFunction<ObservedSky, List<? extends CelestialObject>, double[]> positions;
+
+    /**
+     * Constructor of a layer
+     *
+     * @param name      the name of the layer
+     * @param objects   the function giving the objects of the layer in a sky
+     * @param positions the function giving the positions of the objects of the layer on the plane of a sky
+     */
+    SimpleSkyLayer(String name, Function<ObservedSky, List<? extends CelestialObject>> objects,
+                   BiFunction<ObservedSky, List<? extends CelestialObject>, double[]> positions) {
+        this.name = Objects.requireNonNull(name);
+        this.objects = objects;
+        this.positions = positions;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public List<? extends CelestialObject> objectsIn(ObservedSky sky) {
+        return objects.apply(sky);
+    }
+
+    @Override
+    public double[] positionsIn(ObservedSky sky, List<? extends CelestialObject> objects) {
+        return positions.apply(sky, objects);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,80 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+
+/**
+ * Mathematical model for the position of a single CelestialObject, which can also be computed at many instants at
+ * once
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see SunModel
+ * @see MoonModel
+ * @see PlanetModel
+ */
+public interface SingleObjectModel<O extends CelestialObject> extends CelestialObjectModel<O> {
+
+    /**
+     * Compute the model at a range of instants, writing the results into arrays instead of creating objects
+     * <p>
+     * The conversion from ecliptic to equatorial coordinates is computed once for each run of consecutive instants
+     * less than a day after the first one of the run, the obliquity of the ecliptic changing by about a
+     * thousandth of an arcsecond a day.
+     *
+     * @param daysSinceJ2010  the instants, in days since Epoch.J2010 (positive or negative)
+     * @param outRa           where to write the right ascensions, in rad
+     * @param outDec          where to write the declinations, in rad
+     * @param outAngularSizes where to write the angular sizes, in rad
+     * @param outMagnitudes   where to write the magnitudes
+     * @param from            the first index of the range
+     * @param to              the index following the last index of the range
+     * @throws IllegalArgumentException if the range isn't contained in the arrays
+     */
+    default void atBatch(double[] daysSinceJ2010, double[] outRa, double[] outDec, double[] outAngularSizes,
+                         double[] outMagnitudes, int from, int to) {
+        Preconditions.checkArgument(to <= daysSinceJ2010.length);
+        Preconditions.checkBatchRange(from, to, outRa, outDec, outAngularSizes, outMagnitudes);
+        int runFrom = from;
+        while (runFrom < to) {
+            double runStart = daysSinceJ2010[runFrom];
+            int runTo = runFrom + 1;
+            while (runTo < to && Math.abs(daysSinceJ2010[runTo] - runStart) < 1) {
+                runTo++;
+            }
+            EclipticToEquatorialConversion conversion = new EclipticToEquatorialConversion(Epoch.J2010.epochMillisPlusDays(runStart));
+            atBatch(daysSinceJ2010, conversion, outRa, outDec, outAngularSizes, outMagnitudes, runFrom, runTo);
+            runFrom = runTo;
+        }
+    }
+
+    /**
+     * Compute the model at a range of instants with the same conversion, writing the results into arrays
+     * <p>
+     * By default, the objects are computed then their values copied : the models override it to compute the values
+     * without creating any object.
+     *
+     * @param daysSinceJ2010                 the instants, in days since Epoch.J2010 (positive or negative)
+     * @param eclipticToEquatorialConversion conversion of the objects' coordinates
+     * @param outRa                          where to write the right ascensions, in rad
+     * @param outDec                         where to write the declinations, in rad
+     * @param outAngularSizes                where to write the angular sizes, in rad
+     * @param outMagnitudes                  where to write the magnitudes
+     * @param from                           the first index of the range
+     * @param to                             the index following the last index of the range
+     * @throws IllegalArgumentException if the range isn't contained in the arrays
+     */
+    default void atBatch(double[] daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion,
+                         double[] outRa, double[] outDec, double[] outAngularSizes, double[] outMagnitudes,
+                         int from, int to) {
+        Preconditions.checkArgument(to <= daysSinceJ2010.length);
+        Preconditions.checkBatchRange(from, to, outRa, outDec, outAngularSizes, outMagnitudes);
+        for (int i = from; i < to; i++) {
+            O object = at(daysSinceJ2010[i], eclipticToEquatorialConversion);
+            outRa[i] = object.equatorialPos().ra();
+            outDec[i] = object.equatorialPos().dec();
+            outAngularSizes[i] = object.angularSize();
+            outMagnitudes[i] = object.magnitude();
+        }
+    }
+}
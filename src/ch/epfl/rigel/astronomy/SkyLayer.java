@@ -0,0 +1,81 @@
+package ch.epfl.rigel.astronomy;
+
+import java.util.List;
+
+/**
+ * Source of celestial objects of the observed skies : the stars, the planets, the sun and the moon, and any other
+ * source registered with them (deep-sky objects, minor planets, satellites...)
+ * <p>
+ * A layer gives its objects (with their equatorial positions) in a sky, which projects them and keeps their positions
+ * in a single buffer with those of the other layers, where the objects of the layer start at its offset. The skies are
+ * searched and drawn by layer, so that adding a source only needs to register a layer.
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see ObservedSky#withLayers(List)
+ * @see ObservedSky#offsetOf(SkyLayer)
+ */
+public interface SkyLayer {
+
+    /**
+     * Layer of the stars of the sky (the stars of the catalogue bright enough and those of the asterisms), projected
+     * together from the columns of the catalogue
+     */
+    SkyLayer STARS = new SimpleSkyLayer("Stars", ObservedSky::stars, (sky, stars) -> sky.starPositions());
+    /**
+     * Layer of the 7 extraterrestrial planets
+     */
+    SkyLayer PLANETS = new SimpleSkyLayer("Planets", ObservedSky::planets, ObservedSky::project);
+    /**
+     * Layer of the sun
+     */
+    SkyLayer SUN = new SimpleSkyLayer("Sun", sky -> List.of(sky.sun()), ObservedSky::project);
+    /**
+     * Layer of the moon
+     */
+    SkyLayer MOON = new SimpleSkyLayer("Moon", sky -> List.of(sky.moon()), ObservedSky::project);
+    /**
+     * Layers of every sky, in the order in which they are drawn (so that the sun and the moon are over the planets)
+     */
+    List<SkyLayer> BUILT_IN = List.of(STARS, PLANETS, SUN, MOON);
+
+    /**
+     * Return the layer of the objects given by a model at the observation time of the skies
+     *
+     * @param name  the name of the layer
+     * @param model the model of the objects of the layer
+     * @return the layer of the objects of the model
+     */
+    static SkyLayer of(String name, CelestialObjectModel<? extends List<? extends CelestialObject>> model) {
+        return new SimpleSkyLayer(name, sky -> model.at(sky.daysFromJ2010(), sky.eclToEquConversion()),
+                ObservedSky::project);
+    }
+
+    /**
+     * Getter for the name of the layer
+     *
+     * @return the name of the layer
+     */
+    String name();
+
+    /**
+     * Compute the objects of the layer observed in a sky
+     *
+     * @param sky the sky
+     * @return the objects of the layer in the sky
+     */
+    List<? extends CelestialObject> objectsIn(ObservedSky sky);
+
+    /**
+     * Compute the positions of the objects of the layer on the plane of a sky, which projects their equatorial
+     * positions by default
+     *
+     * @param sky     the sky
+     * @param objects the objects of the layer in the sky
+     * @return the array {x0, y0, x1, y1, ...} of the coordinates of the objects, in their order
+     * @see ObservedSky#project(List)
+     */
+    default double[] positionsIn(ObservedSky sky, List<? extends CelestialObject> objects) {
+        return sky.project(objects);
+    }
+}
@@ -0,0 +1,159 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * The sun, the moon and the planets (except the earth) at a given time, whose equatorial positions don't depend on
+ * the observer, so that they can be shared by the skies observed at the same time from different places
+ * <p>
+ * The objects are only computed the first time one of them is needed, all together by a single evaluator sharing
+ * their intermediate terms, so that the skies showing none of them don't pay for them. The solar system can be
+ * shared by several threads.
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see ObservedSky
+ */
+public final class SolarSystem {
+
+    private final double daysFromJ2010;
+    private final EclipticToEquatorialConversion eclToEquConversion;
+    // Cache interpolating the objects, or null to evaluate their models
+    private final EphemerisCache ephemerides;
+    // Computed when first needed
+    private volatile SolarSystemEvaluator evaluator;
+    private volatile Sun sun;
+    private volatile Moon moon;
+    private volatile List<Planet> planets;
+
+    /**
+     * Constructor of the solar system at a given time
+     *
+     * @param when the zoned date time
+     */
+    public SolarSystem(ZonedDateTime when) {
+        this(when.toInstant().toEpochMilli(), null);
+    }
+
+    /**
+     * Constructor of the solar system at a given instant, without handling any time zone
+     *
+     * @param epochMillis the instant, in milliseconds since 01.01.1970 0am UTC
+     */
+    public SolarSystem(long epochMillis) {
+        this(epochMillis, null);
+    }
+
+    /**
+     * Constructor of the solar system at a given instant, interpolated by a cache of ephemerides
+     *
+     * @param epochMillis the instant, in milliseconds since 01.01.1970 0am UTC
+     * @param ephemerides the cache interpolating the objects, or null to evaluate their models
+     */
+    SolarSystem(long epochMillis, EphemerisCache ephemerides) {
+        eclToEquConversion = new EclipticToEquatorialConversion(epochMillis);
+        daysFromJ2010 = Epoch.J2010.daysUntil(epochMillis);
+        this.ephemerides = ephemerides;
+    }
+
+    /**
+     * Getter for the time of the solar system
+     *
+     * @return the number of days from J2010 until the time of the solar system
+     */
+    public double daysFromJ2010() {
+        return daysFromJ2010;
+    }
+
+    /**
+     * Getter for the conversion from ecliptic to equatorial coordinates at the time of the solar system, to compute
+     * other objects at the same time
+     *
+     * @return the conversion from ecliptic to equatorial coordinates
+     */
+    EclipticToEquatorialConversion eclToEquConversion() {
+        return eclToEquConversion;
+    }
+
+    /**
+     * Getter for the evaluator of the sun, the moon and the planets, computing (or interpolating) them all when
+     * first called
+     *
+     * @return the evaluator at the time of the solar system
+     */
+    SolarSystemEvaluator evaluator() {
+        SolarSystemEvaluator evaluator = this.evaluator;
+        if (evaluator == null) {
+            synchronized (this) {
+                evaluator = this.evaluator;
+                if (evaluator == null) {
+                    evaluator = ephemerides == null ?
+                            new SolarSystemEvaluator(daysFromJ2010, eclToEquConversion) :
+                            ephemerides.evaluatorAt(daysFromJ2010, eclToEquConversion);
+                    this.evaluator = evaluator;
+                }
+            }
+        }
+        return evaluator;
+    }
+
+    /**
+     * Getter for the sun
+     *
+     * @return the sun
+     */
+    public Sun sun() {
+        Sun sun = this.sun;
+        if (sun == null) {
+            synchronized (this) {
+                sun = this.sun;
+                if (sun == null) {
+                    sun = evaluator().sun();
+                    this.sun = sun;
+                }
+            }
+        }
+        return sun;
+    }
+
+    /**
+     * Getter for the moon
+     *
+     * @return the moon
+     */
+    public Moon moon() {
+        Moon moon = this.moon;
+        if (moon == null) {
+            synchronized (this) {
+                moon = this.moon;
+                if (moon == null) {
+                    moon = evaluator().moon();
+                    this.moon = moon;
+                }
+            }
+        }
+        return moon;
+    }
+
+    /**
+     * Getter for the 7 extraterrestrial planets
+     *
+     * @return the unmodifiable list of the 7 extraterrestrial planets, in the order of their models
+     */
+    public List<Planet> planets() {
+        List<Planet> planets = this.planets;
+        if (planets == null) {
+            synchronized (this) {
+                planets = this.planets;
+                if (planets == null) {
+                    planets = evaluator().planets();
+                    this.planets = planets;
+                }
+            }
+        }
+        return planets;
+    }
+}
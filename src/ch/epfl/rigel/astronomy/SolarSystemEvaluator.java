@@ -0,0 +1,260 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.EclipticCoordinates;
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Evaluation in a single pass of the sun, the moon and the 7 extraterrestrial planets at a given time
+ * <p>
+ * The terms shared by the models (the anomalies of the sun, the distance of the earth to the sun and its
+ * heliocentric longitude) are computed once, instead of once for each model using them, and the results are kept in
+ * primitive arrays. The bodies are in the order of the sun, the moon, then the planets in the order of their models.
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see SunModel
+ * @see MoonModel
+ * @see PlanetModel
+ */
+public final class SolarSystemEvaluator {
+
+    // Number of bodies evaluated : the sun, the moon and the 7 extraterrestrial planets
+    public static final int BODY_COUNT = 9;
+    // Index of the first planet in the arrays of the bodies
+    private static final int FIRST_PLANET_INDEX = 2;
+    // Models of the extraterrestrial planets, in the order of their models
+    private static final List<PlanetModel> PLANET_MODELS = List.of(PlanetModel.MERCURY, PlanetModel.VENUS,
+            PlanetModel.MARS, PlanetModel.JUPITER, PlanetModel.SATURN, PlanetModel.URANUS, PlanetModel.NEPTUNE);
+
+    private final double sunMeanAnomaly;
+    private final double sunEclipticLon;
+    private final double moonPhase;
+    // Terms of the bodies, in the order of the bodies
+    private final double[] ra = new double[BODY_COUNT];
+    private final double[] dec = new double[BODY_COUNT];
+    private final double[] angularSizes = new double[BODY_COUNT];
+    private final double[] magnitudes = new double[BODY_COUNT];
+
+    /**
+     * Constructor of the evaluator, computing all the bodies at the given time
+     *
+     * @param daysSinceJ2010                 days since Epoch.J2010 (positive or negative)
+     * @param eclipticToEquatorialConversion conversion of the bodies' coordinates
+     */
+    public SolarSystemEvaluator(double daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion) {
+        SharedTerms shared = new SharedTerms(daysSinceJ2010);
+        sunMeanAnomaly = shared.sunMeanAnomaly;
+        sunEclipticLon = shared.sunEclipticLon;
+        double[] terms = new double[4];
+        for (int body = 0; body < BODY_COUNT; body++) {
+            writeEclipticTerms(body, shared, terms, ra, dec, angularSizes, magnitudes);
+        }
+        // the phase of the moon was written in place of its magnitude, which is 0
+        moonPhase = magnitudes[1];
+        magnitudes[1] = 0;
+
+        // the ecliptic coordinates are converted in place
+        eclipticToEquatorialConversion.applyBatch(ra, dec, ra, dec, 0, BODY_COUNT);
+    }
+
+    /**
+     * Constructor of an evaluator with bodies already computed (for instance interpolated)
+     *
+     * @param sunMeanAnomaly the mean anomaly of the sun
+     * @param sunEclipticLon the geocentric ecliptic longitude of the sun, in [0, 2*PI[
+     * @param moonPhase      the phase of the moon, in [0, 1]
+     * @param ra             the right ascensions of the bodies, in [0, 2*PI[ (copied)
+     * @param dec            the declinations of the bodies, in [-PI/2, PI/2] (copied)
+     * @param angularSizes   the angular sizes of the bodies (copied)
+     * @param magnitudes     the magnitudes of the bodies (copied)
+     */
+    SolarSystemEvaluator(double sunMeanAnomaly, double sunEclipticLon, double moonPhase, double[] ra, double[] dec,
+                         double[] angularSizes, double[] magnitudes) {
+        this.sunMeanAnomaly = sunMeanAnomaly;
+        this.sunEclipticLon = sunEclipticLon;
+        this.moonPhase = moonPhase;
+        System.arraycopy(ra, 0, this.ra, 0, BODY_COUNT);
+        System.arraycopy(dec, 0, this.dec, 0, BODY_COUNT);
+        System.arraycopy(angularSizes, 0, this.angularSizes, 0, BODY_COUNT);
+        System.arraycopy(magnitudes, 0, this.magnitudes, 0, BODY_COUNT);
+    }
+
+    /**
+     * Evaluate a single body with the terms shared by the models at an instant, the phase of the moon being written
+     * in place of its magnitude
+     *
+     * @param body                           the index of the body
+     * @param shared                         the terms shared by the models at the instant
+     * @param eclipticToEquatorialConversion conversion of the body's coordinates
+     * @param terms                          an array of 4 elements where to write the terms of the body computed
+     *                                       by its model
+     * @param outRa                          where to write the right ascension, at the index of the body
+     * @param outDec                         where to write the declination, at the index of the body
+     * @param outAngularSizes                where to write the angular size, at the index of the body
+     * @param outMagnitudes                  where to write the magnitude (the phase for the moon), at the index of
+     *                                       the body
+     */
+    static void evaluateBody(int body, SharedTerms shared, EclipticToEquatorialConversion eclipticToEquatorialConversion,
+                             double[] terms, double[] outRa, double[] outDec, double[] outAngularSizes,
+                             double[] outMagnitudes) {
+        writeEclipticTerms(body, shared, terms, outRa, outDec, outAngularSizes, outMagnitudes);
+        // the ecliptic coordinates are converted in place
+        eclipticToEquatorialConversion.applyBatch(outRa, outDec, outRa, outDec, body, body + 1);
+    }
+
+    /**
+     * Evaluate a single body with the terms shared by the models at an instant, writing its ecliptic coordinates in
+     * place of its equatorial ones and the phase of the moon in place of its magnitude
+     *
+     * @param body            the index of the body
+     * @param shared          the terms shared by the models at the instant
+     * @param terms           an array of 4 elements where to write the terms of the body computed by its model
+     * @param outLons         where to write the ecliptic longitude, at the index of the body
+     * @param outLats         where to write the ecliptic latitude, at the index of the body
+     * @param outAngularSizes where to write the angular size, at the index of the body
+     * @param outMagnitudes   where to write the magnitude (the phase for the moon), at the index of the body
+     */
+    private static void writeEclipticTerms(int body, SharedTerms shared, double[] terms, double[] outLons,
+                                           double[] outLats, double[] outAngularSizes, double[] outMagnitudes) {
+        Preconditions.checkArgument(0 <= body && body < BODY_COUNT);
+        if (body == 0) {
+            terms[0] = shared.sunEclipticLon;
+            terms[1] = 0;
+            terms[2] = SunModel.angularSize(shared.sunRealAnomaly);
+            terms[3] = Sun.MAGNITUDE;
+        } else if (body == 1) {
+            MoonModel.MOON.eclipticTerms(shared.daysSinceJ2010, shared.sunMeanAnomaly, shared.sunEclipticLon, terms);
+        } else {
+            PLANET_MODELS.get(body - FIRST_PLANET_INDEX).eclipticTerms(shared.daysSinceJ2010,
+                    shared.distanceEarthSun, shared.earthHeliocentricLon, terms);
+        }
+        outLons[body] = terms[0];
+        outLats[body] = terms[1];
+        outAngularSizes[body] = terms[2];
+        outMagnitudes[body] = terms[3];
+    }
+
+    /**
+     * Write the equatorial positions, the angular sizes and the magnitudes of the bodies into the given arrays,
+     * in the order of the bodies
+     *
+     * @param outRa           where to write the right ascensions, in rad
+     * @param outDec          where to write the declinations, in rad
+     * @param outAngularSizes where to write the angular sizes, in rad
+     * @param outMagnitudes   where to write the magnitudes
+     * @param from            the index of the arrays where to write the first body
+     * @throws IllegalArgumentException if the arrays can't contain all the bodies from the given index
+     */
+    public void writeTo(double[] outRa, double[] outDec, double[] outAngularSizes, double[] outMagnitudes, int from) {
+        Preconditions.checkBatchRange(from, from + BODY_COUNT, outRa, outDec, outAngularSizes, outMagnitudes);
+        System.arraycopy(ra, 0, outRa, from, BODY_COUNT);
+        System.arraycopy(dec, 0, outDec, from, BODY_COUNT);
+        System.arraycopy(angularSizes, 0, outAngularSizes, from, BODY_COUNT);
+        System.arraycopy(magnitudes, 0, outMagnitudes, from, BODY_COUNT);
+    }
+
+    /**
+     * Getter for the phase of the moon
+     *
+     * @return the phase of the moon, in [0, 1]
+     */
+    double moonPhase() {
+        return moonPhase;
+    }
+
+    /**
+     * Return the sun, equal to the one of its model
+     *
+     * @return the sun
+     */
+    public Sun sun() {
+        return new Sun(EclipticCoordinates.of(sunEclipticLon, 0), equatorialPos(0),
+                (float) angularSizes[0], (float) sunMeanAnomaly);
+    }
+
+    /**
+     * Return the moon, equal to the one of its model
+     *
+     * @return the moon
+     */
+    public Moon moon() {
+        return new Moon(equatorialPos(1), (float) angularSizes[1], (float) magnitudes[1], (float) moonPhase);
+    }
+
+    /**
+     * Return the planets, equal to the ones of their models
+     *
+     * @return the unmodifiable list of the 7 extraterrestrial planets, in the order of their models
+     */
+    public List<Planet> planets() {
+        List<Planet> planets = new ArrayList<>(PLANET_MODELS.size());
+        for (int i = 0; i < PLANET_MODELS.size(); i++) {
+            int index = FIRST_PLANET_INDEX + i;
+            planets.add(new Planet(PLANET_MODELS.get(i).planetName(), equatorialPos(index), (float) angularSizes[index],
+                    (float) magnitudes[index]));
+        }
+        return Collections.unmodifiableList(planets);
+    }
+
+    /**
+     * Return the equatorial position of a body
+     *
+     * @param index the index of the body
+     * @return the equatorial coordinates of the body
+     */
+    private EquatorialCoordinates equatorialPos(int index) {
+        return EquatorialCoordinates.of(ra[index], dec[index]);
+    }
+
+    /**
+     * Terms shared by the models of the bodies at an instant : the anomalies and the longitude of the sun (shared
+     * with the moon) and the terms of the earth (shared by the planets)
+     */
+    static final class SharedTerms {
+        private final double daysSinceJ2010;
+        private final double sunMeanAnomaly;
+        private final double sunRealAnomaly;
+        private final double sunEclipticLon;
+        private final double distanceEarthSun;
+        private final double earthHeliocentricLon;
+
+        /**
+         * Constructor computing the shared terms at the given instant
+         *
+         * @param daysSinceJ2010 days since Epoch.J2010 (positive or negative)
+         */
+        SharedTerms(double daysSinceJ2010) {
+            this.daysSinceJ2010 = daysSinceJ2010;
+            sunMeanAnomaly = SunModel.meanAnomaly(daysSinceJ2010);
+            sunRealAnomaly = SunModel.realAnomaly(sunMeanAnomaly);
+            sunEclipticLon = SunModel.eclipticLon(sunRealAnomaly);
+            double earthRealAnomaly = PlanetModel.EARTH.realAnomaly(daysSinceJ2010);
+            distanceEarthSun = PlanetModel.EARTH.distanceToSun(earthRealAnomaly);
+            earthHeliocentricLon = PlanetModel.EARTH.heliocentricLon(earthRealAnomaly);
+        }
+
+        /**
+         * Getter for the mean anomaly of the sun
+         *
+         * @return the mean anomaly of the sun
+         */
+        double sunMeanAnomaly() {
+            return sunMeanAnomaly;
+        }
+
+        /**
+         * Getter for the geocentric ecliptic longitude of the sun
+         *
+         * @return the geocentric ecliptic longitude of the sun, in [0, 2*PI[
+         */
+        double sunEclipticLon() {
+            return sunEclipticLon;
+        }
+    }
+}
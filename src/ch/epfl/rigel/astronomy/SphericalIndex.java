@@ -0,0 +1,318 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.math.Angle;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable equal-area spatial index over the equatorial positions of the stars of a catalogue
+ * <p>
+ * The sphere is cut into bands of equal height in sin(dec), each cut into cells of equal width in right ascension,
+ * so that all cells have the same area. The stars are ordered by cell (and by index in each cell), so that the
+ * stars of consecutive cells of a band are contiguous : a region of the sky is then given by a few ranges of
+ * positions in this order.
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see StarCatalogue#spatialIndex()
+ */
+public final class SphericalIndex {
+
+    // Mean number of stars per cell of the default index
+    private static final int STARS_PER_CELL = 8;
+    // Margin added to the regions, so that the stars on the border of a cell aren't missed because of rounding
+    private static final double MARGIN = 1e-9;
+
+    private final int bandCount;
+    private final int cellsPerBand;
+
+    // For each cell, the position of its first star (and the number of stars as last element)
+    private final int[] cellStart;
+    // The indices in the catalogue of the stars, ordered by cell
+    private final int[] starIndices;
+
+    /**
+     * Constructor of the index of a catalogue with a resolution depending on its number of stars
+     *
+     * @param catalogue the catalogue
+     */
+    public SphericalIndex(StarCatalogue catalogue) {
+        this(catalogue, (int) Math.ceil(Math.sqrt(Math.max(catalogue.starCount(), 1) / (2.0 * STARS_PER_CELL))));
+    }
+
+    /**
+     * Constructor of the index of a catalogue with a given resolution
+     *
+     * @param catalogue the catalogue
+     * @param bandCount the number of bands of declination (each band containing twice as many cells)
+     * @throws IllegalArgumentException if bandCount isn't in [1, 2^14]
+     */
+    public SphericalIndex(StarCatalogue catalogue, int bandCount) {
+        Preconditions.checkArgument(1 <= bandCount && bandCount <= 1 << 14);
+        this.bandCount = bandCount;
+        this.cellsPerBand = 2 * bandCount;
+
+        // counting sort of the stars by cell, which keeps the order of the stars in each cell
+        int starCount = catalogue.starCount();
+        int[] cells = new int[starCount];
+        cellStart = new int[cellCount() + 1];
+        for (int i = 0; i < starCount; i++) {
+            cells[i] = cellOf(catalogue.ra(i), catalogue.dec(i));
+            cellStart[cells[i] + 1]++;
+        }
+        for (int c = 0; c < cellCount(); c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] next = Arrays.copyOf(cellStart, cellCount());
+        starIndices = new int[starCount];
+        for (int i = 0; i < starCount; i++) {
+            starIndices[next[cells[i]]++] = i;
+        }
+    }
+
+    /**
+     * Getter for the number of cells
+     *
+     * @return the number of cells of the index
+     */
+    public int cellCount() {
+        return bandCount * cellsPerBand;
+    }
+
+    /**
+     * Getter for the number of stars
+     *
+     * @return the number of stars of the index
+     */
+    public int starCount() {
+        return starIndices.length;
+    }
+
+    /**
+     * Return the cell containing the given position
+     *
+     * @param ra  the right ascension, in [0, 2PI[
+     * @param dec the declination, in [-PI/2, PI/2]
+     * @return the cell containing the position, in [0, cellCount()[
+     */
+    public int cellOf(double ra, double dec) {
+        return bandOf(dec) * cellsPerBand + Math.min((int) (ra / cellWidth()), cellsPerBand - 1);
+    }
+
+    /**
+     * Return the index in the catalogue of the star at the given position of the order of the index
+     *
+     * @param position the position of the star in the order of the index, in [0, starCount()[
+     * @return the index of the star in the catalogue
+     */
+    public int starIndex(int position) {
+        return starIndices[position];
+    }
+
+    /**
+     * Return the stars of the cells intersecting a spherical cap (which contain at least all the stars in the cap)
+     *
+     * @param center the center of the cap
+     * @param radius the angular radius of the cap, in rad
+     * @return the ranges of positions of the stars in the order of the index, as an array
+     * {from0, to0, from1, to1, ...} of increasing disjoint right open ranges
+     * @throws IllegalArgumentException if radius < 0
+     * @see #starIndex(int)
+     */
+    public int[] rangesInCap(EquatorialCoordinates center, double radius) {
+        Preconditions.checkArgument(radius >= 0);
+        RangeList ranges = new RangeList();
+        if (radius >= Math.PI) {
+            ranges.addCells(0, cellCount());
+            return ranges.toArray();
+        }
+
+        double dec0 = center.dec();
+        double lowDec = Math.max(dec0 - radius - MARGIN, -Math.PI / 2);
+        double highDec = Math.min(dec0 + radius + MARGIN, Math.PI / 2);
+        boolean containsPole = dec0 + radius >= Math.PI / 2 || dec0 - radius <= -Math.PI / 2;
+
+        for (int band = bandOf(lowDec); band <= bandOf(highDec); band++) {
+            int firstCell = band * cellsPerBand;
+            double halfWidth = containsPole ? Math.PI : raHalfWidth(dec0, radius,
+                    Math.max(lowDec, bandLowDec(band)), Math.min(highDec, bandLowDec(band + 1)));
+
+            long lowCell = (long) Math.floor((center.ra() - halfWidth - MARGIN) / cellWidth());
+            long highCell = (long) Math.floor((center.ra() + halfWidth + MARGIN) / cellWidth());
+            if (highCell - lowCell + 1 >= cellsPerBand) {
+                ranges.addCells(firstCell, firstCell + cellsPerBand);
+            } else {
+                int low = (int) Math.floorMod(lowCell, (long) cellsPerBand);
+                int high = (int) Math.floorMod(highCell, (long) cellsPerBand);
+                if (low <= high) {
+                    ranges.addCells(firstCell + low, firstCell + high + 1);
+                } else {
+                    // the cap crosses the right ascension 0
+                    ranges.addCells(firstCell, firstCell + high + 1);
+                    ranges.addCells(firstCell + low, firstCell + cellsPerBand);
+                }
+            }
+        }
+        return ranges.toArray();
+    }
+
+    /**
+     * Return the stars of the cells intersecting a cap containing a convex spherical polygon : the cap centered on
+     * the mean direction of its vertices, through its farthest vertex (which isn't always the smallest containing cap,
+     * and is the whole sphere if it would be larger than a hemisphere), so that they contain at least all the stars in
+     * the polygon
+     *
+     * @param vertices the vertices of the polygon
+     * @return the ranges of positions of the stars in the order of the index, as an array
+     * {from0, to0, from1, to1, ...} of increasing disjoint right open ranges
+     * @throws IllegalArgumentException if there is no vertex
+     * @see #rangesInCap(EquatorialCoordinates, double)
+     */
+    public int[] rangesInPolygon(List<EquatorialCoordinates> vertices) {
+        Preconditions.checkArgument(!vertices.isEmpty());
+
+        // the cap is centered on the mean direction of the vertices
+        double x = 0, y = 0, z = 0;
+        for (EquatorialCoordinates v : vertices) {
+            x += Math.cos(v.dec()) * Math.cos(v.ra());
+            y += Math.cos(v.dec()) * Math.sin(v.ra());
+            z += Math.sin(v.dec());
+        }
+        double norm = Math.sqrt(x * x + y * y + z * z);
+        if (norm < MARGIN) {
+            return rangesInCap(EquatorialCoordinates.of(0, 0), Math.PI);
+        }
+        EquatorialCoordinates center = EquatorialCoordinates.of(
+                Angle.normalizePositive(Math.atan2(y, x)), Math.asin(Math.max(-1, Math.min(1, z / norm))));
+
+        double radius = 0;
+        for (EquatorialCoordinates v : vertices) {
+            radius = Math.max(radius, angularDistance(center, v));
+        }
+        // a cap is only convex (containing the edges of the polygon) if it is smaller than a hemisphere
+        return rangesInCap(center, radius < Math.PI / 2 ? radius : Math.PI);
+    }
+
+    /**
+     * Return the angular distance between two positions
+     *
+     * @param p1 the first position
+     * @param p2 the second position
+     * @return the angular distance between the positions, in [0, PI]
+     */
+    public static double angularDistance(EquatorialCoordinates p1, EquatorialCoordinates p2) {
+        double cos = Math.sin(p1.dec()) * Math.sin(p2.dec())
+                + Math.cos(p1.dec()) * Math.cos(p2.dec()) * Math.cos(p1.ra() - p2.ra());
+        return Math.acos(Math.max(-1, Math.min(1, cos)));
+    }
+
+    /**
+     * Return the band containing the given declination
+     *
+     * @param dec the declination
+     * @return the band containing the declination
+     */
+    private int bandOf(double dec) {
+        int band = (int) ((Math.sin(dec) + 1) / 2 * bandCount);
+        return Math.max(0, Math.min(band, bandCount - 1));
+    }
+
+    /**
+     * Return the lowest declination of the given band
+     *
+     * @param band the band, in [0, bandCount]
+     * @return the lowest declination of the band (PI/2 for bandCount)
+     */
+    private double bandLowDec(int band) {
+        return Math.asin(Math.max(-1, Math.min(1, 2.0 * band / bandCount - 1)));
+    }
+
+    /**
+     * Getter for the width of the cells
+     *
+     * @return the width of the cells in right ascension, in rad
+     */
+    private double cellWidth() {
+        return Angle.TAU / cellsPerBand;
+    }
+
+    /**
+     * Return half the width in right ascension of a cap (not containing a pole) between two declinations
+     *
+     * @param dec0    the declination of the center of the cap
+     * @param radius  the angular radius of the cap
+     * @param lowDec  the lowest declination
+     * @param highDec the highest declination
+     * @return the greatest difference of right ascension between the center and a point of the cap whose
+     * declination is in [lowDec, highDec]
+     */
+    private static double raHalfWidth(double dec0, double radius, double lowDec, double highDec) {
+        double halfWidth = Math.max(raHalfWidthAt(dec0, radius, lowDec), raHalfWidthAt(dec0, radius, highDec));
+        // the cap is the widest at this declination
+        double widestDec = Math.asin(Math.max(-1, Math.min(1, Math.sin(dec0) / Math.cos(radius))));
+        if (lowDec < widestDec && widestDec < highDec) {
+            halfWidth = Math.max(halfWidth, raHalfWidthAt(dec0, radius, widestDec));
+        }
+        return halfWidth;
+    }
+
+    /**
+     * Return half the width in right ascension of a cap at a given declination
+     *
+     * @param dec0   the declination of the center of the cap
+     * @param radius the angular radius of the cap
+     * @param dec    the declination
+     * @return the greatest difference of right ascension between the center and a point of the cap of declination dec
+     */
+    private static double raHalfWidthAt(double dec0, double radius, double dec) {
+        double denominator = Math.cos(dec) * Math.cos(dec0);
+        if (denominator <= MARGIN) {
+            return Math.PI;
+        }
+        double cos = (Math.cos(radius) - Math.sin(dec) * Math.sin(dec0)) / denominator;
+        return cos >= 1 ? 0 : cos <= -1 ? Math.PI : Math.acos(cos);
+    }
+
+    /**
+     * Growable list of increasing disjoint ranges of positions, merging the contiguous ones
+     */
+    private final class RangeList {
+        private int[] bounds = new int[16];
+        private int size = 0;
+
+        /**
+         * Add the positions of the stars of the given cells, which must follow the cells already added
+         *
+         * @param fromCell the first cell
+         * @param toCell   the cell following the last cell
+         */
+        void addCells(int fromCell, int toCell) {
+            int from = cellStart[fromCell];
+            int to = cellStart[toCell];
+            if (from == to) {
+                return;
+            }
+            if (size > 0 && bounds[size - 1] == from) {
+                bounds[size - 1] = to;
+                return;
+            }
+            if (size == bounds.length) {
+                bounds = Arrays.copyOf(bounds, 2 * size);
+            }
+            bounds[size++] = from;
+            bounds[size++] = to;
+        }
+
+        /**
+         * Return the ranges as an array
+         *
+         * @return the array {from0, to0, from1, to1, ...} of the ranges
+         */
+        int[] toArray() {
+            return Arrays.copyOf(bounds, size);
+        }
+    }
+}
@@ -29,14 +29,54 @@ public final class Star extends CelestialObject {
      * @throws IllegalArgumentException if hipparcorId < 0 or colorIndex isn't in [-0.5, 5.5]
      */
     public Star(int hipparcosId, String name, EquatorialCoordinates equatorialPos, float magnitude, float colorIndex) {
+        this(hipparcosId, name, equatorialPos, magnitude, colorTemperatureOf(colorIndex));
+    }
+
+    /**
+     * Constructor of a star whose color temperature is already known (used by the columnar catalogue)
+     *
+     * @param hipparcosId      HIP identification number for the star
+     * @param name             the name of the star
+     * @param equatorialPos    the position of the star (in equatorial coordinates, relative to the earth)
+     * @param magnitude        the magnitude of the star
+     * @param colorTemperature the color temperature of the star, in Kelvins
+     * @throws IllegalArgumentException if hipparcorId < 0
+     */
+    private Star(int hipparcosId, String name, EquatorialCoordinates equatorialPos, float magnitude, int colorTemperature) {
         super(name, equatorialPos, 0, magnitude);
 
         // check if the arguments are valid too
         Preconditions.checkArgument(hipparcosId >= 0);
         this.hipparcosId = hipparcosId;
+        this.colorTemperature = colorTemperature;
+    }
+
+    /**
+     * Create a star from its already computed color temperature
+     *
+     * @param hipparcosId      HIP identification number for the star
+     * @param name             the name of the star
+     * @param equatorialPos    the position of the star (in equatorial coordinates, relative to the earth)
+     * @param magnitude        the magnitude of the star
+     * @param colorTemperature the color temperature of the star, in Kelvins
+     * @return the star
+     * @throws IllegalArgumentException if hipparcorId < 0
+     */
+    static Star ofColorTemperature(int hipparcosId, String name, EquatorialCoordinates equatorialPos, float magnitude, int colorTemperature) {
+        return new Star(hipparcosId, name, equatorialPos, magnitude, colorTemperature);
+    }
+
+    /**
+     * Compute the color temperature corresponding to the given color index
+     *
+     * @param colorIndex the color index of the star
+     * @return the floor of the temperature, in Kelvins
+     * @throws IllegalArgumentException if colorIndex isn't in [-0.5, 5.5]
+     */
+    static int colorTemperatureOf(float colorIndex) {
         Preconditions.checkInInterval(COLOR_INDEX_INTERVAL, colorIndex);
         double interValue = 0.92 * colorIndex;
-        colorTemperature = (int) (4600 * (1 / (interValue + 1.7) + 1 / (interValue + 0.62)));
+        return (int) (4600 * (1 / (interValue + 1.7) + 1 / (interValue + 0.62)));
     }
 
     /**
@@ -1,6 +1,9 @@
 package ch.epfl.rigel.astronomy;
 
 import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.coordinates.EquatorialToPlaneProjection;
+import ch.epfl.rigel.math.ClosedInterval;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -14,7 +17,10 @@ import java.util.*;
  */
 public final class StarCatalogue {
 
-    // The list of all stars containing in the catalogue
+    // The columns storing all the stars containing in the catalogue
+    private final StarColumns columns;
+
+    // The list of all stars containing in the catalogue (Star objects are created on demand)
     private final List<Star> stars;
 
     // Map of asterisms with their own stars (especially their index)
@@ -23,6 +29,17 @@ public final class StarCatalogue {
     // The set of all asterisms
     private final Set<Asterism> setAsterisms;
 
+    // Whether the stars are sorted by increasing magnitude (brightest first)
+    private final boolean sortedByMagnitude;
+
+    // Number of operations of the index of the hipparcos IDs used to find the stars of the asterisms
+    private final long indexOperationCount;
+
+    // The spatial index of the stars, built the first time it is needed
+    private volatile SphericalIndex spatialIndex;
+    // Columns of the components of the equatorial unit vectors of the stars, computed when first needed
+    private volatile double[][] unitVectors;
+
     /**
      * Constructor of a StarCatalogue
      *
@@ -30,37 +47,266 @@ public final class StarCatalogue {
      * @param asterisms Remarkable groups of stars, which have to be all contained in the list
      */
     public StarCatalogue(List<Star> stars, List<Asterism> asterisms) {
-        this.stars = List.copyOf(stars);
+        this(columnsOf(stars), asterisms);
+    }
+
+    /**
+     * Constructor of a StarCatalogue from columns of stars
+     *
+     * @param columns   the columns of all the stars in the catalogue (not modified afterwards)
+     * @param asterisms Remarkable groups of stars, which have to be all contained in the columns
+     */
+    private StarCatalogue(StarColumns columns, List<Asterism> asterisms) {
+        this.columns = columns;
+        this.stars = columns.asList();
 
-        // Map containing a star with its corresponding index
-        Map<Star, Integer> starWithIndex = new HashMap<>();
-        stars.forEach(star -> starWithIndex.put(star, stars.indexOf(star)));
+        // Index of the stars already created by hipparcos ID, added backwards so that the first index of a star
+        // comes first (stars of asterisms are always created so they are all contained in the index)
+        HipparcosIndex createdStars = new HipparcosIndex(columns.size());
+        for (int i = columns.size() - 1; i >= 0; i--) {
+            if (columns.createdStar(i) != null) {
+                createdStars.add(columns.hipparcosId(i), i);
+            }
+        }
 
         Map<Asterism, List<Integer>> asterismMapTemp = new HashMap<>();
         // fill in the map with asterisms and their stars (especially their index)
         for (Asterism a : asterisms) {
-            List<Integer> indices = new ArrayList<>();
+            List<Integer> indices = new ArrayList<>(a.stars().size());
             for (Star s : a.stars()) {
-                Preconditions.checkArgument(stars.contains(s));
-                indices.add(starWithIndex.get(s));
+                // only the stars sharing the hipparcos ID of s are compared to it
+                int index = createdStars.first(s.hipparcosId());
+                while (index != -1 && columns.createdStar(index) != s) {
+                    index = createdStars.next(index);
+                }
+                Preconditions.checkArgument(index != -1);
+                indices.add(index);
             }
             asterismMapTemp.put(a, indices);
         }
 
         asterismMap = Collections.unmodifiableMap(asterismMapTemp);
         setAsterisms = Set.copyOf(asterismMap.keySet());
+        indexOperationCount = createdStars.operationCount();
+
+        boolean sorted = true;
+        for (int i = 1; i < columns.size() && sorted; i++) {
+            sorted = columns.magnitude(i - 1) <= columns.magnitude(i);
+        }
+        sortedByMagnitude = sorted;
 
     }
 
     /**
      * Getter for the stars
      *
-     * @return immutable copy of stars
+     * @return immutable view of stars, each Star being created the first time it is accessed
      */
     public List<Star> stars() {
         return stars;
     }
 
+    /**
+     * Getter for the number of stars
+     *
+     * @return the number of stars of the catalogue
+     */
+    public int starCount() {
+        return columns.size();
+    }
+
+    /**
+     * Getter for the right ascension of a star, without creating the Star
+     *
+     * @param index the index of the star
+     * @return the right ascension of the star, in rad
+     */
+    public double ra(int index) {
+        return columns.ra(index);
+    }
+
+    /**
+     * Getter for the declination of a star, without creating the Star
+     *
+     * @param index the index of the star
+     * @return the declination of the star, in rad
+     */
+    public double dec(int index) {
+        return columns.dec(index);
+    }
+
+    /**
+     * Getter for the column of the right ascensions of the stars (not copied, so it mustn't be modified)
+     *
+     * @return the array of the right ascensions of the stars, in rad, at least as long as the number of stars
+     */
+    double[] raColumn() {
+        return columns.raColumn();
+    }
+
+    /**
+     * Getter for the column of the declinations of the stars (not copied, so it mustn't be modified)
+     *
+     * @return the array of the declinations of the stars, in rad, at least as long as the number of stars
+     */
+    double[] decColumn() {
+        return columns.decColumn();
+    }
+
+    /**
+     * Getter for the magnitude of a star, without creating the Star
+     *
+     * @param index the index of the star
+     * @return the magnitude of the star
+     */
+    public double magnitude(int index) {
+        return columns.magnitude(index);
+    }
+
+    /**
+     * Getter for the color temperature of a star, without creating the Star
+     *
+     * @param index the index of the star
+     * @return the color temperature of the star, in Kelvins
+     */
+    public int colorTemperature(int index) {
+        return columns.colorTemperature(index);
+    }
+
+    /**
+     * Getter for the hipparcos ID of a star, without creating the Star
+     *
+     * @param index the index of the star
+     * @return the hipparcos ID of the star
+     */
+    public int hipparcosId(int index) {
+        return columns.hipparcosId(index);
+    }
+
+    /**
+     * Getter for the name of a star, without creating the Star
+     *
+     * @param index the index of the star
+     * @return the name of the star
+     */
+    public String name(int index) {
+        return columns.name(index);
+    }
+
+    /**
+     * Getter for the number of operations of the index of the hipparcos IDs used by the constructor to find the stars
+     * of the asterisms, which grows linearly with the number of stars
+     *
+     * @return the number of slots probed and of stars followed in the index
+     */
+    long indexOperationCount() {
+        return indexOperationCount;
+    }
+
+    /**
+     * Check if the stars are sorted by magnitude
+     *
+     * @return {@code true} if and only if the stars are sorted by increasing magnitude (brightest first)
+     */
+    public boolean isSortedByMagnitude() {
+        return sortedByMagnitude;
+    }
+
+    /**
+     * Return a catalogue containing the same stars and asterisms, with the stars sorted by increasing magnitude
+     * (brightest first), so that the stars brighter than a given magnitude are a prefix of the catalogue
+     *
+     * @return this catalogue if it is already sorted, or a sorted copy (the indices of the asterisms being remapped)
+     */
+    public StarCatalogue sortedByMagnitude() {
+        if (sortedByMagnitude) {
+            return this;
+        }
+
+        // each key holds the magnitude in its high bits and the index in its low bits, so that the sort is stable
+        long[] keys = new long[columns.size()];
+        for (int i = 0; i < keys.length; i++) {
+            int bits = Float.floatToIntBits(columns.magnitude(i));
+            // the bits of a float are ordered as an int, except for negative floats whose order is reversed
+            int orderedBits = bits ^ ((bits >> 31) & Integer.MAX_VALUE);
+            keys[i] = (long) orderedBits << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = (int) keys[i];
+        }
+
+        // the stars of the asterisms are already created, so the constructor finds their new indices
+        return new StarCatalogue(columns.permutedCopy(order), new ArrayList<>(setAsterisms));
+    }
+
+    /**
+     * Return the length of the prefix of the stars containing all the stars at least as bright as the given magnitude
+     * (tier of the catalogue used to skip the faint stars)
+     *
+     * @param maxMagnitude the greatest magnitude of the stars contained in the prefix
+     * @return the number of first stars whose magnitude is at most maxMagnitude if the catalogue is sorted by
+     * magnitude, the number of stars otherwise
+     */
+    public int brighterStarCount(double maxMagnitude) {
+        if (!sortedByMagnitude) {
+            return columns.size();
+        }
+        // binary search of the first star fainter than maxMagnitude
+        int low = 0;
+        int high = columns.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (columns.magnitude(middle) <= maxMagnitude) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Getter for the spatial index of the stars, built once for the catalogue (and shared between threads)
+     *
+     * @return the spatial index of the stars
+     */
+    public SphericalIndex spatialIndex() {
+        SphericalIndex index = spatialIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = spatialIndex;
+                if (index == null) {
+                    index = new SphericalIndex(this);
+                    spatialIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Getter for the equatorial unit vectors of the stars, computed once since the stars don't move
+     * (not copied, so it mustn't be modified)
+     *
+     * @return the array {xs, ys, zs} of the columns of the components of the unit vectors of the stars
+     * @see EquatorialToPlaneProjection#unitVectors(double[], double[], int)
+     */
+    double[][] unitVectors() {
+        double[][] vectors = unitVectors;
+        if (vectors == null) {
+            synchronized (this) {
+                vectors = unitVectors;
+                if (vectors == null) {
+                    vectors = EquatorialToPlaneProjection.unitVectors(raColumn(), decColumn(), starCount());
+                    unitVectors = vectors;
+                }
+            }
+        }
+        return vectors;
+    }
+
     /**
      * Getter for the asterisms
      *
@@ -81,6 +327,18 @@ public final class StarCatalogue {
         return List.copyOf(asterismMap.get(ast));
     }
 
+    /**
+     * Store the given stars in columns
+     *
+     * @param stars the stars
+     * @return the columns containing the given stars
+     */
+    private static StarColumns columnsOf(List<Star> stars) {
+        StarColumns columns = new StarColumns(stars.size());
+        stars.forEach(columns::add);
+        return columns;
+    }
+
 
     /**
      * Builder of a StarCatalogue
@@ -90,17 +348,32 @@ public final class StarCatalogue {
      */
     public static final class Builder {
 
-        // The list of all stars containing in the catalogue
-        private final List<Star> stars;
+        // The columns of all stars containing in the catalogue
+        private final StarColumns stars;
+        // The columns of the stars rejected by a filter while loading, kept aside in case an asterism needs them
+        private final StarColumns rejectedStars;
         // The list of all asterisms containing in the catalogue
         private final List<Asterism> asterisms;
+        // The filter of the stars being loaded
+        private Filter filter;
 
         /**
          * Default constructor for the StarCatalogue.Builder
          */
         public Builder() {
-            this.stars = new ArrayList<>();
+            this(Filter.ALL);
+        }
+
+        /**
+         * Constructor for a StarCatalogue.Builder whose loaded stars are filtered
+         *
+         * @param filter the filter of the loaded stars
+         */
+        Builder(Filter filter) {
+            this.stars = new StarColumns();
+            this.rejectedStars = new StarColumns();
             this.asterisms = new ArrayList<>();
+            this.filter = filter;
         }
 
         /**
@@ -114,13 +387,83 @@ public final class StarCatalogue {
             return this;
         }
 
+        /**
+         * Add a Star to the Builder given its values, without creating the Star
+         *
+         * @param hipparcosId HIP identification number for the star
+         * @param name        the name of the star
+         * @param ra          the right ascension of the star, in rad
+         * @param dec         the declination of the star, in rad
+         * @param magnitude   the magnitude of the star
+         * @param colorIndex  the color index of the star
+         * @return this
+         * @throws IllegalArgumentException if hipparcosId < 0, ra isn't in [0, 2PI[, dec isn't in [-PI/2, PI/2]
+         *                                  or colorIndex isn't in [-0.5, 5.5]
+         */
+        public Builder addStar(int hipparcosId, String name, double ra, double dec, float magnitude, float colorIndex) {
+            Preconditions.checkArgument(hipparcosId >= 0);
+            Preconditions.checkArgument(EquatorialCoordinates.isValidRa(ra));
+            Preconditions.checkArgument(EquatorialCoordinates.isValidDec(dec));
+            stars.add(hipparcosId, Objects.requireNonNull(name), ra, dec, magnitude, Star.colorTemperatureOf(colorIndex));
+            return this;
+        }
+
+        /**
+         * Add a star read by a loader, if it is accepted by the filter of the current load
+         * (the values are assumed to be valid)
+         *
+         * @param hipparcosId      HIP identification number for the star
+         * @param name             the name of the star
+         * @param ra               the right ascension of the star, in rad
+         * @param dec              the declination of the star, in rad
+         * @param magnitude        the magnitude of the star
+         * @param colorTemperature the color temperature of the star, in Kelvins
+         * @param constellation    the constellation of the star, or null if it is unknown
+         */
+        void addLoadedStar(int hipparcosId, String name, double ra, double dec, float magnitude,
+                           int colorTemperature, String constellation) {
+            if (filter.accepts(hipparcosId, ra, dec, magnitude, constellation)) {
+                stars.add(hipparcosId, name, ra, dec, magnitude, colorTemperature, constellation);
+            } else if (hipparcosId != 0) {
+                // only stars with an hipparcos ID can be referenced by an asterism
+                rejectedStars.add(hipparcosId, name, ra, dec, magnitude, colorTemperature, constellation);
+            }
+        }
+
         /**
          * Getter for the stars
          *
-         * @return unmodifiable but mutable view of stars
+         * @return unmodifiable but mutable view of stars, each Star being created the first time it is accessed
          */
         public List<Star> stars() {
-            return Collections.unmodifiableList(stars);
+            return stars.asList();
+        }
+
+        /**
+         * Getter for the columns of the stars, used by the loaders to read the stars without creating them
+         *
+         * @return the columns of the stars
+         */
+        StarColumns columns() {
+            return stars;
+        }
+
+        /**
+         * Getter for the columns of the stars rejected by a filter, which can still be added for an asterism
+         *
+         * @return the columns of the rejected stars
+         */
+        StarColumns rejectedColumns() {
+            return rejectedStars;
+        }
+
+        /**
+         * Getter for the filter of the stars being loaded
+         *
+         * @return the filter of the stars being loaded
+         */
+        Filter filter() {
+            return filter;
         }
 
         /**
@@ -150,7 +493,27 @@ public final class StarCatalogue {
          * @throws IOException in case of input/output error
          */
         public Builder loadFrom(InputStream inputStream, Loader loader) throws IOException {
-            loader.load(inputStream, this);
+            return loadFrom(inputStream, loader, Filter.ALL);
+        }
+
+        /**
+         * Load stars, keeping only those accepted by the given filter (the others are never turned into stars,
+         * except if they are later needed by an asterism)
+         *
+         * @param inputStream the input stream
+         * @param loader      the loader
+         * @param filter      the filter of the loaded stars
+         * @return this
+         * @throws IOException in case of input/output error
+         */
+        public Builder loadFrom(InputStream inputStream, Loader loader, Filter filter) throws IOException {
+            Filter previousFilter = this.filter;
+            this.filter = Objects.requireNonNull(filter);
+            try {
+                loader.load(inputStream, this);
+            } finally {
+                this.filter = previousFilter;
+            }
             return this;
         }
 
@@ -160,7 +523,7 @@ public final class StarCatalogue {
          * @return new StarCatalogue with stars and asterisms
          */
         public StarCatalogue build() {
-            return new StarCatalogue(stars, asterisms);
+            return new StarCatalogue(stars.trimmedCopy(), asterisms);
         }
 
     }
@@ -187,4 +550,78 @@ public final class StarCatalogue {
         void load(InputStream inputStream, Builder builder) throws IOException;
     }
 
+    /**
+     * Filter of the stars read by a loader, applied while parsing
+     *
+     * @author Bastien Faivre (310929)
+     * @author Kamil Mellouk (312327)
+     * @see Builder#loadFrom(InputStream, Loader, Filter)
+     */
+    @FunctionalInterface
+    public interface Filter {
+
+        // Filter accepting every star
+        Filter ALL = (hipparcosId, ra, dec, magnitude, constellation) -> true;
+
+        /**
+         * Check if a star has to be loaded
+         *
+         * @param hipparcosId   HIP identification number of the star
+         * @param ra            the right ascension of the star, in rad
+         * @param dec           the declination of the star, in rad
+         * @param magnitude     the magnitude of the star
+         * @param constellation the abbreviation of the constellation of the star (e.g. "Ori"), or null if the
+         *                      loader doesn't know it
+         * @return {@code true} if and only if the star has to be loaded
+         */
+        boolean accepts(int hipparcosId, double ra, double dec, double magnitude, String constellation);
+
+        /**
+         * Return a filter accepting the stars accepted by both this filter and the given one
+         *
+         * @param other the other filter
+         * @return the conjunction of the filters
+         */
+        default Filter and(Filter other) {
+            Objects.requireNonNull(other);
+            return (hipparcosId, ra, dec, magnitude, constellation) ->
+                    accepts(hipparcosId, ra, dec, magnitude, constellation)
+                            && other.accepts(hipparcosId, ra, dec, magnitude, constellation);
+        }
+
+        /**
+         * Return a filter accepting the stars at least as bright as the given magnitude
+         *
+         * @param maxMagnitude the greatest magnitude accepted
+         * @return the filter
+         */
+        static Filter magnitudeAtMost(double maxMagnitude) {
+            return (hipparcosId, ra, dec, magnitude, constellation) -> magnitude <= maxMagnitude;
+        }
+
+        /**
+         * Return a filter accepting the stars whose declination is in the given interval
+         *
+         * @param decInterval the interval of declinations accepted, in rad
+         * @return the filter
+         */
+        static Filter declinationIn(ClosedInterval decInterval) {
+            Objects.requireNonNull(decInterval);
+            return (hipparcosId, ra, dec, magnitude, constellation) -> decInterval.contains(dec);
+        }
+
+        /**
+         * Return a filter accepting the stars belonging to one of the given constellations
+         * (stars whose constellation is unknown are rejected)
+         *
+         * @param constellations the abbreviations of the constellations accepted (e.g. "Ori")
+         * @return the filter
+         */
+        static Filter constellationIn(Set<String> constellations) {
+            Set<String> accepted = Set.copyOf(constellations);
+            return (hipparcosId, ra, dec, magnitude, constellation) ->
+                    constellation != null && accepted.contains(constellation);
+        }
+    }
+
 }
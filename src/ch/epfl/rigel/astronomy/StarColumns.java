@@ -0,0 +1,403 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar storage of stars, using parallel primitive arrays and a pooled name table (which also holds the
+ * constellations, kept for the binary catalogue)
+ * (Star objects are only created on demand, and then kept so that a given index always gives the same Star)
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see StarCatalogue
+ */
+final class StarColumns {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Number of stars stored in the columns
+    private int size;
+
+    // The columns, only the first size values of each are meaningful
+    private double[] ra;
+    private double[] dec;
+    private float[] magnitude;
+    private int[] colorTemperature;
+    private int[] hipparcosId;
+    private int[] nameIndex;
+    // Index of the constellation in the pool of names, -1 where the constellation is unknown
+    private int[] constellationIndex;
+
+    // Stars already created, null where no Star was created yet
+    private Star[] stars;
+
+    // Pool of names (many stars share a name such as "? Ori") with the index of each name in the pool
+    private final List<String> names;
+    private final Map<String, Integer> nameIds;
+
+    /**
+     * Constructor of empty columns
+     */
+    StarColumns() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructor of empty columns with a given initial capacity
+     *
+     * @param capacity the number of stars that can be added before the columns grow
+     */
+    StarColumns(int capacity) {
+        int c = Math.max(capacity, 1);
+        ra = new double[c];
+        dec = new double[c];
+        magnitude = new float[c];
+        colorTemperature = new int[c];
+        hipparcosId = new int[c];
+        nameIndex = new int[c];
+        constellationIndex = new int[c];
+        stars = new Star[c];
+        names = new ArrayList<>();
+        nameIds = new HashMap<>();
+    }
+
+    /**
+     * Add a star given by its values, without creating any Star
+     *
+     * @param hipparcosId      HIP identification number of the star
+     * @param name             the name of the star
+     * @param ra               the right ascension of the star, in rad
+     * @param dec              the declination of the star, in rad
+     * @param magnitude        the magnitude of the star
+     * @param colorTemperature the color temperature of the star, in Kelvins
+     * @return the index of the added star
+     */
+    int add(int hipparcosId, String name, double ra, double dec, float magnitude, int colorTemperature) {
+        return add(hipparcosId, name, ra, dec, magnitude, colorTemperature, null);
+    }
+
+    /**
+     * Add a star given by its values and its constellation, without creating any Star
+     *
+     * @param hipparcosId      HIP identification number of the star
+     * @param name             the name of the star
+     * @param ra               the right ascension of the star, in rad
+     * @param dec              the declination of the star, in rad
+     * @param magnitude        the magnitude of the star
+     * @param colorTemperature the color temperature of the star, in Kelvins
+     * @param constellation    the constellation of the star, or null if it is unknown
+     * @return the index of the added star
+     */
+    int add(int hipparcosId, String name, double ra, double dec, float magnitude, int colorTemperature,
+            String constellation) {
+        if (size == this.ra.length) {
+            grow();
+        }
+        int i = size++;
+        this.hipparcosId[i] = hipparcosId;
+        this.nameIndex[i] = nameId(name);
+        this.constellationIndex[i] = constellation != null ? nameId(constellation) : -1;
+        this.ra[i] = ra;
+        this.dec[i] = dec;
+        this.magnitude[i] = magnitude;
+        this.colorTemperature[i] = colorTemperature;
+        return i;
+    }
+
+    /**
+     * Add an already existing star, which will be the one returned for its index
+     *
+     * @param star the star to add
+     * @return the index of the added star
+     */
+    int add(Star star) {
+        int i = add(star.hipparcosId(), star.name(), star.equatorialPos().ra(), star.equatorialPos().dec(),
+                (float) star.magnitude(), star.colorTemperature());
+        stars[i] = star;
+        return i;
+    }
+
+    /**
+     * Add all the stars of the given columns, after the stars already contained
+     *
+     * @param other the columns containing the stars to add
+     */
+    void addAll(StarColumns other) {
+        for (int i = 0; i < other.size(); i++) {
+            int index = add(other.hipparcosId[i], other.name(i), other.ra[i], other.dec[i],
+                    other.magnitude[i], other.colorTemperature[i], other.constellation(i));
+            stars[index] = other.createdStar(i);
+        }
+    }
+
+    /**
+     * Getter for the number of stars
+     *
+     * @return the number of stars
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Getter for the right ascension of a star
+     *
+     * @param i the index of the star
+     * @return the right ascension of the star, in rad
+     */
+    double ra(int i) {
+        return ra[i];
+    }
+
+    /**
+     * Getter for the declination of a star
+     *
+     * @param i the index of the star
+     * @return the declination of the star, in rad
+     */
+    double dec(int i) {
+        return dec[i];
+    }
+
+    /**
+     * Getter for the column of the right ascensions, for the batch conversions (not copied, and which can be longer
+     * than the number of stars)
+     *
+     * @return the array of the right ascensions of the stars, in rad
+     */
+    double[] raColumn() {
+        return ra;
+    }
+
+    /**
+     * Getter for the column of the declinations, for the batch conversions (not copied, and which can be longer
+     * than the number of stars)
+     *
+     * @return the array of the declinations of the stars, in rad
+     */
+    double[] decColumn() {
+        return dec;
+    }
+
+    /**
+     * Getter for the magnitude of a star
+     *
+     * @param i the index of the star
+     * @return the magnitude of the star
+     */
+    float magnitude(int i) {
+        return magnitude[i];
+    }
+
+    /**
+     * Getter for the color temperature of a star
+     *
+     * @param i the index of the star
+     * @return the color temperature of the star, in Kelvins
+     */
+    int colorTemperature(int i) {
+        return colorTemperature[i];
+    }
+
+    /**
+     * Getter for the hipparcos ID of a star
+     *
+     * @param i the index of the star
+     * @return the hipparcos ID of the star
+     */
+    int hipparcosId(int i) {
+        return hipparcosId[i];
+    }
+
+    /**
+     * Getter for the name of a star
+     *
+     * @param i the index of the star
+     * @return the name of the star
+     */
+    String name(int i) {
+        return names.get(nameIndex[i]);
+    }
+
+    /**
+     * Getter for the index of the name of a star in the pool of names
+     *
+     * @param i the index of the star
+     * @return the index of the name of the star in the pool of names
+     */
+    int nameIndex(int i) {
+        return nameIndex[i];
+    }
+
+    /**
+     * Getter for the constellation of a star
+     *
+     * @param i the index of the star
+     * @return the constellation of the star, or null if it is unknown
+     */
+    String constellation(int i) {
+        return constellationIndex[i] != -1 ? names.get(constellationIndex[i]) : null;
+    }
+
+    /**
+     * Getter for the index of the constellation of a star in the pool of names
+     *
+     * @param i the index of the star
+     * @return the index of the constellation of the star in the pool of names, or -1 if it is unknown
+     */
+    int constellationIndex(int i) {
+        return constellationIndex[i];
+    }
+
+    /**
+     * Getter for the number of distinct names
+     *
+     * @return the number of names in the pool of names
+     */
+    int nameCount() {
+        return names.size();
+    }
+
+    /**
+     * Getter for a name of the pool of names
+     *
+     * @param nameIndex the index of the name in the pool
+     * @return the name
+     */
+    String pooledName(int nameIndex) {
+        return names.get(nameIndex);
+    }
+
+    /**
+     * Return the star of the given index, creating it the first time it is asked for
+     *
+     * @param i the index of the star
+     * @return the star of the given index
+     * @throws IndexOutOfBoundsException if i isn't in [0, size[
+     */
+    synchronized Star star(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException(i);
+        }
+        Star star = stars[i];
+        if (star == null) {
+            star = Star.ofColorTemperature(hipparcosId[i], name(i), EquatorialCoordinates.of(ra[i], dec[i]),
+                    magnitude[i], colorTemperature[i]);
+            stars[i] = star;
+        }
+        return star;
+    }
+
+    /**
+     * Return the star of the given index if it was already created
+     *
+     * @param i the index of the star
+     * @return the star of the given index, or null if it wasn't created yet
+     */
+    synchronized Star createdStar(int i) {
+        return stars[i];
+    }
+
+    /**
+     * Return an unmodifiable view of the stars, creating each Star only when it is accessed
+     *
+     * @return an unmodifiable view of the stars
+     */
+    List<Star> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Star get(int index) {
+                return star(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Return a copy of the columns, trimmed to their size (the stars already created are kept)
+     *
+     * @return a trimmed copy of the columns
+     */
+    synchronized StarColumns trimmedCopy() {
+        StarColumns copy = new StarColumns(size);
+        copy.names.addAll(names);
+        copy.nameIds.putAll(nameIds);
+        copy.size = size;
+        System.arraycopy(ra, 0, copy.ra, 0, size);
+        System.arraycopy(dec, 0, copy.dec, 0, size);
+        System.arraycopy(magnitude, 0, copy.magnitude, 0, size);
+        System.arraycopy(colorTemperature, 0, copy.colorTemperature, 0, size);
+        System.arraycopy(hipparcosId, 0, copy.hipparcosId, 0, size);
+        System.arraycopy(nameIndex, 0, copy.nameIndex, 0, size);
+        System.arraycopy(constellationIndex, 0, copy.constellationIndex, 0, size);
+        System.arraycopy(stars, 0, copy.stars, 0, size);
+        return copy;
+    }
+
+    /**
+     * Return a copy of the columns where the stars are reordered (the stars already created are kept)
+     *
+     * @param order the indices of the stars, in their new order (a permutation of [0, size[)
+     * @return the reordered copy of the columns
+     */
+    synchronized StarColumns permutedCopy(int[] order) {
+        StarColumns copy = new StarColumns(order.length);
+        copy.names.addAll(names);
+        copy.nameIds.putAll(nameIds);
+        copy.size = order.length;
+        for (int i = 0; i < order.length; i++) {
+            int j = order[i];
+            copy.ra[i] = ra[j];
+            copy.dec[i] = dec[j];
+            copy.magnitude[i] = magnitude[j];
+            copy.colorTemperature[i] = colorTemperature[j];
+            copy.hipparcosId[i] = hipparcosId[j];
+            copy.nameIndex[i] = nameIndex[j];
+            copy.constellationIndex[i] = constellationIndex[j];
+            copy.stars[i] = stars[j];
+        }
+        return copy;
+    }
+
+    /**
+     * Return the index of the given name in the pool, adding it if it isn't there yet
+     *
+     * @param name the name
+     * @return the index of the given name in the pool
+     */
+    private int nameId(String name) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            nameIds.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Double the capacity of every column
+     */
+    private void grow() {
+        int capacity = ra.length * 2;
+        ra = Arrays.copyOf(ra, capacity);
+        dec = Arrays.copyOf(dec, capacity);
+        magnitude = Arrays.copyOf(magnitude, capacity);
+        colorTemperature = Arrays.copyOf(colorTemperature, capacity);
+        hipparcosId = Arrays.copyOf(hipparcosId, capacity);
+        nameIndex = Arrays.copyOf(nameIndex, capacity);
+        constellationIndex = Arrays.copyOf(constellationIndex, capacity);
+        stars = Arrays.copyOf(stars, capacity);
+    }
+}
@@ -13,6 +13,9 @@ import java.util.Objects;
  */
 public final class Sun extends CelestialObject {
 
+    // Magnitude of the sun
+    static final float MAGNITUDE = -26.7f;
+
     // Attributes specific to the Sun
     private final EclipticCoordinates eclipticPos;
     private final float meanAnomaly;
@@ -26,7 +29,7 @@ public final class Sun extends CelestialObject {
      * @param meanAnomaly   mean anomaly
      */
     public Sun(EclipticCoordinates eclipticPos, EquatorialCoordinates equatorialPos, float angularSize, float meanAnomaly) {
-        super("Sun", equatorialPos, angularSize, -26.7f);
+        super("Sun", equatorialPos, angularSize, MAGNITUDE);
 
         this.eclipticPos = Objects.requireNonNull(eclipticPos);
         this.meanAnomaly = meanAnomaly;
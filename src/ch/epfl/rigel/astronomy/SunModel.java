@@ -1,5 +1,6 @@
 package ch.epfl.rigel.astronomy;
 
+import ch.epfl.rigel.Preconditions;
 import ch.epfl.rigel.coordinates.EclipticCoordinates;
 import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
 import ch.epfl.rigel.math.Angle;
@@ -10,7 +11,7 @@ import ch.epfl.rigel.math.Angle;
  * @author Bastien Faivre (310929)
  * @author Kamil Mellouk (312327)
  */
-public enum SunModel implements CelestialObjectModel<Sun> {
+public enum SunModel implements SingleObjectModel<Sun> {
     SUN();
 
     // The longitude of the sun at J2010 (could be declared public, but only used locally so left private)
@@ -34,17 +35,87 @@ public enum SunModel implements CelestialObjectModel<Sun> {
      */
     @Override
     public Sun at(double daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion) {
-        double sunMeanAnomaly = EARTH_ROTATION_SPEED * daysSinceJ2010 + SUN_LON_AT_J2010 - SUN_LON_AT_PERIGEE;
-        double sunRealAnomaly = sunMeanAnomaly + 2 * SUN_EARTH_ECCENTRICITY * Math.sin(sunMeanAnomaly);
-        double sunGeocentricEclipticLon = Angle.normalizePositive(sunRealAnomaly + SUN_LON_AT_PERIGEE);
-        EclipticCoordinates sunEclipticCoordinates = EclipticCoordinates.of(sunGeocentricEclipticLon, 0);
+        double sunMeanAnomaly = meanAnomaly(daysSinceJ2010);
+        double sunRealAnomaly = realAnomaly(sunMeanAnomaly);
+        EclipticCoordinates sunEclipticCoordinates = EclipticCoordinates.of(eclipticLon(sunRealAnomaly), 0);
 
         return new Sun(
                 sunEclipticCoordinates,
                 eclipticToEquatorialConversion.apply(sunEclipticCoordinates),
-                (float) (THETA_0 * ((1 + SUN_EARTH_ECCENTRICITY * Math.cos(sunRealAnomaly)) / (1 - SUN_EARTH_ECCENTRICITY_SQUARED))),
+                (float) angularSize(sunRealAnomaly),
                 (float) sunMeanAnomaly
         );
     }
 
+    /**
+     * Compute the mean anomaly of the sun
+     *
+     * @param daysSinceJ2010 days since Epoch.J2010 (positive or negative)
+     * @return the mean anomaly of the sun (not normalized)
+     */
+    static double meanAnomaly(double daysSinceJ2010) {
+        return EARTH_ROTATION_SPEED * daysSinceJ2010 + SUN_LON_AT_J2010 - SUN_LON_AT_PERIGEE;
+    }
+
+    /**
+     * Compute the real anomaly of the sun
+     *
+     * @param meanAnomaly the mean anomaly of the sun
+     * @return the real anomaly of the sun
+     */
+    static double realAnomaly(double meanAnomaly) {
+        return meanAnomaly + 2 * SUN_EARTH_ECCENTRICITY * Math.sin(meanAnomaly);
+    }
+
+    /**
+     * Compute the geocentric ecliptic longitude of the sun
+     *
+     * @param realAnomaly the real anomaly of the sun
+     * @return the geocentric ecliptic longitude of the sun, in [0, 2*PI[
+     */
+    static double eclipticLon(double realAnomaly) {
+        return Angle.normalizePositive(realAnomaly + SUN_LON_AT_PERIGEE);
+    }
+
+    /**
+     * Compute the angular size of the sun
+     *
+     * @param realAnomaly the real anomaly of the sun
+     * @return the angular size of the sun
+     */
+    static double angularSize(double realAnomaly) {
+        return THETA_0 * ((1 + SUN_EARTH_ECCENTRICITY * Math.cos(realAnomaly)) / (1 - SUN_EARTH_ECCENTRICITY_SQUARED));
+    }
+
+    /**
+     * Compute the model at a range of instants with the same conversion, writing the results into arrays without
+     * creating any object
+     *
+     * @param daysSinceJ2010                 the instants, in days since Epoch.J2010 (positive or negative)
+     * @param eclipticToEquatorialConversion conversion of the objects' coordinates
+     * @param outRa                          where to write the right ascensions, in rad
+     * @param outDec                         where to write the declinations, in rad
+     * @param outAngularSizes                where to write the angular sizes, in rad
+     * @param outMagnitudes                  where to write the magnitudes
+     * @param from                           the first index of the range
+     * @param to                             the index following the last index of the range
+     * @throws IllegalArgumentException if the range isn't contained in the arrays
+     */
+    @Override
+    public void atBatch(double[] daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion,
+                        double[] outRa, double[] outDec, double[] outAngularSizes, double[] outMagnitudes,
+                        int from, int to) {
+        Preconditions.checkArgument(to <= daysSinceJ2010.length);
+        Preconditions.checkBatchRange(from, to, outRa, outDec, outAngularSizes, outMagnitudes);
+        for (int i = from; i < to; i++) {
+            double sunRealAnomaly = realAnomaly(meanAnomaly(daysSinceJ2010[i]));
+            outRa[i] = eclipticLon(sunRealAnomaly);
+            outDec[i] = 0;
+            outAngularSizes[i] = angularSize(sunRealAnomaly);
+            outMagnitudes[i] = Sun.MAGNITUDE;
+        }
+        // the ecliptic coordinates are converted in place
+        eclipticToEquatorialConversion.applyBatch(outRa, outDec, outRa, outDec, from, to);
+    }
+
 }
@@ -1,5 +1,6 @@
 package ch.epfl.rigel.coordinates;
 
+import ch.epfl.rigel.Preconditions;
 import ch.epfl.rigel.astronomy.Epoch;
 import ch.epfl.rigel.math.Angle;
 import ch.epfl.rigel.math.Polynomial;
@@ -35,7 +36,16 @@ public final class EclipticToEquatorialConversion implements Function<EclipticCo
      * @param when date-time couple with time zone
      */
     public EclipticToEquatorialConversion(ZonedDateTime when) {
-        double eclipticObliqueness = OBLIQUENESS_POLYNOMIAL.at(Epoch.J2000.julianCenturiesUntil(when));
+        this(when.toInstant().toEpochMilli());
+    }
+
+    /**
+     * Constructor of the coordinates system change, without handling any time zone
+     *
+     * @param epochMillis the instant, in milliseconds since 01.01.1970 0am UTC
+     */
+    public EclipticToEquatorialConversion(long epochMillis) {
+        double eclipticObliqueness = OBLIQUENESS_POLYNOMIAL.at(Epoch.J2000.julianCenturiesUntil(epochMillis));
         cosOfEclipticObliqueness = Math.cos(eclipticObliqueness);
         sinOfEclipticObliqueness = Math.sin(eclipticObliqueness);
     }
@@ -55,6 +65,28 @@ public final class EclipticToEquatorialConversion implements Function<EclipticCo
         );
     }
 
+    /**
+     * Convert a range of ecliptic coordinates given as arrays, with the same formulas as apply but without
+     * creating any object nor checking each value (the output arrays can be the input arrays)
+     *
+     * @param lon    the ecliptic longitudes, in rad
+     * @param lat    the ecliptic latitudes, in rad
+     * @param outRa  where to write the right ascensions, in rad
+     * @param outDec where to write the declinations, in rad
+     * @param from   the first index of the range
+     * @param to     the index following the last index of the range
+     * @throws IllegalArgumentException if the range isn't contained in the arrays
+     */
+    public void applyBatch(double[] lon, double[] lat, double[] outRa, double[] outDec, int from, int to) {
+        Preconditions.checkBatchRange(from, to, lon, lat, outRa, outDec);
+        for (int i = from; i < to; i++) {
+            double eclLon = lon[i];
+            double eclLat = lat[i];
+            double sinEclLon = Math.sin(eclLon);
+            outRa[i] = Angle.normalizePositive(Math.atan2(sinEclLon * cosOfEclipticObliqueness - Math.tan(eclLat) * sinOfEclipticObliqueness, Math.cos(eclLon)));
+            outDec[i] = Math.asin(Math.sin(eclLat) * cosOfEclipticObliqueness + Math.cos(eclLat) * sinOfEclipticObliqueness * sinEclLon);
+        }
+    }
 
     /**
      * @return nothing
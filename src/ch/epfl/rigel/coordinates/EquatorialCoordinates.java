@@ -45,6 +45,26 @@ public final class EquatorialCoordinates extends SphericalCoordinates {
         );
     }
 
+    /**
+     * Check if ra is contained in [0, 2PI[
+     *
+     * @param ra right ascension in rad to check
+     * @return {@code true} if and only if the right ascension is contained in [0, 2PI[
+     */
+    public static boolean isValidRa(double ra) {
+        return RIGHT_OPEN_INTERVAL_ZERO_TO_TAU.contains(ra);
+    }
+
+    /**
+     * Check if dec is contained in [-PI/2, PI/2]
+     *
+     * @param dec declination in rad to check
+     * @return {@code true} if and only if the declination is contained in [-PI/2, PI/2]
+     */
+    public static boolean isValidDec(double dec) {
+        return CLOSED_INTERVAL_SYM_PI.contains(dec);
+    }
+
     /**
      * Getter for the right ascension in rad
      *
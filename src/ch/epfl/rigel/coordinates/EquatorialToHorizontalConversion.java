@@ -1,5 +1,6 @@
 package ch.epfl.rigel.coordinates;
 
+import ch.epfl.rigel.Preconditions;
 import ch.epfl.rigel.astronomy.SiderealTime;
 import ch.epfl.rigel.math.Angle;
 
@@ -29,7 +30,17 @@ public final class EquatorialToHorizontalConversion implements Function<Equatori
      * @param where the geographic coordinates of the place
      */
     public EquatorialToHorizontalConversion(ZonedDateTime when, GeographicCoordinates where) {
-        siderealTime = SiderealTime.local(when, where);
+        this(when.toInstant().toEpochMilli(), where);
+    }
+
+    /**
+     * Constructor of the coordinates system change, without handling any time zone
+     *
+     * @param epochMillis the instant, in milliseconds since 01.01.1970 0am UTC
+     * @param where       the geographic coordinates of the place
+     */
+    public EquatorialToHorizontalConversion(long epochMillis, GeographicCoordinates where) {
+        siderealTime = SiderealTime.local(epochMillis, where);
         observerSinLat = Math.sin(where.lat());
         observerCosLat = Math.cos(where.lat());
     }
@@ -55,6 +66,71 @@ public final class EquatorialToHorizontalConversion implements Function<Equatori
         );
     }
 
+    /**
+     * Convert a range of equatorial coordinates given as arrays, with the same formulas as apply but without
+     * creating any object nor checking each value (the output arrays can be the input arrays)
+     *
+     * @param ra     the right ascensions, in rad
+     * @param dec    the declinations, in rad
+     * @param outAz  where to write the azimuths, in rad
+     * @param outAlt where to write the altitudes, in rad
+     * @param from   the first index of the range
+     * @param to     the index following the last index of the range
+     * @throws IllegalArgumentException if the range isn't contained in the arrays
+     */
+    public void applyBatch(double[] ra, double[] dec, double[] outAz, double[] outAlt, int from, int to) {
+        Preconditions.checkBatchRange(from, to, ra, dec, outAz, outAlt);
+        for (int i = from; i < to; i++) {
+            double hourAngle = siderealTime - ra[i];
+            double sinEquDec = Math.sin(dec[i]);
+            double cosEquDec = Math.cos(dec[i]);
+            double altitude = Math.asin(sinEquDec * observerSinLat + cosEquDec * observerCosLat * Math.cos(hourAngle));
+
+            outAz[i] = Angle.normalizePositive(Math.atan2(-cosEquDec * observerCosLat * Math.sin(hourAngle), sinEquDec - observerSinLat * Math.sin(altitude)));
+            outAlt[i] = altitude;
+        }
+    }
+
+    /**
+     * Compute the sine of the altitude of a range of equatorial unit vectors (cos(dec)cos(ra), cos(dec)sin(ra),
+     * sin(dec)), without computing any trigonometric function per point
+     *
+     * @param vx        the x-components of the equatorial unit vectors
+     * @param vy        the y-components of the equatorial unit vectors
+     * @param vz        the z-components of the equatorial unit vectors
+     * @param outSinAlt where to write the sines of the altitudes
+     * @param from      the first index of the range
+     * @param to        the index following the last index of the range
+     * @throws IllegalArgumentException if the range isn't contained in the arrays
+     * @see EquatorialToPlaneProjection#unitVectors(double[], double[], int)
+     */
+    public void sinAltitudes(double[] vx, double[] vy, double[] vz, double[] outSinAlt, int from, int to) {
+        Preconditions.checkBatchRange(from, to, vx, vy, vz, outSinAlt);
+        // cos(hourAngle) * cos(dec) = vx * cos(siderealTime) + vy * sin(siderealTime)
+        double cosTime = observerCosLat * Math.cos(siderealTime);
+        double sinTime = observerCosLat * Math.sin(siderealTime);
+        for (int i = from; i < to; i++) {
+            outSinAlt[i] = vz[i] * observerSinLat + vx[i] * cosTime + vy[i] * sinTime;
+        }
+    }
+
+    /**
+     * Return the equatorial coordinates corresponding to the given horizontal coordinates
+     *
+     * @param hor the given horizontal coordinates
+     * @return the equatorial coordinates corresponding to the given horizontal coordinates
+     */
+    public EquatorialCoordinates inverseApply(HorizontalCoordinates hor) {
+        double sinAlt = Math.sin(hor.alt());
+        double cosAlt = Math.cos(hor.alt());
+        double declination = Math.asin(Math.max(-1, Math.min(1,
+                sinAlt * observerSinLat + cosAlt * observerCosLat * Math.cos(hor.az()))));
+        // same formula as the azimuth, the conversion being symmetric
+        double hourAngle = Math.atan2(-cosAlt * observerCosLat * Math.sin(hor.az()), sinAlt - observerSinLat * Math.sin(declination));
+
+        return EquatorialCoordinates.of(Angle.normalizePositive(siderealTime - hourAngle), declination);
+    }
+
     /**
      * @return nothing
      * @throws UnsupportedOperationException the exception to throw
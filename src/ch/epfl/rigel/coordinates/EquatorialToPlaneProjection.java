@@ -0,0 +1,289 @@
+package ch.epfl.rigel.coordinates;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.astronomy.SiderealTime;
+
+import java.time.ZonedDateTime;
+import java.util.function.Function;
+
+/**
+ * Conversion from equatorial to horizontal coordinates followed by a stereographic projection, computed on the
+ * equatorial unit vectors with a single rotation matrix so that no trigonometric function is needed per point
+ * <p>
+ * The matrix rotates the equatorial unit vector (cos(dec)cos(ra), cos(dec)sin(ra), sin(dec)) to the frame of the
+ * projection, whose first two axes are those of the plane and whose third axis points to the center of the
+ * projection : the point is then projected with a single division.
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see EquatorialToHorizontalConversion
+ * @see StereographicProjection
+ */
+public final class EquatorialToPlaneProjection implements Function<EquatorialCoordinates, CartesianCoordinates> {
+
+    // Projection of the ranges of unit vectors with the vector API, or null if it wasn't compiled or the module
+    // jdk.incubator.vector is absent
+    private static final BatchKernel VECTOR_KERNEL = vectorKernel();
+
+    // Rows of the rotation matrix giving the x-coordinate (numerator), the y-coordinate (numerator) and the cosine
+    // of the angular distance to the center of the projection
+    private final double xx, xy, xz;
+    private final double yx, yy, yz;
+    private final double wx, wy, wz;
+    // Row of the matrix of the conversion giving the sine of the altitude
+    private final double ux, uy, uz;
+    // The three rows of the rotation matrix, in the order x, y, w, for the kernels projecting ranges of unit vectors
+    private final double[] matrix;
+
+    /**
+     * Constructor of the conversion and projection
+     *
+     * @param when       date-time couple with time zone
+     * @param where      the geographic coordinates of the place
+     * @param projection the stereographic projection
+     */
+    public EquatorialToPlaneProjection(ZonedDateTime when, GeographicCoordinates where,
+                                       StereographicProjection projection) {
+        this(when.toInstant().toEpochMilli(), where, projection);
+    }
+
+    /**
+     * Constructor of the conversion and projection, without handling any time zone
+     *
+     * @param epochMillis the instant, in milliseconds since 01.01.1970 0am UTC
+     * @param where       the geographic coordinates of the place
+     * @param projection  the stereographic projection
+     */
+    public EquatorialToPlaneProjection(long epochMillis, GeographicCoordinates where,
+                                       StereographicProjection projection) {
+        double siderealTime = SiderealTime.local(epochMillis, where);
+        double sinTime = Math.sin(siderealTime);
+        double cosTime = Math.cos(siderealTime);
+        double sinLat = Math.sin(where.lat());
+        double cosLat = Math.cos(where.lat());
+
+        // horizontal frame (east, north, up), with the hour angle being the sidereal time minus the right ascension
+        double ex = -sinTime, ey = cosTime, ez = 0;
+        double nx = -sinLat * cosTime, ny = -sinLat * sinTime, nz = cosLat;
+        ux = cosLat * cosTime;
+        uy = cosLat * sinTime;
+        uz = sinLat;
+
+        HorizontalCoordinates center = projection.center();
+        double sinCenterAz = Math.sin(center.az());
+        double cosCenterAz = Math.cos(center.az());
+        double sinCenterAlt = Math.sin(center.alt());
+        double cosCenterAlt = Math.cos(center.alt());
+
+        // component of the horizontal vector along the azimuth of the center
+        double cx = nx * cosCenterAz + ex * sinCenterAz;
+        double cy = ny * cosCenterAz + ey * sinCenterAz;
+        double cz = nz * cosCenterAz + ez * sinCenterAz;
+
+        xx = ex * cosCenterAz - nx * sinCenterAz;
+        xy = ey * cosCenterAz - ny * sinCenterAz;
+        xz = ez * cosCenterAz - nz * sinCenterAz;
+        yx = ux * cosCenterAlt - cx * sinCenterAlt;
+        yy = uy * cosCenterAlt - cy * sinCenterAlt;
+        yz = uz * cosCenterAlt - cz * sinCenterAlt;
+        wx = ux * sinCenterAlt + cx * cosCenterAlt;
+        wy = uy * sinCenterAlt + cy * cosCenterAlt;
+        wz = uz * sinCenterAlt + cz * cosCenterAlt;
+        matrix = new double[]{xx, xy, xz, yx, yy, yz, wx, wy, wz};
+    }
+
+    /**
+     * Return the equatorial unit vectors of the given positions, as three columns
+     *
+     * @param ra    the right ascensions, in rad
+     * @param dec   the declinations, in rad
+     * @param count the number of positions
+     * @return the array {xs, ys, zs} of the columns of the components of the unit vectors of the first count positions
+     * @throws IllegalArgumentException if count is negative or an array is shorter than count
+     */
+    public static double[][] unitVectors(double[] ra, double[] dec, int count) {
+        Preconditions.checkArgument(0 <= count && count <= Math.min(ra.length, dec.length));
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        double[] zs = new double[count];
+        for (int i = 0; i < count; i++) {
+            double cosDec = Math.cos(dec[i]);
+            xs[i] = cosDec * Math.cos(ra[i]);
+            ys[i] = cosDec * Math.sin(ra[i]);
+            zs[i] = Math.sin(dec[i]);
+        }
+        return new double[][]{xs, ys, zs};
+    }
+
+    /**
+     * Return the projection on the plane of the given equatorial coordinates
+     *
+     * @param equ the given equatorial coordinates
+     * @return the cartesian coordinates of the projection of the point
+     */
+    @Override
+    public CartesianCoordinates apply(EquatorialCoordinates equ) {
+        double cosDec = Math.cos(equ.dec());
+        double vx = cosDec * Math.cos(equ.ra());
+        double vy = cosDec * Math.sin(equ.ra());
+        double vz = Math.sin(equ.dec());
+        double d = 1d / (1 + wx * vx + wy * vy + wz * vz);
+        return CartesianCoordinates.of(d * (xx * vx + xy * vy + xz * vz), d * (yx * vx + yy * vy + yz * vz));
+    }
+
+    /**
+     * Project a range of unit vectors, without creating any object nor computing any trigonometric function
+     * <p>
+     * The components are stored in separate columns and the loop only contains multiplications, additions and
+     * a division : it is written with the vector API when the module jdk.incubator.vector is available, and is
+     * otherwise a scalar loop that the JIT compiler can vectorize with the SIMD instructions of the processor (when
+     * there are none, the same loop simply runs one point at a time). Both give the same results. The output arrays
+     * can be input arrays.
+     *
+     * @param vx   the x-components of the equatorial unit vectors
+     * @param vy   the y-components of the equatorial unit vectors
+     * @param vz   the z-components of the equatorial unit vectors
+     * @param outX where to write the x-coordinates on the plane
+     * @param outY where to write the y-coordinates on the plane
+     * @param from the first index of the range
+     * @param to   the index following the last index of the range
+     * @throws IllegalArgumentException if the range isn't contained in the arrays
+     * @see #unitVectors(double[], double[], int)
+     */
+    public void applyBatch(double[] vx, double[] vy, double[] vz, double[] outX, double[] outY, int from, int to) {
+        Preconditions.checkBatchRange(from, to, vx, vy, outX, outY);
+        Preconditions.checkArgument(to <= vz.length);
+        if (VECTOR_KERNEL != null) {
+            VECTOR_KERNEL.project(matrix, vx, vy, vz, outX, outY, from, to);
+        } else {
+            projectScalar(matrix, vx, vy, vz, outX, outY, from, to);
+        }
+    }
+
+    /**
+     * Project a range of unit vectors with the scalar loop, whether the vector API is available or not
+     *
+     * @param vx   the x-components of the equatorial unit vectors
+     * @param vy   the y-components of the equatorial unit vectors
+     * @param vz   the z-components of the equatorial unit vectors
+     * @param outX where to write the x-coordinates on the plane
+     * @param outY where to write the y-coordinates on the plane
+     * @param from the first index of the range
+     * @param to   the index following the last index of the range
+     * @throws IllegalArgumentException if the range isn't contained in the arrays
+     */
+    void applyBatchScalar(double[] vx, double[] vy, double[] vz, double[] outX, double[] outY, int from, int to) {
+        Preconditions.checkBatchRange(from, to, vx, vy, outX, outY);
+        Preconditions.checkArgument(to <= vz.length);
+        projectScalar(matrix, vx, vy, vz, outX, outY, from, to);
+    }
+
+    /**
+     * Check if the ranges of unit vectors are projected with the vector API
+     *
+     * @return {@code true} if and only if the module jdk.incubator.vector is available
+     */
+    static boolean hasVectorKernel() {
+        return VECTOR_KERNEL != null;
+    }
+
+    /**
+     * Project a range of unit vectors one point at a time (the range being assumed to be valid)
+     *
+     * @param m    the rows of the rotation matrix, in the order x, y, w
+     * @param vx   the x-components of the equatorial unit vectors
+     * @param vy   the y-components of the equatorial unit vectors
+     * @param vz   the z-components of the equatorial unit vectors
+     * @param outX where to write the x-coordinates on the plane
+     * @param outY where to write the y-coordinates on the plane
+     * @param from the first index of the range
+     * @param to   the index following the last index of the range
+     */
+    static void projectScalar(double[] m, double[] vx, double[] vy, double[] vz, double[] outX, double[] outY,
+                              int from, int to) {
+        double xx = m[0], xy = m[1], xz = m[2];
+        double yx = m[3], yy = m[4], yz = m[5];
+        double wx = m[6], wy = m[7], wz = m[8];
+        for (int i = from; i < to; i++) {
+            double x = vx[i];
+            double y = vy[i];
+            double z = vz[i];
+            double d = 1d / (1 + wx * x + wy * y + wz * z);
+            outX[i] = d * (xx * x + xy * y + xz * z);
+            outY[i] = d * (yx * x + yy * y + yz * z);
+        }
+    }
+
+    /**
+     * Load the kernel written with the vector API, which is only possible if it was compiled (from the source root
+     * src-vector) and if the module jdk.incubator.vector is available
+     *
+     * @return the kernel written with the vector API, or null if it wasn't compiled or the module is absent
+     */
+    private static BatchKernel vectorKernel() {
+        try {
+            return (BatchKernel) Class.forName("ch.epfl.rigel.coordinates.VectorPlaneProjectionKernel")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Compute the sine of the altitude of a range of unit vectors, to know which ones are above the horizon
+     *
+     * @param vx        the x-components of the equatorial unit vectors
+     * @param vy        the y-components of the equatorial unit vectors
+     * @param vz        the z-components of the equatorial unit vectors
+     * @param outSinAlt where to write the sines of the altitudes
+     * @param from      the first index of the range
+     * @param to        the index following the last index of the range
+     * @throws IllegalArgumentException if the range isn't contained in the arrays
+     */
+    public void sinAltitudes(double[] vx, double[] vy, double[] vz, double[] outSinAlt, int from, int to) {
+        Preconditions.checkBatchRange(from, to, vx, vy, vz, outSinAlt);
+        for (int i = from; i < to; i++) {
+            outSinAlt[i] = ux * vx[i] + uy * vy[i] + uz * vz[i];
+        }
+    }
+
+    /**
+     * Projection of a range of unit vectors on the plane, given the rows of the rotation matrix
+     */
+    interface BatchKernel {
+
+        /**
+         * Project a range of unit vectors (the range being assumed to be valid)
+         *
+         * @param m    the rows of the rotation matrix, in the order x, y, w
+         * @param vx   the x-components of the equatorial unit vectors
+         * @param vy   the y-components of the equatorial unit vectors
+         * @param vz   the z-components of the equatorial unit vectors
+         * @param outX where to write the x-coordinates on the plane
+         * @param outY where to write the y-coordinates on the plane
+         * @param from the first index of the range
+         * @param to   the index following the last index of the range
+         */
+        void project(double[] m, double[] vx, double[] vy, double[] vz, double[] outX, double[] outY,
+                     int from, int to);
+    }
+
+    /**
+     * @return nothing
+     * @throws UnsupportedOperationException the exception to throw
+     */
+    @Override
+    public final int hashCode() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @param obj the object
+     * @return nothing
+     * @throws UnsupportedOperationException the exception to throw
+     */
+    @Override
+    public final boolean equals(Object obj) {
+        throw new UnsupportedOperationException();
+    }
+}
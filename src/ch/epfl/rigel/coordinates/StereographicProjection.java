@@ -1,5 +1,6 @@
 package ch.epfl.rigel.coordinates;
 
+import ch.epfl.rigel.Preconditions;
 import ch.epfl.rigel.math.Angle;
 
 import java.util.Locale;
@@ -36,6 +37,15 @@ public final class StereographicProjection implements Function<HorizontalCoordin
         this.sinCenterAlt = Math.sin(center.alt());
     }
 
+    /**
+     * Getter for the center of the projection
+     *
+     * @return the center point of the projection
+     */
+    public HorizontalCoordinates center() {
+        return center;
+    }
+
     /**
      * Compute the coordinates for the circle center of the StereographicProjection of a parallel
      *
@@ -87,6 +97,33 @@ public final class StereographicProjection implements Function<HorizontalCoordin
         );
     }
 
+    /**
+     * Project a range of horizontal coordinates given as arrays, with the same formulas as apply but without
+     * creating any object (the output arrays can be the input arrays)
+     *
+     * @param az   the azimuths, in rad
+     * @param alt  the altitudes, in rad
+     * @param outX where to write the x-coordinates
+     * @param outY where to write the y-coordinates
+     * @param from the first index of the range
+     * @param to   the index following the last index of the range
+     * @throws IllegalArgumentException if the range isn't contained in the arrays
+     */
+    public void applyBatch(double[] az, double[] alt, double[] outX, double[] outY, int from, int to) {
+        Preconditions.checkBatchRange(from, to, az, alt, outX, outY);
+        for (int i = from; i < to; i++) {
+            double altitudeSinus = Math.sin(alt[i]);
+            double altitudeCosine = Math.cos(alt[i]);
+
+            double azimuthDifference = az[i] - centerAz;
+            double azimuthDifferenceCosine = Math.cos(azimuthDifference);
+            double d = 1d / (1 + altitudeSinus * sinCenterAlt + altitudeCosine * cosCenterAlt * azimuthDifferenceCosine);
+
+            outX[i] = d * altitudeCosine * Math.sin(azimuthDifference);
+            outY[i] = d * (altitudeSinus * cosCenterAlt - altitudeCosine * sinCenterAlt * azimuthDifferenceCosine);
+        }
+    }
+
     /**
      * Compute the inverse StereographicProjection of given cartesian coordinates
      *
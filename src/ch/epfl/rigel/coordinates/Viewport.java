@@ -0,0 +1,117 @@
+package ch.epfl.rigel.coordinates;
+
+import ch.epfl.rigel.math.ClosedInterval;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Part of the sky visible on screen : a stereographic projection and the bounds of the visible part of its plane
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see StereographicProjection
+ */
+public final class Viewport {
+
+    private final StereographicProjection projection;
+    // Bounds of the visible part of the plane of the projection
+    private final ClosedInterval xBounds;
+    private final ClosedInterval yBounds;
+    // Whether the objects below the horizon are hidden
+    private final boolean horizonCulling;
+
+    /**
+     * Constructor of a viewport
+     *
+     * @param projection     the projection
+     * @param xBounds        the bounds of the visible x-coordinates on the plane of the projection
+     * @param yBounds        the bounds of the visible y-coordinates on the plane of the projection
+     * @param horizonCulling whether the objects below the horizon are hidden
+     */
+    public Viewport(StereographicProjection projection, ClosedInterval xBounds, ClosedInterval yBounds,
+                    boolean horizonCulling) {
+        this.projection = Objects.requireNonNull(projection);
+        this.xBounds = Objects.requireNonNull(xBounds);
+        this.yBounds = Objects.requireNonNull(yBounds);
+        this.horizonCulling = horizonCulling;
+    }
+
+    /**
+     * Getter for the projection
+     *
+     * @return the projection
+     */
+    public StereographicProjection projection() {
+        return projection;
+    }
+
+    /**
+     * Getter for the bounds of the visible x-coordinates
+     *
+     * @return the bounds of the visible x-coordinates on the plane of the projection
+     */
+    public ClosedInterval xBounds() {
+        return xBounds;
+    }
+
+    /**
+     * Getter for the bounds of the visible y-coordinates
+     *
+     * @return the bounds of the visible y-coordinates on the plane of the projection
+     */
+    public ClosedInterval yBounds() {
+        return yBounds;
+    }
+
+    /**
+     * Getter for the horizon culling
+     *
+     * @return {@code true} if and only if the objects below the horizon are hidden
+     */
+    public boolean horizonCulling() {
+        return horizonCulling;
+    }
+
+    /**
+     * Check if a point of the plane of the projection is visible
+     *
+     * @param x the x-coordinate of the point
+     * @param y the y-coordinate of the point
+     * @return {@code true} if and only if the point is in the bounds of the viewport
+     */
+    public boolean contains(double x, double y) {
+        return xBounds.contains(x) && yBounds.contains(y);
+    }
+
+    /**
+     * Check if the visible part of the plane of this viewport contains the one of another viewport
+     * (both being assumed to be on the plane of the same projection)
+     *
+     * @param other the other viewport
+     * @return {@code true} if and only if the bounds of the other viewport are inside the bounds of this one and
+     * this one doesn't hide more objects below the horizon
+     */
+    public boolean covers(Viewport other) {
+        return xBounds.low() <= other.xBounds.low() && other.xBounds.high() <= xBounds.high()
+                && yBounds.low() <= other.yBounds.low() && other.yBounds.high() <= yBounds.high()
+                && (!horizonCulling || other.horizonCulling);
+    }
+
+    /**
+     * Return the angular radius of a cap around the center of the projection containing the whole viewport
+     *
+     * @return the angular distance between the center of the projection and the farthest visible point, in rad
+     */
+    public double angularRadius() {
+        double maxX = Math.max(Math.abs(xBounds.low()), Math.abs(xBounds.high()));
+        double maxY = Math.max(Math.abs(yBounds.low()), Math.abs(yBounds.high()));
+        // a point at a distance rho of the center of the plane is at an angle 2 * atan(rho) of the center
+        return 2 * Math.atan(Math.hypot(maxX, maxY));
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "Viewport of %s, x in %s, y in %s", projection, xBounds, yBounds);
+    }
+}
@@ -1,11 +1,13 @@
 package ch.epfl.rigel.gui;
 
+import ch.epfl.rigel.CsvCursor;
 import ch.epfl.rigel.Preconditions;
 import ch.epfl.rigel.math.ClosedInterval;
 import javafx.scene.paint.Color;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -51,16 +53,18 @@ public final class BlackBodyColor {
      * @throws UncheckedIOException in case of input/output exception
      */
     private static Map<Double, String> load() throws UncheckedIOException {
-        try (InputStream inputStream = BlackBodyColor.class.getResourceAsStream(COLOR_FILE);
-             InputStreamReader inputStreamReader = new InputStreamReader(inputStream, StandardCharsets.US_ASCII);
-             BufferedReader bufferedReader = new BufferedReader(inputStreamReader)) {
+        try (InputStream inputStream = BlackBodyColor.class.getResourceAsStream(COLOR_FILE)) {
 
+            // the file uses fixed width columns, read in place by the cursor
+            CsvCursor cursor = CsvCursor.of(inputStream, ' ');
             Map<Double, String> loaderMap = new HashMap<>();
 
             // add all pairs (temperature, color)
-            bufferedReader.lines()
-                    .filter(l -> !(l.charAt(0) == '#') && l.startsWith("10deg", 10))
-                    .forEach(l -> loaderMap.put(Double.parseDouble(l.substring(1, 6)), l.substring(80, 87)));
+            while (cursor.nextLine()) {
+                if (!cursor.range(0, 1).startsWith("#") && cursor.range(10, 15).startsWith("10deg")) {
+                    loaderMap.put(cursor.range(1, 6).doubleValue(), cursor.range(80, 87).stringValue());
+                }
+            }
 
             return loaderMap;
 
@@ -1,12 +1,10 @@
 package ch.epfl.rigel.gui;
 
+import ch.epfl.rigel.CsvCursor;
 import ch.epfl.rigel.coordinates.GeographicCoordinates;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -115,34 +113,25 @@ public final class CityCatalogue {
 
         @Override
         public void load(InputStream inputStream, CityCatalogue.Builder builder) throws IOException {
-            try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            try (inputStream) {
+                // the fields are read in place (quotes and UTF-8 handled by the cursor), without splitting the lines
+                CsvCursor columns = CsvCursor.of(inputStream, ',');
 
-                // add all cities
-                bufferedReader.lines()
-                        .skip(1)
-                        .forEach(l -> {
-                            String[] columns = l.split(",");
-                            builder.addCity(new City(
-                                    ignoreQuotes(columns[nameIndex]),
-                                    ignoreQuotes(columns[countryIndex]),
-                                    GeographicCoordinates.ofDeg(
-                                            Double.parseDouble(ignoreQuotes(columns[lonIndex])),
-                                            Double.parseDouble((ignoreQuotes(columns[latIndex])))
-                                    )
-                            ));
-                        });
+                // skipping the first line (column headers)
+                columns.nextLine();
 
+                // add all cities
+                while (columns.nextLine()) {
+                    String name = columns.field(nameIndex).stringValue();
+                    double lat = columns.field(latIndex).doubleValue();
+                    double lon = columns.field(lonIndex).doubleValue();
+                    builder.addCity(new City(
+                            name,
+                            columns.field(countryIndex).stringValue(),
+                            GeographicCoordinates.ofDeg(lon, lat)
+                    ));
+                }
             }
         }
-
-        /**
-         * Ignore the quotes of the given string
-         *
-         * @param s the given string
-         * @return the given string without quotes
-         */
-        private static String ignoreQuotes(String s) {
-            return s.substring(1, s.length() - 1);
-        }
     }
 }
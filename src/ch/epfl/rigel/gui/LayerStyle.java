@@ -0,0 +1,92 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.rigel.astronomy.CelestialObject;
+import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.astronomy.StarCatalogue;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+
+import java.util.List;
+
+/**
+ * Style in which the objects of a layer of the sky are drawn on the canvas
+ *
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ * @see SkyCanvasManager#layerStyles()
+ */
+@FunctionalInterface
+public interface LayerStyle {
+
+    /**
+     * Style of the stars, read from the columns of the catalogue so that no Star is created : a disk whose size
+     * depends on the magnitude and whose color depends on the temperature, named if the star is bright
+     */
+    LayerStyle STARS = (ctx, sky, objects, index, x, y, planeToCanvas, drawNames) -> {
+        StarCatalogue catalogue = sky.catalogue();
+        int i = sky.starIndex(index);
+        double magnitude = catalogue.magnitude(i);
+        Color c = BlackBodyColor.colorForTemperature(catalogue.colorTemperature(i));
+        SkyCanvasPainter.fillDisk(ctx, x, y,
+                SkyCanvasPainter.transformedDiameter(magnitude, sky.projection(), planeToCanvas), c);
+        if (magnitude < 1.5 && drawNames) {
+            ctx.setStroke(c);
+            ctx.strokeText(catalogue.name(i), x, y);
+        }
+    };
+    /**
+     * Style of the sun : its image with a halo, named in yellow
+     */
+    LayerStyle SUN = (ctx, sky, objects, index, x, y, planeToCanvas, drawNames) -> {
+        CelestialObject sun = objects.get(index);
+        double tempDiam = sky.projection().applyToAngle(sun.angularSize());
+        double haloDiameter = 2.2 * planeToCanvas.deltaTransform(tempDiam, 0).getX();
+        Image sunImage = new Image(LayerStyle.class.getResourceAsStream("/sun.png"),
+                haloDiameter, haloDiameter, true, true);
+        ctx.drawImage(sunImage, x - haloDiameter / 2, y - haloDiameter / 2);
+        if (drawNames) {
+            ctx.setStroke(Color.YELLOW);
+            ctx.strokeText(sun.name(), x, y);
+        }
+    };
+    /**
+     * Style of the objects of the layers without their own style
+     */
+    LayerStyle DEFAULT = disk(Color.PLUM, Color.PLUM);
+
+    /**
+     * Return the style drawing the objects as disks whose size depends on their magnitude
+     *
+     * @param fill  the color of the disks
+     * @param names the color of the names of the objects
+     * @return the style drawing the objects as disks of the given color
+     */
+    static LayerStyle disk(Color fill, Color names) {
+        return (ctx, sky, objects, index, x, y, planeToCanvas, drawNames) -> {
+            CelestialObject object = objects.get(index);
+            SkyCanvasPainter.fillDisk(ctx, x, y,
+                    SkyCanvasPainter.transformedDiameter(object.magnitude(), sky.projection(), planeToCanvas), fill);
+            if (drawNames) {
+                ctx.setStroke(names);
+                ctx.strokeText(object.name(), x, y);
+            }
+        };
+    }
+
+    /**
+     * Draw an object of a layer on the canvas
+     *
+     * @param ctx           the graphics context of the canvas
+     * @param sky           the sky
+     * @param objects       the objects of the layer (only created when asked for the stars)
+     * @param index         the index of the object among the objects of its layer
+     * @param x             the x-coordinate of the object on the canvas
+     * @param y             the y-coordinate of the object on the canvas
+     * @param planeToCanvas transformation
+     * @param drawNames     boolean indicating whether to draw the name of the object
+     */
+    void draw(GraphicsContext ctx, ObservedSky sky, List<? extends CelestialObject> objects, int index,
+              double x, double y, Transform planeToCanvas, boolean drawNames);
+}
@@ -1,6 +1,7 @@
 package ch.epfl.rigel.gui;
 
 import ch.epfl.rigel.astronomy.AsterismLoader;
+import ch.epfl.rigel.astronomy.BinaryCatalogueLoader;
 import ch.epfl.rigel.astronomy.CelestialObject;
 import ch.epfl.rigel.astronomy.HygDatabaseLoader;
 import ch.epfl.rigel.astronomy.StarCatalogue;
@@ -33,9 +34,12 @@ import javafx.util.converter.NumberStringConverter;
 
 import javax.imageio.ImageIO;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
@@ -98,6 +102,8 @@ public class Main extends Application {
 
         skyCanvasManager = createManager();
         canvas = skyCanvasManager.canvas();
+        // the skies are computed in the background, so that dragging or animating the time doesn't freeze the window
+        skyCanvasManager.backgroundComputationProperty().set(true);
 
         // put the data for check boxes
         checkBoxesData.put("Stars", skyCanvasManager.drawStarsProperty());
@@ -525,16 +531,41 @@ public class Main extends Application {
      * @throws IOException if there is an input exception
      */
     private SkyCanvasManager createManager() throws IOException {
-        try (InputStream hs = getClass().getResourceAsStream("/hygdata_v3.csv");
+        try (InputStream bs = binaryCatalogueStream();
+             InputStream hs = bs == null ? getClass().getResourceAsStream("/hygdata_v3.csv") : null;
              InputStream as = getClass().getResourceAsStream("/asterisms.txt")) {
+            // the precompiled binary catalogue is used if present, the HYG database otherwise
+            // (the stars are sorted by magnitude so that the faint stars can be skipped when zoomed out)
             StarCatalogue catalogue = new StarCatalogue.Builder()
-                    .loadFrom(hs, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(bs != null ? bs : hs, bs != null ? BinaryCatalogueLoader.INSTANCE : HygDatabaseLoader.PARALLEL)
                     .loadFrom(as, AsterismLoader.INSTANCE)
-                    .build();
+                    .build()
+                    .sortedByMagnitude();
             return new SkyCanvasManager(catalogue, dateTimeBean, observerLocationBean, viewingParametersBean);
         }
     }
 
+    /**
+     * Opening the precompiled binary catalogue, as a file when possible so that it can be memory mapped
+     *
+     * @return the input stream of the binary catalogue, or null if there is no binary catalogue
+     * @throws IOException if there is an input exception
+     */
+    private InputStream binaryCatalogueStream() throws IOException {
+        URL url = getClass().getResource("/hygdata_v3.bin");
+        if (url == null) {
+            return null;
+        }
+        try {
+            if (url.getProtocol().equals("file")) {
+                return new FileInputStream(new File(url.toURI()));
+            }
+        } catch (URISyntaxException e) {
+            // the resource is then read as a stream
+        }
+        return url.openStream();
+    }
+
     /**
      * Creating the CityCatalogue used in the control bar
      *
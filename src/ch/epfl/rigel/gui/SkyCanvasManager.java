@@ -1,28 +1,49 @@
 package ch.epfl.rigel.gui;
 
 import ch.epfl.rigel.astronomy.CelestialObject;
+import ch.epfl.rigel.astronomy.EphemerisCache;
 import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.astronomy.ObservedSkyCache;
+import ch.epfl.rigel.astronomy.SkyLayer;
 import ch.epfl.rigel.astronomy.StarCatalogue;
 import ch.epfl.rigel.coordinates.CartesianCoordinates;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
 import ch.epfl.rigel.coordinates.HorizontalCoordinates;
 import ch.epfl.rigel.coordinates.StereographicProjection;
+import ch.epfl.rigel.coordinates.Viewport;
 import ch.epfl.rigel.math.Angle;
 import ch.epfl.rigel.math.ClosedInterval;
 import ch.epfl.rigel.math.RightOpenInterval;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ObservableDoubleValue;
 import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+import javafx.collections.MapChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
 import javafx.geometry.Point2D;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.paint.Color;
 import javafx.scene.transform.NonInvertibleTransformException;
 import javafx.scene.transform.Transform;
 
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Manager for the sky canvas
@@ -36,15 +57,28 @@ public class SkyCanvasManager {
     private static final RightOpenInterval RIGHT_OPEN_INTERVAL_0_TO_360 = RightOpenInterval.of(0, 360);
     private static final ClosedInterval CLOSED_INTERVAL_5_TO_90 = ClosedInterval.of(5, 90);
     private static final Color BLUE_COLOR_OF_THE_SKY = Color.rgb(0, 195, 255);
+    // Greatest magnitude of the stars shown with the widest field of view, and magnitudes added for each halving of it
+    private static final double MAX_MAGNITUDE_AT_150_DEG = 5;
+    private static final double MAGNITUDES_PER_ZOOM_LEVEL = 1.5;
+    // Margin around the canvas (in pixels) in which the stars are still kept, since their disk can be visible
+    private static final double VIEWPORT_MARGIN = 10;
+    // Number of segments of time kept by the cache interpolating the sun, the moon and the planets
+    private static final int EPHEMERIS_CACHE_CAPACITY = 16;
+    // Number of recent skies kept, and the slot of time in which they are considered the same
+    private static final int SKY_CACHE_CAPACITY = 32;
+    private static final Duration SKY_CACHE_TIME_SLOT = Duration.ofSeconds(1);
 
     private final Canvas canvas;
     private final SkyCanvasPainter painter;
 
-    private final ObservableValue<ObservedSky> observedSky;
+    // Parameters of the sky to show, and the last sky computed with them (possibly in the background)
+    private final ObservableValue<SkyRequest> skyRequest;
+    private final ObjectProperty<ObservedSky> observedSky = new SimpleObjectProperty<>();
     private final ObservableValue<StereographicProjection> projection;
     private final ObservableValue<Transform> planeToCanvas;
     private final ObjectProperty<Point2D> mousePosition =
             new SimpleObjectProperty<>(Point2D.ZERO);
+    private final DoubleProperty maxMagnitude = new SimpleDoubleProperty();
     private final ObservableValue<CelestialObject> objUnderMouse;
     private final ObservableValue<HorizontalCoordinates> mouseHorPos;
     private final ObservableDoubleValue mouseAzDeg;
@@ -59,7 +93,39 @@ public class SkyCanvasManager {
     private final BooleanProperty drawCardinalPoints = new SimpleBooleanProperty(true);
     private final BooleanProperty drawAtmosphere = new SimpleBooleanProperty(false);
     private final BooleanProperty drawNames = new SimpleBooleanProperty(true);
+    private final BooleanProperty backgroundComputation = new SimpleBooleanProperty(false);
+    // Sources of the objects drawn with the stars, the planets, the sun and the moon
+    private final ObservableList<SkyLayer> layers = FXCollections.observableArrayList();
+    // Styles of the layers, the ones without a style being drawn with the default one
+    private final ObservableMap<SkyLayer, LayerStyle> layerStyles = FXCollections.observableHashMap();
+    // Properties telling whether the built-in layers are drawn, the other layers being always drawn
+    private final Map<SkyLayer, BooleanProperty> layerVisibility = Map.of(
+            SkyLayer.STARS, drawStars, SkyLayer.PLANETS, drawPlanets, SkyLayer.SUN, drawSun, SkyLayer.MOON, drawMoon);
     private Color skyColor;
+    // Last sky computed, and the transformation used for it, from which the next one is derived if possible
+    // (guarded by the manager, since they can be used by the background thread)
+    private ObservedSky lastSky;
+    private Transform lastPlaneToCanvas;
+    // Recent skies, so that going back to a recent state (city, time, view) only needs to draw the sky again
+    private final ObservedSkyCache skyCache = new ObservedSkyCache(SKY_CACHE_CAPACITY, SKY_CACHE_TIME_SLOT);
+    // Sun, moon and planets interpolated for the skies derived at other times, such as the frames of an animation
+    private final EphemerisCache ephemerides =
+            new EphemerisCache(EPHEMERIS_CACHE_CAPACITY, EphemerisCache.DEFAULT_TOLERANCE);
+    // Transformation used for the sky shown, which can be older than the current one during a background computation
+    private final ObjectProperty<Transform> skyPlaneToCanvas = new SimpleObjectProperty<>();
+    // Parameters of the sky shown, so that a change of the transformation alone only draws it again
+    private SkyRequest shownRequest;
+
+    // Single daemon thread computing the skies in the background, so that they are computed in order
+    private final ExecutorService skyExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "sky-computation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Background computation of the latest request (only used on the JavaFX thread), and the number of requests
+    // made so far, so that the results of the superseded requests are dropped
+    private Future<?> pendingSky;
+    private long skyRequestCount;
 
     /**
      * Constructor of a sky canvas manager
@@ -76,6 +142,11 @@ public class SkyCanvasManager {
 
         canvas = new Canvas();
         painter = new SkyCanvasPainter(canvas);
+        layerStyles.putAll(Map.of(
+                SkyLayer.STARS, LayerStyle.STARS,
+                SkyLayer.PLANETS, LayerStyle.disk(Color.LIGHTGRAY, Color.FORESTGREEN),
+                SkyLayer.SUN, LayerStyle.SUN,
+                SkyLayer.MOON, LayerStyle.disk(Color.WHITE, Color.WHITE)));
 
         //-----------------------------------------------------------------------------
         // Events
@@ -107,18 +178,51 @@ public class SkyCanvasManager {
                 viewingParametersBean.centerProperty()
         );
 
-        observedSky = Bindings.createObjectBinding(
-                () -> new ObservedSky(
-                        dateTimeBean.getZonedDateTime(),
-                        observerLocationBean.getCoordinates(),
-                        projection.getValue(),
-                        starCatalogue),
+        planeToCanvas = Bindings.createObjectBinding(
+                () -> {
+                    Transform t = Transform.translate(canvas.getWidth() / 2d, canvas.getHeight() / 2d);
+                    double scaleFactor = canvas.getWidth() / projection.getValue().applyToAngle(
+                            Angle.ofDeg(viewingParametersBean.getFieldOfViewDeg()));
+                    Transform s = Transform.scale(scaleFactor, -scaleFactor);
+                    return t.createConcatenation(s);
+                },
+                projection,
+                canvas.widthProperty(),
+                canvas.heightProperty(),
+                viewingParametersBean.fieldOfViewDegProperty()
+        );
+
+        // the faint stars are skipped when zoomed out (the property only changes by steps of half a magnitude)
+        maxMagnitude.set(maxMagnitudeFor(viewingParametersBean.getFieldOfViewDeg()));
+        viewingParametersBean.fieldOfViewDegProperty().addListener(
+                (p, o, n) -> maxMagnitude.set(maxMagnitudeFor(n.doubleValue()))
+        );
+
+        // only the stars visible on the canvas are kept (all of them if the canvas isn't displayed yet),
+        // the sky being only redrawn when the canvas or the field of view change if it still covers the canvas
+        skyRequest = Bindings.createObjectBinding(
+                () -> new SkyRequest(dateTimeBean.getZonedDateTime(), observerLocationBean.getCoordinates(),
+                        projection.getValue(), planeToCanvas.getValue(), viewport(), maxMagnitude.get(),
+                        List.copyOf(layers)),
                 dateTimeBean.dateProperty(),
                 dateTimeBean.timeProperty(),
                 dateTimeBean.zoneProperty(),
                 observerLocationBean.coordinatesProperty(),
-                projection
+                projection,
+                planeToCanvas,
+                maxMagnitude,
+                layers
         );
+        skyRequest.addListener((p, o, n) -> {
+            if (canBeRedrawn(n)) {
+                skyPlaneToCanvas.set(n.planeToCanvas);
+                shownRequest = n;
+                updateSky();
+            } else {
+                requestSky(starCatalogue, n);
+            }
+        });
+        requestSky(starCatalogue, skyRequest.getValue());
 
         observedSky.addListener((p, o, n) -> {
                     // define the color of the sky depending on the vertical position of the sun
@@ -136,37 +240,25 @@ public class SkyCanvasManager {
                 }
         );
 
-        planeToCanvas = Bindings.createObjectBinding(
-                () -> {
-                    Transform t = Transform.translate(canvas.getWidth() / 2d, canvas.getHeight() / 2d);
-                    double scaleFactor = canvas.getWidth() / projection.getValue().applyToAngle(
-                            Angle.ofDeg(viewingParametersBean.getFieldOfViewDeg()));
-                    Transform s = Transform.scale(scaleFactor, -scaleFactor);
-                    return t.createConcatenation(s);
-                },
-                projection,
-                canvas.widthProperty(),
-                canvas.heightProperty(),
-                viewingParametersBean.fieldOfViewDegProperty()
-        );
-
-        planeToCanvas.addListener(
-                (p, o, n) -> updateSky()
-        );
-
         objUnderMouse = Bindings.createObjectBinding(
                 () -> {
                     try {
-                        Optional<CelestialObject> closestObj = observedSky.getValue().objectClosestTo(
-                                CartesianCoordinates.of(invertedMousePos().getX(), invertedMousePos().getY()),
-                                planeToCanvas.getValue().inverseDeltaTransform(10, 0).getX()
+                        // the mouse is searched on the sky shown, with the transformation it was drawn with
+                        Transform skyTransform = skyPlaneToCanvas.get();
+                        Point2D skyMousePos = skyTransform.inverseTransform(mousePosition.get());
+                        // only the objects drawn are searched
+                        ObservedSky sky = observedSky.getValue();
+                        Optional<CelestialObject> closestObj = sky.objectClosestTo(
+                                CartesianCoordinates.of(skyMousePos.getX(), skyMousePos.getY()),
+                                skyTransform.inverseDeltaTransform(10, 0).getX(),
+                                drawnLayers(sky)
                         );
                         return closestObj.isEmpty() ? null : closestObj.get();
                     } catch (NonInvertibleTransformException e) {
                         return null;
                     }
                 },
-                observedSky, mousePosition
+                observedSky, skyPlaneToCanvas, mousePosition, drawStars, drawPlanets, drawSun, drawMoon
         );
 
         mouseHorPos = Bindings.createObjectBinding(
@@ -195,6 +287,7 @@ public class SkyCanvasManager {
         drawHorizon.addListener((p, o, n) -> updateSky());
         drawCardinalPoints.addListener((p, o, n) -> updateSky());
         drawAtmosphere.addListener((p, o, n) -> updateSky());
+        layerStyles.addListener((MapChangeListener<SkyLayer, LayerStyle>) c -> updateSky());
     }
 
     /**
@@ -207,6 +300,48 @@ public class SkyCanvasManager {
     }
 
 
+    /**
+     * Getter for the property telling whether the skies are computed in the background : the previous sky is then
+     * shown (and the interface stays responsive) until the next one is computed, the skies which are superseded
+     * before being computed being dropped
+     *
+     * @return the property telling whether the skies are computed in the background
+     */
+    public BooleanProperty backgroundComputationProperty() {
+        return backgroundComputation;
+    }
+
+    /**
+     * Getter for the registry of the layers : the sources of the objects (deep-sky objects, minor planets,
+     * satellites...) added to the sky, which are drawn and found under the mouse with the stars, the planets, the sun
+     * and the moon
+     *
+     * @return the modifiable list of the layers of the sky
+     */
+    public ObservableList<SkyLayer> layers() {
+        return layers;
+    }
+
+    /**
+     * Getter for the styles of the layers, in which their objects are drawn (the layers without a style being drawn
+     * with the default style)
+     *
+     * @return the modifiable map of the styles of the layers
+     * @see LayerStyle#DEFAULT
+     */
+    public ObservableMap<SkyLayer, LayerStyle> layerStyles() {
+        return layerStyles;
+    }
+
+    /**
+     * Getter for the cache of the recent skies, whose hit and miss counts tell how often a sky is reused
+     *
+     * @return the cache of the recent skies
+     */
+    public ObservedSkyCache skyCache() {
+        return skyCache;
+    }
+
     /**
      * Getter for the property azimuth in deg of the mouse
      *
@@ -265,17 +400,15 @@ public class SkyCanvasManager {
      * Updating all drawable elements of the sky
      */
     public void updateSky() {
+        // the sky is drawn as it was computed, even if the view changed since then
         ObservedSky observedSky = this.observedSky.getValue();
-        StereographicProjection projection = this.projection.getValue();
-        Transform planeToCanvas = this.planeToCanvas.getValue();
+        StereographicProjection projection = observedSky.projection();
+        Transform planeToCanvas = skyPlaneToCanvas.get();
         // draw elements depending on the display settings
         if (drawAtmosphere.get()) painter.clear(skyColor);
         else painter.clear(Color.BLACK);
-        painter.drawStarsAsterisms(observedSky, projection, planeToCanvas,
-                drawStars.get(), drawAsterisms.get(), drawNames.get());
-        if (drawPlanets.get()) painter.drawPlanets(observedSky, projection, planeToCanvas, drawNames.get());
-        if (drawSun.get()) painter.drawSun(observedSky, projection, planeToCanvas, drawNames.get());
-        if (drawMoon.get()) painter.drawMoon(observedSky, projection, planeToCanvas, drawNames.get());
+        painter.drawLayers(observedSky, planeToCanvas, drawnLayers(observedSky), layerStyles,
+                drawAsterisms.get(), drawNames.get());
         if (drawHorizon.get()) painter.drawHorizon(projection, planeToCanvas);
         if (drawCardinalPoints.get()) painter.drawCardinalPoints(projection, planeToCanvas);
     }
@@ -308,6 +441,221 @@ public class SkyCanvasManager {
         );
     }
 
+    /**
+     * Return the greatest magnitude of the stars shown with the given field of view, by steps of half a magnitude
+     *
+     * @param fieldOfViewDeg the field of view, in deg
+     * @return the greatest magnitude of the stars shown
+     */
+    private static double maxMagnitudeFor(double fieldOfViewDeg) {
+        double zoomLevels = Math.log(150 / fieldOfViewDeg) / Math.log(2);
+        return Math.floor(2 * (MAX_MAGNITUDE_AT_150_DEG + MAGNITUDES_PER_ZOOM_LEVEL * zoomLevels)) / 2;
+    }
+
+    /**
+     * Check if the sky shown can be drawn again for the given request, which is the case if only the transformation
+     * changed and the stars of the sky shown cover the new viewport (e.g. when zooming in or shrinking the canvas
+     * without changing the greatest magnitude)
+     *
+     * @param request the parameters of the sky
+     * @return {@code true} if and only if the sky shown only needs to be drawn with the transformation of the request
+     */
+    private boolean canBeRedrawn(SkyRequest request) {
+        SkyRequest shown = shownRequest;
+        if (pendingSky != null || shown == null || request.viewport == null) {
+            return false;
+        }
+        // a sky without viewport contains all the stars bright enough
+        Viewport shownViewport = observedSky.get().viewport();
+        boolean covered = shownViewport == null || shownViewport.covers(request.viewport);
+        return covered && shown.when.equals(request.when) && samePlace(shown.where, request.where)
+                && sameProjection(shown.projection, request.projection) && shown.maxMagnitude == request.maxMagnitude
+                && shown.layers.equals(request.layers);
+    }
+
+    /**
+     * Compute the sky of the given request, on the JavaFX thread or in the background depending on the mode,
+     * a background computation superseding those which haven't started yet
+     *
+     * @param starCatalogue the catalogue of stars
+     * @param request       the parameters of the sky
+     */
+    private void requestSky(StarCatalogue starCatalogue, SkyRequest request) {
+        long requestNumber = ++skyRequestCount;
+        if (pendingSky != null) {
+            // a computation already started isn't interrupted, but its result is dropped
+            pendingSky.cancel(false);
+            pendingSky = null;
+        }
+        if (backgroundComputation.get()) {
+            pendingSky = skyExecutor.submit(() -> {
+                try {
+                    ObservedSky sky = nextObservedSky(starCatalogue, request);
+                    // the objects are computed here (the sky being lazy) rather than on the JavaFX thread
+                    sky.positions();
+                    Platform.runLater(() -> {
+                        if (requestNumber == skyRequestCount) {
+                            pendingSky = null;
+                            publishSky(sky, request);
+                        }
+                    });
+                } catch (RuntimeException | Error e) {
+                    // the future is never read : the error is thrown again on the JavaFX thread, where it is reported
+                    // as if the sky had been computed there
+                    Platform.runLater(() -> {
+                        if (requestNumber == skyRequestCount) {
+                            pendingSky = null;
+                        }
+                        throw e;
+                    });
+                }
+            });
+        } else {
+            publishSky(nextObservedSky(starCatalogue, request), request);
+        }
+    }
+
+    /**
+     * Show the given sky, computed for the given request
+     *
+     * @param sky     the observed sky
+     * @param request the parameters of the sky
+     */
+    private void publishSky(ObservedSky sky, SkyRequest request) {
+        skyPlaneToCanvas.set(request.planeToCanvas);
+        shownRequest = request;
+        observedSky.set(sky);
+    }
+
+    /**
+     * Return the observed sky with the parameters of the request, taken from the cache of the recent skies if
+     * possible
+     *
+     * @param starCatalogue the catalogue of stars
+     * @param request       the parameters of the sky
+     * @return the observed sky
+     */
+    private synchronized ObservedSky nextObservedSky(StarCatalogue starCatalogue, SkyRequest request) {
+        ObservedSky sky;
+        if (request.viewport == null) {
+            sky = new ObservedSky(request.when, request.where, request.projection, starCatalogue,
+                    request.maxMagnitude);
+        } else {
+            sky = skyCache.get(request.when, request.where, request.projection, request.viewport, starCatalogue,
+                    request.maxMagnitude);
+            if (sky == null) {
+                sky = derivedObservedSky(starCatalogue, request);
+                skyCache.put(sky);
+            }
+        }
+        lastSky = request.viewport == null ? null : sky;
+        lastPlaneToCanvas = request.planeToCanvas;
+        // the skies are cached and derived without their layers, which are added afterwards
+        return request.layers.isEmpty() ? sky : sky.withLayers(request.layers);
+    }
+
+    /**
+     * Return the observed sky with the parameters of the request (whose viewport isn't null), derived from the last
+     * one when only the view changed (the objects being only projected again) or only the time or the place changed
+     * (the sun, the moon and the planets being interpolated by the cache of ephemerides)
+     *
+     * @param starCatalogue the catalogue of stars
+     * @param request       the parameters of the sky
+     * @return the observed sky
+     */
+    private ObservedSky derivedObservedSky(StarCatalogue starCatalogue, SkyRequest request) {
+        ZonedDateTime when = request.when;
+        GeographicCoordinates where = request.where;
+        Viewport viewport = request.viewport;
+        ObservedSky previous = lastSky;
+        if (previous == null || previous.maxMagnitude() != request.maxMagnitude) {
+            return new ObservedSky(when, where, viewport, starCatalogue, request.maxMagnitude);
+        } else if (previous.when().equals(when) && samePlace(previous.where(), where)) {
+            return previous.withViewport(viewport);
+        } else if (sameProjection(previous.projection(), request.projection)
+                && sameTransform(lastPlaneToCanvas, request.planeToCanvas)) {
+            return previous.at(when, where, ephemerides);
+        } else {
+            return new ObservedSky(when, where, viewport, starCatalogue, request.maxMagnitude);
+        }
+    }
+
+    /**
+     * Check if two observation positions are the same, by value (the coordinates not having equals)
+     *
+     * @param p1 the first position
+     * @param p2 the second position
+     * @return {@code true} if and only if the positions have the same longitude and latitude
+     */
+    private static boolean samePlace(GeographicCoordinates p1, GeographicCoordinates p2) {
+        return p1.lon() == p2.lon() && p1.lat() == p2.lat();
+    }
+
+    /**
+     * Check if two stereographic projections are the same, by value
+     *
+     * @param p1 the first projection
+     * @param p2 the second projection
+     * @return {@code true} if and only if the projections have the same center
+     */
+    private static boolean sameProjection(StereographicProjection p1, StereographicProjection p2) {
+        return p1.center().az() == p2.center().az() && p1.center().alt() == p2.center().alt();
+    }
+
+    /**
+     * Check if two transformations are the same, by value
+     *
+     * @param t1 the first transformation
+     * @param t2 the second transformation
+     * @return {@code true} if and only if the matrices of the transformations have the same entries
+     */
+    private static boolean sameTransform(Transform t1, Transform t2) {
+        return t1.getMxx() == t2.getMxx() && t1.getMxy() == t2.getMxy() && t1.getMxz() == t2.getMxz()
+                && t1.getTx() == t2.getTx()
+                && t1.getMyx() == t2.getMyx() && t1.getMyy() == t2.getMyy() && t1.getMyz() == t2.getMyz()
+                && t1.getTy() == t2.getTy()
+                && t1.getMzx() == t2.getMzx() && t1.getMzy() == t2.getMzy() && t1.getMzz() == t2.getMzz()
+                && t1.getTz() == t2.getTz();
+    }
+
+    /**
+     * Return the layers of a sky which are drawn (the layers added to the built-in ones being always drawn)
+     *
+     * @param sky the sky
+     * @return the set of the layers drawn
+     */
+    private Set<SkyLayer> drawnLayers(ObservedSky sky) {
+        Set<SkyLayer> drawn = new HashSet<>();
+        for (SkyLayer layer : sky.layers()) {
+            BooleanProperty visible = layerVisibility.get(layer);
+            if (visible == null || visible.get()) drawn.add(layer);
+        }
+        return drawn;
+    }
+
+    /**
+     * Return the visible part of the plane of the projection, with a margin so that the stars on the border
+     * of the canvas are kept
+     *
+     * @return the viewport of the canvas, or null if the canvas is empty
+     */
+    private Viewport viewport() {
+        try {
+            Transform transform = planeToCanvas.getValue();
+            Point2D corner1 = transform.inverseTransform(-VIEWPORT_MARGIN, -VIEWPORT_MARGIN);
+            Point2D corner2 = transform.inverseTransform(
+                    canvas.getWidth() + VIEWPORT_MARGIN, canvas.getHeight() + VIEWPORT_MARGIN);
+            return new Viewport(
+                    projection.getValue(),
+                    ClosedInterval.of(Math.min(corner1.getX(), corner2.getX()), Math.max(corner1.getX(), corner2.getX())),
+                    ClosedInterval.of(Math.min(corner1.getY(), corner2.getY()), Math.max(corner1.getY(), corner2.getY())),
+                    false
+            );
+        } catch (NonInvertibleTransformException e) {
+            return null;
+        }
+    }
+
     /**
      * Computing the inverse transformation of planeToCanvas on a Point2D
      *
@@ -401,4 +749,41 @@ public class SkyCanvasManager {
     public BooleanProperty drawNamesProperty() {
         return drawNames;
     }
+
+    /**
+     * Parameters of a sky to compute, read on the JavaFX thread so that the sky can be computed on another one
+     */
+    private static final class SkyRequest {
+
+        private final ZonedDateTime when;
+        private final GeographicCoordinates where;
+        private final StereographicProjection projection;
+        private final Transform planeToCanvas;
+        // Visible part of the plane, null if the canvas is empty
+        private final Viewport viewport;
+        private final double maxMagnitude;
+        private final List<SkyLayer> layers;
+
+        /**
+         * Constructor of a request
+         *
+         * @param when          the observation zoned date time
+         * @param where         the observation position
+         * @param projection    the stereographic projection
+         * @param planeToCanvas the transformation from the plane to the canvas
+         * @param viewport      the visible part of the plane, or null
+         * @param maxMagnitude  the greatest magnitude of the stars shown
+         * @param layers        the layers of the sky
+         */
+        private SkyRequest(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection,
+                           Transform planeToCanvas, Viewport viewport, double maxMagnitude, List<SkyLayer> layers) {
+            this.when = when;
+            this.where = where;
+            this.projection = projection;
+            this.planeToCanvas = planeToCanvas;
+            this.viewport = viewport;
+            this.maxMagnitude = maxMagnitude;
+            this.layers = layers;
+        }
+    }
 }
@@ -1,9 +1,9 @@
 package ch.epfl.rigel.gui;
 
 import ch.epfl.rigel.astronomy.Asterism;
+import ch.epfl.rigel.astronomy.CelestialObject;
 import ch.epfl.rigel.astronomy.ObservedSky;
-import ch.epfl.rigel.astronomy.Planet;
-import ch.epfl.rigel.astronomy.Star;
+import ch.epfl.rigel.astronomy.SkyLayer;
 import ch.epfl.rigel.coordinates.CartesianCoordinates;
 import ch.epfl.rigel.coordinates.HorizontalCoordinates;
 import ch.epfl.rigel.coordinates.StereographicProjection;
@@ -13,11 +13,12 @@ import javafx.geometry.Point2D;
 import javafx.geometry.VPos;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
 import javafx.scene.transform.Transform;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Painter for the sky canvas
@@ -54,59 +55,47 @@ public class SkyCanvasPainter {
     }
 
     /**
-     * Drawing the stars and asterisms, used to manage drawStars() and drawAsterisms() with the same position array
+     * Represent the objects of the given layers on the canvas, in the order of the layers of the sky (the asterisms
+     * being drawn under them), the positions of all the objects being transformed at once
      *
      * @param sky           to represent
-     * @param projection    used
      * @param planeToCanvas transformation
-     * @param stars         boolean indicating whether to draw the stars or not
+     * @param layers        the layers of the objects to draw
+     * @param styles        the styles of the layers, the others being drawn with the default style
      * @param asterisms     boolean indicating whether to draw the asterisms or not
-     * @param drawNames     boolean indicating whether to draw the names of the stars
-     */
-    public void drawStarsAsterisms(ObservedSky sky, StereographicProjection projection, Transform planeToCanvas,
-                                   boolean stars, boolean asterisms, boolean drawNames) {
-        // transform all positions of the stars
-        double[] starPositions = sky.starPositions();
-        double[] transformedPos = new double[starPositions.length];
-        planeToCanvas.transform2DPoints(starPositions, 0, transformedPos, 0, sky.stars().size());
-
-        if (asterisms) drawAsterisms(sky, transformedPos);
-        if (stars) drawStars(sky, projection, planeToCanvas, transformedPos, drawNames);
-    }
-
-    /**
-     * Represent the stars on the canvas
-     *
-     * @param sky           to represent
-     * @param projection    used
-     * @param planeToCanvas transformation
-     * @param drawNames     boolean indicating whether to draw the names of the stars
+     * @param drawNames     boolean indicating whether to draw the names
      */
-    public void drawStars(ObservedSky sky, StereographicProjection projection, Transform planeToCanvas,
-                          double[] transformedPos, boolean drawNames) {
+    public void drawLayers(ObservedSky sky, Transform planeToCanvas, Set<SkyLayer> layers,
+                           Map<SkyLayer, LayerStyle> styles, boolean asterisms, boolean drawNames) {
+        // transform all positions of the objects
+        double[] positions = sky.positions();
+        double[] transformedPos = new double[positions.length];
+        planeToCanvas.transform2DPoints(positions, 0, transformedPos, 0, positions.length / 2);
+
+        if (asterisms) drawAsterisms(sky, transformedPos, sky.offsetOf(SkyLayer.STARS));
         ctx.setLineWidth(1);
         ctx.setTextBaseline(VPos.BOTTOM);
-        int index = 0;
-        for (Star star : sky.stars()) {
-            double diameter = transformedDiameter(star.magnitude(), projection, planeToCanvas);
-            double x = transformedPos[index];
-            double y = transformedPos[index + 1];
-            Color c = BlackBodyColor.colorForTemperature(star.colorTemperature());
-            fillDisk(x, y, diameter, c);
-            if (star.magnitude() < 1.5 && drawNames) {
-                ctx.setStroke(c);
-                ctx.strokeText(star.info(), x, y);
+        for (SkyLayer layer : sky.layers()) {
+            if (layers.contains(layer)) {
+                LayerStyle style = styles.getOrDefault(layer, LayerStyle.DEFAULT);
+                List<? extends CelestialObject> objects = sky.objectsOf(layer);
+                int offset = sky.offsetOf(layer);
+                for (int i = 0; i < objects.size(); i++) {
+                    style.draw(ctx, sky, objects, i, transformedPos[2 * (offset + i)],
+                            transformedPos[2 * (offset + i) + 1], planeToCanvas, drawNames);
+                }
             }
-            index += 2;
         }
     }
 
     /**
      * Represent the asterisms by linking their stars on the canvas
      *
-     * @param sky to represent
+     * @param sky            to represent
+     * @param transformedPos the positions of the objects of the sky on the canvas
+     * @param offset         the index of the first star among the objects of the sky
      */
-    public void drawAsterisms(ObservedSky sky, double[] transformedPos) {
+    public void drawAsterisms(ObservedSky sky, double[] transformedPos, int offset) {
         ctx.setStroke(Color.BLUE);
         ctx.setLineWidth(1);
 
@@ -116,16 +105,16 @@ public class SkyCanvasPainter {
             List<Integer> indices = sky.asterismIndices(asterism);
             // get the position of the first star of the asterism
             Point2D currentPos = new Point2D(
-                    transformedPos[indices.get(0) * 2],
-                    transformedPos[indices.get(0) * 2 + 1]
+                    transformedPos[(offset + indices.get(0)) * 2],
+                    transformedPos[(offset + indices.get(0)) * 2 + 1]
             );
             ctx.moveTo(currentPos.getX(), currentPos.getY());
             Point2D nextPos;
 
             for (int index : indices) {
                 nextPos = new Point2D(
-                        transformedPos[index * 2],
-                        transformedPos[index * 2 + 1]
+                        transformedPos[(offset + index) * 2],
+                        transformedPos[(offset + index) * 2 + 1]
                 );
                 // skip the line between two stars that are both invisible on screen
                 if (bounds.contains(currentPos) || bounds.contains(nextPos)) {
@@ -140,76 +129,6 @@ public class SkyCanvasPainter {
         }
     }
 
-    /**
-     * Represent the planets on the canvas
-     *
-     * @param sky           to represent
-     * @param projection    used
-     * @param planeToCanvas transformation
-     * @param drawNames     boolean indicating whether to draw the names
-     */
-    public void drawPlanets(ObservedSky sky, StereographicProjection projection, Transform planeToCanvas, boolean drawNames) {
-        ctx.setStroke(Color.FORESTGREEN);
-        ctx.setLineWidth(1);
-        ctx.setTextBaseline(VPos.BOTTOM);
-        // transform all positions of the planets
-        double[] planetPositions = sky.planetPositions();
-        double[] transformedPlanetPositions = new double[planetPositions.length];
-        planeToCanvas.transform2DPoints(planetPositions, 0, transformedPlanetPositions, 0, 7);
-
-        int index = 0;
-        for (Planet planet : sky.planets()) {
-            double diameter = transformedDiameter(planet.magnitude(), projection, planeToCanvas);
-            double x = transformedPlanetPositions[index];
-            double y = transformedPlanetPositions[index + 1];
-            fillDisk(x, y, diameter, Color.LIGHTGRAY);
-            if (drawNames) ctx.strokeText(planet.name(), x, y);
-            index += 2;
-        }
-    }
-
-    /**
-     * Represent the Sun (if visible) on the canvas
-     *
-     * @param sky           to represent
-     * @param projection    used
-     * @param planeToCanvas transformation
-     * @param drawNames     boolean indicating whether to draw the name of the sun
-     */
-    public void drawSun(ObservedSky sky, StereographicProjection projection, Transform planeToCanvas, boolean drawNames) {
-        ctx.setStroke(Color.YELLOW);
-        ctx.setLineWidth(1);
-        ctx.setTextBaseline(VPos.BOTTOM);
-        Point2D pos = planeToCanvas.transform(sky.sunPosition().x(), sky.sunPosition().y());
-        double tempDiam = projection.applyToAngle(sky.sun().angularSize());
-        double diameter = planeToCanvas.deltaTransform(tempDiam, 0).getX();
-        double haloDiameter = 2.2 * diameter;
-        Image sunImage = new Image(getClass().getResourceAsStream("/sun.png"),
-                haloDiameter, haloDiameter, true, true);
-        ctx.drawImage(sunImage, pos.getX() - haloDiameter / 2, pos.getY() - haloDiameter / 2);
-        if (drawNames) ctx.strokeText(sky.sun().name(), pos.getX(), pos.getY());
-    }
-
-    /**
-     * Represent the Moon (if visible) on the canvas
-     *
-     * @param sky           to represent
-     * @param projection    used
-     * @param planeToCanvas transformation
-     * @param drawNames     boolean indicating whether to draw the names
-     */
-    public void drawMoon(ObservedSky sky, StereographicProjection projection, Transform planeToCanvas, boolean drawNames) {
-        Point2D pos = planeToCanvas.transform(sky.moonPosition().x(), sky.moonPosition().y());
-        double diameter = transformedDiameter(sky.moon().magnitude(), projection, planeToCanvas);
-        fillDisk(pos.getX(), pos.getY(), diameter, Color.WHITE);
-        if (drawNames) {
-            ctx.setStroke(Color.WHITE);
-            ctx.setLineWidth(1);
-            ctx.setTextBaseline(VPos.BOTTOM);
-            ctx.strokeText(sky.moon().name(), pos.getX(), pos.getY());
-        }
-    }
-
     /**
      * Represent the horizon (if visible) on the canvas
      *
@@ -248,12 +167,13 @@ public class SkyCanvasPainter {
     /**
      * Filling an disk of given position and diameter with a given color
      *
-     * @param x x-coordinate of the disk center
-     * @param y y-coordinate of the disk center
-     * @param d diameter of the disk
-     * @param c color to use
+     * @param ctx graphics context of the canvas
+     * @param x   x-coordinate of the disk center
+     * @param y   y-coordinate of the disk center
+     * @param d   diameter of the disk
+     * @param c   color to use
      */
-    private void fillDisk(double x, double y, double d, Color c) {
+    static void fillDisk(GraphicsContext ctx, double x, double y, double d, Color c) {
         double r = d / 2;
         ctx.setFill(c);
         ctx.fillOval(x - r, y - r, d, d);
@@ -267,7 +187,7 @@ public class SkyCanvasPainter {
      * @param ptc plane-to-canvas transformation to apply
      * @return the on-screen diameter of the CelestialObject
      */
-    private static double transformedDiameter(double m, StereographicProjection p, Transform ptc) {
+    static double transformedDiameter(double m, StereographicProjection p, Transform ptc) {
         double clippedM = MAG_INTERVAL.clip(m);
         double factor = (99 - 17 * clippedM) / 140d;
         double diameter = factor * p.applyToAngle(ZERO_FIVE_DEG_TO_RAD);
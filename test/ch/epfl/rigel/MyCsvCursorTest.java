@@ -0,0 +1,90 @@
+package ch.epfl.rigel;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ */
+public class MyCsvCursorTest {
+
+    private static CsvCursor cursorOf(String content, char separator) {
+        return new CsvCursor(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)), separator);
+    }
+
+    @Test
+    void linesAndFieldsAreCorrectlyRead() {
+        CsvCursor cursor = cursorOf("a,b,c\r\n1,,3\nx", ',');
+        assertTrue(cursor.nextLine());
+        assertEquals(5, cursor.lineLength());
+        assertEquals("c", cursor.field(2).stringValue());
+        assertEquals("a", cursor.field(0).stringValue());
+        assertTrue(cursor.nextLine());
+        assertEquals(1, cursor.field(0).intValue());
+        assertTrue(cursor.field(1).isBlank());
+        assertEquals(3, cursor.field(2).intValue());
+        assertTrue(cursor.field(7).isBlank());
+        assertTrue(cursor.nextLine());
+        assertEquals("x", cursor.field(0).stringValue());
+        assertFalse(cursor.nextLine());
+    }
+
+    @Test
+    void quotedFieldsAreCorrectlyRead() {
+        CsvCursor cursor = cursorOf("\"Korea, South\",\"say \"\"hi\"\"\",\"Tōkyō\",\"35.6850\"", ',');
+        assertTrue(cursor.nextLine());
+        assertEquals("Korea, South", cursor.field(0).stringValue());
+        assertEquals("say \"hi\"", cursor.field(1).stringValue());
+        assertEquals("Tōkyō", cursor.field(2).stringValue());
+        assertEquals(35.6850, cursor.field(3).doubleValue());
+    }
+
+    @Test
+    void doublesAreParsedAsDoubleParseDouble() {
+        String[] values = {"0", "-0", "1e5", ".5", "5.", "1.5E-3", "+2", "-1.0332", "12345678901234567890",
+                "1e-24", "0.1", "179.99999999999997", "6.283185307179586", "  42.25  "};
+        CsvCursor cursor = cursorOf(String.join(",", values), ',');
+        assertTrue(cursor.nextLine());
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Double.parseDouble(values[i]), cursor.field(i).doubleValue());
+        }
+    }
+
+    @Test
+    void invalidNumbersFail() {
+        CsvCursor cursor = cursorOf("abc,1.2.3,12a", ',');
+        assertTrue(cursor.nextLine());
+        assertThrows(NumberFormatException.class, () -> cursor.field(0).doubleValue());
+        assertThrows(NumberFormatException.class, () -> cursor.field(1).doubleValue());
+        assertThrows(NumberFormatException.class, () -> cursor.field(2).intValue());
+    }
+
+    @Test
+    void rangesAreClippedToTheLine() {
+        CsvCursor cursor = cursorOf("  1000 K  10deg  #ff3800", ' ');
+        assertTrue(cursor.nextLine());
+        assertEquals(1000, cursor.range(1, 6).doubleValue());
+        assertTrue(cursor.range(10, 15).startsWith("10deg"));
+        assertFalse(cursor.range(0, 1).startsWith("#"));
+        assertEquals("#ff3800", cursor.range(17, 40).stringValue());
+        assertTrue(cursor.range(50, 60).isBlank());
+        assertThrows(IllegalArgumentException.class, () -> cursor.range(3, 2));
+    }
+
+    @Test
+    void cursorOfReadsTheWholeStream() throws IOException {
+        CsvCursor cursor = CsvCursor.of(new ByteArrayInputStream("h\n1\n2\n".getBytes(StandardCharsets.UTF_8)), ',');
+        int lines = 0;
+        while (cursor.nextLine()) {
+            lines++;
+        }
+        assertEquals(3, lines);
+    }
+}
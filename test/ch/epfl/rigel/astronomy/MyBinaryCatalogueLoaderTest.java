@@ -0,0 +1,129 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ */
+public class MyBinaryCatalogueLoaderTest {
+    private static final String HYG_CATALOGUE_NAME =
+            "/hygdata_v3.csv";
+
+    private static StarCatalogue csvCatalogue() throws IOException {
+        try (InputStream hygStream = MyBinaryCatalogueLoaderTest.class.getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            return new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .build();
+        }
+    }
+
+    private static byte[] binaryCatalogue() throws IOException {
+        try (InputStream hygStream = MyBinaryCatalogueLoaderTest.class.getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            ByteArrayOutputStream binaryStream = new ByteArrayOutputStream();
+            BinaryCatalogueLoader.convert(hygStream, binaryStream);
+            return binaryStream.toByteArray();
+        }
+    }
+
+    private static void assertSameStars(StarCatalogue expected, StarCatalogue actual) {
+        assertEquals(expected.starCount(), actual.starCount());
+        for (int i = 0; i < expected.starCount(); i++) {
+            assertEquals(expected.hipparcosId(i), actual.hipparcosId(i));
+            assertEquals(expected.name(i), actual.name(i));
+            assertEquals(expected.ra(i), actual.ra(i));
+            assertEquals(expected.dec(i), actual.dec(i));
+            assertEquals(expected.magnitude(i), actual.magnitude(i));
+            assertEquals(expected.colorTemperature(i), actual.colorTemperature(i));
+        }
+    }
+
+    @Test
+    void binaryCatalogueContainsTheSameStarsAsTheHygDatabase() throws IOException {
+        StarCatalogue binary = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(binaryCatalogue()), BinaryCatalogueLoader.INSTANCE)
+                .build();
+        assertSameStars(csvCatalogue(), binary);
+    }
+
+    @Test
+    void binaryCatalogueKeepsTheConstellations() throws IOException {
+        StarCatalogue.Filter filter = StarCatalogue.Filter.constellationIn(Set.of("Ori", "UMa"));
+        StarCatalogue csv;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            csv = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE, filter).build();
+        }
+        StarCatalogue binary = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(binaryCatalogue()), BinaryCatalogueLoader.INSTANCE, filter)
+                .build();
+        assertTrue(csv.starCount() > 0);
+        assertSameStars(csv, binary);
+    }
+
+    @Test
+    void binaryCatalogueFileIsCorrectlyMapped() throws IOException {
+        Path file = Files.createTempFile("hygdata_v3", ".bin");
+        try {
+            Files.write(file, binaryCatalogue());
+            StarCatalogue binary = new StarCatalogue.Builder()
+                    .loadFrom(new FileInputStream(file.toFile()), BinaryCatalogueLoader.INSTANCE)
+                    .build();
+            assertSameStars(csvCatalogue(), binary);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void binaryCatalogueWorksWithAsterisms() throws IOException {
+        try (InputStream astStream = getClass().getResourceAsStream("/asterisms.txt")) {
+            StarCatalogue catalogue = new StarCatalogue.Builder()
+                    .loadFrom(new ByteArrayInputStream(binaryCatalogue()), BinaryCatalogueLoader.INSTANCE)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+            assertFalse(catalogue.asterisms().isEmpty());
+            for (Asterism asterism : catalogue.asterisms()) {
+                int i = 0;
+                for (int index : catalogue.asterismIndices(asterism)) {
+                    assertSame(asterism.stars().get(i++), catalogue.stars().get(index));
+                }
+            }
+        }
+    }
+
+    @Test
+    void corruptedBinaryCatalogueFails() throws IOException {
+        byte[] binary = binaryCatalogue();
+        binary[binary.length / 2] ^= 1;
+        assertThrows(IOException.class, () -> BinaryCatalogueLoader.INSTANCE.load(
+                new ByteArrayInputStream(binary), new StarCatalogue.Builder()));
+    }
+
+    @Test
+    void otherFilesFail() {
+        assertThrows(IOException.class, () -> BinaryCatalogueLoader.INSTANCE.load(
+                getClass().getResourceAsStream(HYG_CATALOGUE_NAME), new StarCatalogue.Builder()));
+        assertThrows(IOException.class, () -> BinaryCatalogueLoader.INSTANCE.load(
+                new ByteArrayInputStream(new byte[0]), new StarCatalogue.Builder()));
+    }
+
+    @Test
+    void truncatedBinaryCatalogueFails() throws IOException {
+        byte[] binary = binaryCatalogue();
+        byte[] truncated = new byte[binary.length / 2];
+        System.arraycopy(binary, 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> BinaryCatalogueLoader.INSTANCE.load(
+                new ByteArrayInputStream(truncated), new StarCatalogue.Builder()));
+    }
+}
@@ -0,0 +1,96 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.math.Angle;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ */
+public class MyCelestialObjectModelTest {
+
+    private static List<SingleObjectModel<? extends CelestialObject>> models() {
+        List<SingleObjectModel<? extends CelestialObject>> models = new ArrayList<>();
+        models.add(SunModel.SUN);
+        models.add(MoonModel.MOON);
+        for (PlanetModel model : PlanetModel.ALL) {
+            if (model != PlanetModel.EARTH) {
+                models.add(model);
+            }
+        }
+        // a model only giving objects, using the default batch
+        models.add((days, conversion) -> new Planet("Fixed", EquatorialCoordinates.of(Angle.normalizePositive(days), 0.5), 1, 2));
+        return models;
+    }
+
+    @Test
+    void atBatchWithAConversionGivesTheSameValuesAsAt() {
+        var rng = TestRandomizer.newRandom();
+        double[] days = new double[500];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = rng.nextDouble(-20_000, 20_000);
+        }
+        EclipticToEquatorialConversion conversion = new EclipticToEquatorialConversion(Epoch.J2010.plusDays(0));
+        for (SingleObjectModel<? extends CelestialObject> model : models()) {
+            double[] ra = new double[days.length];
+            double[] dec = new double[days.length];
+            double[] angularSizes = new double[days.length];
+            double[] magnitudes = new double[days.length];
+            model.atBatch(days, conversion, ra, dec, angularSizes, magnitudes, 1, days.length);
+            assertEquals(0, ra[0]);
+            for (int i = 1; i < days.length; i++) {
+                CelestialObject object = model.at(days[i], conversion);
+                assertEquals(object.equatorialPos().ra(), ra[i]);
+                assertEquals(object.equatorialPos().dec(), dec[i]);
+                assertEquals(object.angularSize(), (float) angularSizes[i]);
+                assertEquals(object.magnitude(), (float) magnitudes[i]);
+            }
+        }
+    }
+
+    @Test
+    void atBatchIsCloseToAtWithTheConversionOfEachInstant() {
+        // a day of track, one instant per minute, then instants far apart
+        double[] days = new double[24 * 60 + 10];
+        for (int i = 0; i < 24 * 60; i++) {
+            days[i] = 3_000 + i / (24d * 60);
+        }
+        for (int i = 24 * 60; i < days.length; i++) {
+            days[i] = -10_000 + 1_000 * i;
+        }
+        for (SingleObjectModel<? extends CelestialObject> model : models()) {
+            double[] ra = new double[days.length];
+            double[] dec = new double[days.length];
+            double[] angularSizes = new double[days.length];
+            double[] magnitudes = new double[days.length];
+            model.atBatch(days, ra, dec, angularSizes, magnitudes, 0, days.length);
+            for (int i = 0; i < days.length; i++) {
+                CelestialObject object = model.at(days[i],
+                        new EclipticToEquatorialConversion(Epoch.J2010.plusDays(days[i])));
+                assertEquals(object.equatorialPos().ra(), ra[i], 1e-7);
+                assertEquals(object.equatorialPos().dec(), dec[i], 1e-7);
+                assertEquals(object.angularSize(), angularSizes[i], 1e-7);
+                assertEquals(object.magnitude(), magnitudes[i], 1e-5);
+            }
+        }
+    }
+
+    @Test
+    void atBatchFailsOnInvalidRanges() {
+        double[] array = new double[10];
+        assertThrows(IllegalArgumentException.class,
+                () -> SunModel.SUN.atBatch(array, array, array, array, new double[5], 0, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> MoonModel.MOON.atBatch(new double[5], array, array, array, array, 0, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> PlanetModel.MARS.atBatch(array, array, array, array, array, 5, 4));
+    }
+}
@@ -0,0 +1,123 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ */
+public class MyEphemerisCacheTest {
+
+    private static final ZonedDateTime WHEN = ZonedDateTime.of(2020, 4, 12, 21, 30, 0, 0, ZoneOffset.UTC);
+
+    private static List<CelestialObject> bodiesOf(SolarSystem solarSystem) {
+        List<CelestialObject> bodies = new ArrayList<>();
+        bodies.add(solarSystem.sun());
+        bodies.add(solarSystem.moon());
+        bodies.addAll(solarSystem.planets());
+        return bodies;
+    }
+
+    private static double angularDistance(EquatorialCoordinates c1, EquatorialCoordinates c2) {
+        double cos = Math.sin(c1.dec()) * Math.sin(c2.dec())
+                + Math.cos(c1.dec()) * Math.cos(c2.dec()) * Math.cos(c1.ra() - c2.ra());
+        double dx = Math.cos(c1.dec()) * Math.cos(c1.ra()) - Math.cos(c2.dec()) * Math.cos(c2.ra());
+        double dy = Math.cos(c1.dec()) * Math.sin(c1.ra()) - Math.cos(c2.dec()) * Math.sin(c2.ra());
+        double dz = Math.sin(c1.dec()) - Math.sin(c2.dec());
+        return cos > 0.9 ? 2 * Math.asin(Math.sqrt(dx * dx + dy * dy + dz * dz) / 2) : Math.acos(cos);
+    }
+
+    @Test
+    void interpolatedBodiesAreCloseToThoseOfTheModels() {
+        var rng = TestRandomizer.newRandom();
+        EphemerisCache cache = new EphemerisCache(1_000, EphemerisCache.DEFAULT_TOLERANCE);
+        double maxError = 0;
+        for (int i = 0; i < 2_000; i++) {
+            ZonedDateTime when = WHEN.plusSeconds(rng.nextInt(0, 365 * 24 * 3600));
+            List<CelestialObject> expected = bodiesOf(new SolarSystem(when));
+            List<CelestialObject> actual = bodiesOf(cache.solarSystem(when));
+            for (int j = 0; j < expected.size(); j++) {
+                CelestialObject e = expected.get(j);
+                CelestialObject a = actual.get(j);
+                assertEquals(e.name(), a.name());
+                maxError = Math.max(maxError, angularDistance(e.equatorialPos(), a.equatorialPos()));
+                assertEquals(e.angularSize(), a.angularSize(), 2 * EphemerisCache.DEFAULT_TOLERANCE);
+                assertEquals(e.magnitude(), a.magnitude(), 2e-3);
+            }
+            assertEquals(((Sun) expected.get(0)).meanAnomaly(), ((Sun) actual.get(0)).meanAnomaly());
+            assertEquals(((Sun) expected.get(0)).eclipticPos().lon(), ((Sun) actual.get(0)).eclipticPos().lon());
+            assertEquals(expected.get(1).info(), actual.get(1).info());
+        }
+        assertTrue(maxError <= 2 * EphemerisCache.DEFAULT_TOLERANCE);
+    }
+
+    @Test
+    void animationsReuseTheSegments() {
+        EphemerisCache cache = new EphemerisCache(4, EphemerisCache.DEFAULT_TOLERANCE);
+        // a day of animation, one frame per minute
+        for (int i = 0; i < 24 * 60; i++) {
+            cache.solarSystem(WHEN.plusMinutes(i)).planets();
+        }
+        assertTrue(cache.size() <= 4);
+        assertTrue(cache.evaluationCount() <= 4 * (2 * 12 + 1));
+
+        long count = cache.evaluationCount();
+        cache.solarSystem(WHEN).moon();
+        assertEquals(count, cache.evaluationCount());
+        cache.clear();
+        assertEquals(0, cache.size());
+        cache.solarSystem(WHEN).moon();
+        assertTrue(cache.evaluationCount() > count);
+    }
+
+    @Test
+    void theModelsAreEvaluatedWhenTheToleranceIsntMet() {
+        var rng = TestRandomizer.newRandom();
+        EphemerisCache cache = new EphemerisCache(10, 1e-15);
+        for (int i = 0; i < 100; i++) {
+            ZonedDateTime when = WHEN.plusSeconds(rng.nextInt(0, 365 * 24 * 3600));
+            List<CelestialObject> expected = bodiesOf(new SolarSystem(when));
+            List<CelestialObject> actual = bodiesOf(cache.solarSystem(when));
+            for (int j = 0; j < expected.size(); j++) {
+                assertEquals(expected.get(j).equatorialPos().ra(), actual.get(j).equatorialPos().ra());
+                assertEquals(expected.get(j).equatorialPos().dec(), actual.get(j).equatorialPos().dec());
+                assertEquals(expected.get(j).magnitude(), actual.get(j).magnitude());
+            }
+        }
+    }
+
+    @Test
+    void onlyTheBodiesThatCantBeInterpolatedAreEvaluated() {
+        // Venus is near its inferior conjunction, where its magnitude varies too fast to be interpolated
+        ZonedDateTime when = ZonedDateTime.of(2020, 6, 3, 18, 0, 0, 0, ZoneOffset.UTC);
+        EphemerisCache cache = new EphemerisCache(10, EphemerisCache.DEFAULT_TOLERANCE);
+        List<Planet> expected = new SolarSystem(when).planets();
+        List<Planet> actual = cache.solarSystem(when).planets();
+        assertEquals("Venus", actual.get(1).name());
+        assertEquals(expected.get(1).equatorialPos().ra(), actual.get(1).equatorialPos().ra());
+        assertEquals(expected.get(1).magnitude(), actual.get(1).magnitude());
+        // the other planets are still interpolated (so that some of them differ slightly from the models)
+        boolean interpolated = false;
+        for (int i = 2; i < expected.size(); i++) {
+            interpolated |= expected.get(i).equatorialPos().ra() != actual.get(i).equatorialPos().ra();
+            assertEquals(expected.get(i).equatorialPos().ra(), actual.get(i).equatorialPos().ra(),
+                    2 * EphemerisCache.DEFAULT_TOLERANCE);
+        }
+        assertTrue(interpolated);
+    }
+
+    @Test
+    void constructorFailsOnInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new EphemerisCache(0, EphemerisCache.DEFAULT_TOLERANCE));
+        assertThrows(IllegalArgumentException.class, () -> new EphemerisCache(1, 0));
+    }
+}
@@ -87,4 +87,20 @@ public class MyEpochTest {
         assertEquals(0, Epoch.J2010.julianCenturiesUntil(ZonedDateTime.of(LocalDate.of(2010, Month.JANUARY, 1).minusDays(1),
                 LocalTime.of(0, 0), ZoneOffset.UTC)));
     }
+
+    @Test
+    void primitiveTimesGiveTheSameDifferences() {
+        ZonedDateTime when = ZonedDateTime.of(LocalDate.of(1965, Month.MARCH, 4), LocalTime.of(7, 12, 33),
+                ZoneId.of("Europe/Zurich"));
+        long epochMillis = when.toInstant().toEpochMilli();
+        for (Epoch epoch : Epoch.values()) {
+            assertEquals(epoch.daysUntil(when), epoch.daysUntil(epochMillis));
+            assertEquals(epoch.julianCenturiesUntil(when), epoch.julianCenturiesUntil(epochMillis));
+            assertEquals(epoch.daysUntil(when), epoch.daysUntilJulianDate(Epoch.julianDate(epochMillis)), 1e-8);
+            assertEquals(epochMillis, epoch.epochMillisPlusDays(epoch.daysUntil(epochMillis)));
+        }
+        assertEquals(2451545, Epoch.julianDate(Epoch.J2000.epochMillisPlusDays(0)));
+        assertEquals(2440587.5, Epoch.julianDate(0));
+        assertEquals(0, Epoch.J2010.daysUntilJulianDate(2455196.5));
+    }
 }
@@ -1,9 +1,14 @@
 package ch.epfl.rigel.astronomy;
 
+import ch.epfl.rigel.math.ClosedInterval;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -132,5 +137,148 @@ public class MyHygDatabaseLoaderTest {
         assertEquals(28, count);
     }
 
+    @Test
+    void parallelLoadingKeepsTheOrderOfTheStars() throws IOException {
+        StarCatalogue sequential;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            sequential = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .build();
+        }
+        byte[] bytes;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            bytes = hygStream.readAllBytes();
+        }
+
+        List<StarCatalogue> parallels = new ArrayList<>();
+        parallels.add(new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(bytes), HygDatabaseLoader.PARALLEL)
+                .build());
+        for (int chunkCount : new int[]{1, 2, 7, 100, 10_000}) {
+            StarCatalogue.Builder builder = new StarCatalogue.Builder();
+            HygDatabaseLoader.loadInChunks(bytes, builder, chunkCount);
+            parallels.add(builder.build());
+        }
+
+        for (StarCatalogue parallel : parallels) {
+            assertEquals(sequential.starCount(), parallel.starCount());
+            for (int i = 0; i < sequential.starCount(); i++) {
+                assertEquals(sequential.hipparcosId(i), parallel.hipparcosId(i));
+                assertEquals(sequential.name(i), parallel.name(i));
+                assertEquals(sequential.ra(i), parallel.ra(i));
+                assertEquals(sequential.dec(i), parallel.dec(i));
+                assertEquals(sequential.magnitude(i), parallel.magnitude(i));
+                assertEquals(sequential.colorTemperature(i), parallel.colorTemperature(i));
+            }
+        }
+    }
+
+    @Test
+    void parallelLoadingWorksWithAsterisms() throws IOException {
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME);
+             InputStream astStream = getClass().getResourceAsStream("/asterisms.txt")) {
+            StarCatalogue catalogue = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.PARALLEL)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+            assertFalse(catalogue.asterisms().isEmpty());
+        }
+    }
+
+    @Test
+    void filteredLoadingOnlyKeepsAcceptedStars() throws IOException {
+        StarCatalogue all;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            all = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+        StarCatalogue.Filter filter = StarCatalogue.Filter.magnitudeAtMost(4)
+                .and(StarCatalogue.Filter.declinationIn(ClosedInterval.of(0, Math.PI / 2)));
+
+        for (HygDatabaseLoader loader : HygDatabaseLoader.values()) {
+            StarCatalogue filtered;
+            try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+                filtered = new StarCatalogue.Builder().loadFrom(hygStream, loader, filter).build();
+            }
+            int j = 0;
+            for (int i = 0; i < all.starCount(); i++) {
+                if (all.magnitude(i) <= 4 && all.dec(i) >= 0) {
+                    assertEquals(all.hipparcosId(i), filtered.hipparcosId(j));
+                    assertEquals(all.name(i), filtered.name(j));
+                    assertEquals(all.magnitude(i), filtered.magnitude(j));
+                    j++;
+                }
+            }
+            assertEquals(j, filtered.starCount());
+            assertTrue(0 < j && j < all.starCount());
+        }
+    }
+
+    @Test
+    void filteredLoadingWorksWithConstellations() throws IOException {
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            StarCatalogue orion = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE, StarCatalogue.Filter.constellationIn(Set.of("Ori")))
+                    .build();
+            assertTrue(orion.starCount() > 0);
+            boolean containsRigel = false;
+            for (int i = 0; i < orion.starCount(); i++) {
+                containsRigel |= orion.name(i).equals("Rigel");
+                assertFalse(orion.name(i).equals("Sirius"));
+            }
+            assertTrue(containsRigel);
+        }
+    }
+
+    @Test
+    void filteredLoadingKeepsTheStarsOfAsterisms() throws IOException {
+        StarCatalogue all;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME);
+             InputStream astStream = getClass().getResourceAsStream("/asterisms.txt")) {
+            all = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+        StarCatalogue filtered;
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME);
+             InputStream astStream = getClass().getResourceAsStream("/asterisms.txt")) {
+            filtered = builder
+                    .loadFrom(hygStream, HygDatabaseLoader.PARALLEL, StarCatalogue.Filter.magnitudeAtMost(2))
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+
+        assertEquals(all.asterisms().size(), filtered.asterisms().size());
+        int asterismStarCount = 0;
+        for (Asterism asterism : filtered.asterisms()) {
+            List<Integer> indices = filtered.asterismIndices(asterism);
+            for (int k = 0; k < indices.size(); k++) {
+                Star star = asterism.stars().get(k);
+                assertSame(star, filtered.stars().get(indices.get(k)));
+                assertNotNull(star);
+                asterismStarCount++;
+            }
+        }
+        assertTrue(asterismStarCount > 0);
+        assertTrue(filtered.starCount() < all.starCount() / 4);
+
+        // the stars added back keep their constellation
+        int addedBackCount = 0;
+        for (int i = 0; i < filtered.starCount(); i++) {
+            if (filtered.magnitude(i) > 2) {
+                assertNotNull(builder.columns().constellation(i));
+                addedBackCount++;
+            }
+        }
+        assertTrue(addedBackCount > 0);
+    }
+
+    @Test
+    void constellationFilterRejectsUnknownConstellations() {
+        assertFalse(StarCatalogue.Filter.constellationIn(Set.of("Ori")).accepts(1, 0, 0, 0, null));
+        assertTrue(StarCatalogue.Filter.constellationIn(Set.of("Ori")).accepts(1, 0, 0, 0, "Ori"));
+        assertTrue(StarCatalogue.Filter.ALL.accepts(1, 0, 0, 0, null));
+    }
 
 }
@@ -41,14 +41,14 @@ class MyMoonModelTest {
 
     @Test
     void framepadTestDec() {
-        assertEquals(-0.20114171346019355, MoonModel.MOON.at(-2313,
+        assertEquals(-0.20114171387374752, MoonModel.MOON.at(-2313,
                 new EclipticToEquatorialConversion(ZonedDateTime.of(LocalDate.of(2003,  Month.SEPTEMBER, 1),LocalTime.of(0,0), ZoneOffset.UTC))).equatorialPos().dec(),
                 1e-13);
     }
 
     @Test
     void framepadTestRaHr() {
-        assertEquals(14.211456457836, MoonModel.MOON.at(-2313,
+        assertEquals(14.211456462003502, MoonModel.MOON.at(-2313,
                       new EclipticToEquatorialConversion(ZonedDateTime.of(LocalDate.of(2003,  Month.SEPTEMBER, 1),LocalTime.of(0,0), ZoneOffset.UTC))).equatorialPos().raHr(),
                 1e-12);
     }
@@ -64,7 +64,7 @@ class MyMoonModelTest {
                 equatorialPos().
 
                 raHr();
-        assertEquals(14.211456457836277, raHr, 1e-12);
+        assertEquals(14.211456462003502, raHr, 1e-12);
     }
 
     @Test
@@ -77,7 +77,7 @@ class MyMoonModelTest {
                 equatorialPos().
 
                 dec();
-        assertEquals(-0.20114171346019355, dec, 1e-12);
+        assertEquals(-0.20114171387374752, dec, 1e-12);
     }
 
     @Test
@@ -90,7 +90,7 @@ class MyMoonModelTest {
                 equatorialPos().
 
                 dec();
-        assertEquals(-0.20114171346019355, dec, 1e-13);
+        assertEquals(-0.20114171387374752, dec, 1e-13);
     }
 
     @Test
@@ -0,0 +1,91 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import ch.epfl.rigel.coordinates.Viewport;
+import ch.epfl.rigel.math.ClosedInterval;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ */
+public class MyObservedSkyCacheTest {
+
+    private static final ZonedDateTime WHEN = ZonedDateTime.of(2020, 4, 12, 21, 30, 0, 0, ZoneOffset.UTC);
+    private static final GeographicCoordinates EPFL = GeographicCoordinates.ofDeg(6.57, 46.52);
+    private static final StarCatalogue CATALOGUE = new StarCatalogue(List.of(
+            new Star(1, "A", EquatorialCoordinates.of(1, 0.5), 1, 0),
+            new Star(2, "B", EquatorialCoordinates.of(4, -0.5), 3, 1)), List.of());
+
+    private static Viewport viewport(double centerAzDeg, double halfWidth) {
+        return new Viewport(new StereographicProjection(HorizontalCoordinates.ofDeg(centerAzDeg, 30)),
+                ClosedInterval.symmetric(2 * halfWidth), ClosedInterval.symmetric(halfWidth), false);
+    }
+
+    @Test
+    void recentSkiesAreReused() {
+        ObservedSkyCache cache = new ObservedSkyCache(4, Duration.ofSeconds(10));
+        ObservedSky sky = cache.sky(WHEN, EPFL, viewport(180, 1), CATALOGUE, 5);
+        assertEquals(0, cache.hitCount());
+        assertEquals(1, cache.missCount());
+
+        // same slot of time, equal (but not identical) parameters : the same sky stamped with the requested time
+        ObservedSky stamped = cache.sky(WHEN.plusSeconds(5), GeographicCoordinates.ofDeg(6.57, 46.52),
+                viewport(180, 1), CATALOGUE, 5);
+        assertEquals(WHEN.plusSeconds(5), stamped.when());
+        assertEquals(WHEN.plusSeconds(5).toInstant().toEpochMilli(), stamped.epochMillis());
+        assertSame(sky.starPositions(), stamped.starPositions());
+        assertArrayEquals(sky.positions(), stamped.positions());
+        assertEquals(1, cache.hitCount());
+        assertSame(sky, cache.sky(WHEN, EPFL, viewport(180, 1), CATALOGUE, 5));
+        assertEquals(2, cache.hitCount());
+
+        // any other parameter gives another sky
+        assertNotSame(sky, cache.sky(WHEN.plusSeconds(10), EPFL, viewport(180, 1), CATALOGUE, 5));
+        assertNotSame(sky, cache.sky(WHEN, GeographicCoordinates.ofDeg(6.57, 46), viewport(180, 1), CATALOGUE, 5));
+        assertNotSame(sky, cache.sky(WHEN, EPFL, viewport(90, 1), CATALOGUE, 5));
+        assertEquals(2, cache.hitCount());
+        assertEquals(4, cache.missCount());
+        assertEquals(4, cache.size());
+        assertNull(cache.get(WHEN, EPFL, sky.projection(), viewport(180, 0.5), CATALOGUE, 5));
+        assertNull(cache.get(WHEN, EPFL, sky.projection(), viewport(180, 1), CATALOGUE, 4));
+        assertNull(cache.get(WHEN, EPFL, sky.projection(), null, CATALOGUE, 5));
+        assertEquals(7, cache.missCount());
+    }
+
+    @Test
+    void leastRecentlyUsedSkyIsRemoved() {
+        ObservedSkyCache cache = new ObservedSkyCache(2, Duration.ofSeconds(1));
+        ObservedSky first = cache.sky(WHEN, EPFL, viewport(0, 1), CATALOGUE, 5);
+        ObservedSky second = cache.sky(WHEN, EPFL, viewport(90, 1), CATALOGUE, 5);
+        // the first sky is now the most recently used
+        assertSame(first, cache.sky(WHEN, EPFL, viewport(0, 1), CATALOGUE, 5));
+        cache.sky(WHEN, EPFL, viewport(180, 1), CATALOGUE, 5);
+        assertEquals(2, cache.size());
+        assertSame(first, cache.sky(WHEN, EPFL, viewport(0, 1), CATALOGUE, 5));
+        assertNotSame(second, cache.sky(WHEN, EPFL, viewport(90, 1), CATALOGUE, 5));
+
+        // skies without viewport can be added too
+        ObservedSky unculled = new ObservedSky(WHEN, EPFL, first.projection(), CATALOGUE, 5);
+        cache.put(unculled);
+        assertSame(unculled, cache.get(WHEN, EPFL, first.projection(), null, CATALOGUE, 5));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void constructorFailsOnInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new ObservedSkyCache(0, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new ObservedSkyCache(1, Duration.ZERO));
+    }
+}
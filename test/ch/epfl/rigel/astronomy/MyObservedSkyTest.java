@@ -1,14 +1,19 @@
 package ch.epfl.rigel.astronomy;
 
 import ch.epfl.rigel.coordinates.*;
+import ch.epfl.rigel.math.Angle;
+import ch.epfl.rigel.math.ClosedInterval;
+import ch.epfl.test.TestRandomizer;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -106,4 +111,396 @@ class MyObservedSkyTest {
                         .apply(EquatorialCoordinates.of(0.004696959812148989,-0.8618930353430763))),0.001));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void observedSkyOnlyContainsTheBrightStarsOfASortedCatalogue() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv");
+             InputStream astStream = getClass().getResourceAsStream("/asterisms.txt")) {
+            catalogue = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build()
+                    .sortedByMagnitude();
+        }
+        ObservedSky all = new ObservedSky(when, where, proj, catalogue);
+        ObservedSky bright = new ObservedSky(when, where, proj, catalogue, 3);
+
+        Set<Integer> asterismStars = new HashSet<>();
+        for (Asterism asterism : catalogue.asterisms()) {
+            asterismStars.addAll(catalogue.asterismIndices(asterism));
+        }
+        int brighterStarCount = catalogue.brighterStarCount(3);
+        int k = 0;
+        for (int i = 0; i < catalogue.starCount(); i++) {
+            if (i < brighterStarCount || asterismStars.contains(i)) {
+                assertEquals(i, bright.starIndex(k));
+                assertSame(all.stars().get(i), bright.stars().get(k));
+                assertEquals(all.starPositions()[2 * i], bright.starPositions()[2 * k]);
+                assertEquals(all.starPositions()[2 * i + 1], bright.starPositions()[2 * k + 1]);
+                k++;
+            }
+        }
+        assertEquals(catalogue.starCount(), all.starCount());
+        assertEquals(k, bright.starCount());
+        assertTrue(k > brighterStarCount);
+        assertEquals(2 * bright.starCount(), bright.starPositions().length);
+        assertEquals(bright.starCount(), bright.stars().size());
+
+        // zooming out doesn't drop any asterism
+        assertEquals(all.asterisms(), bright.asterisms());
+        for (Asterism asterism : bright.asterisms()) {
+            List<Integer> indices = bright.asterismIndices(asterism);
+            List<Integer> catalogueIndices = catalogue.asterismIndices(asterism);
+            for (int j = 0; j < indices.size(); j++) {
+                assertEquals((int) catalogueIndices.get(j), bright.starIndex(indices.get(j)));
+            }
+        }
+    }
+
+    @Test
+    void culledObservedSkyOnlyContainsTheVisibleStars() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv");
+             InputStream astStream = getClass().getResourceAsStream("/asterisms.txt")) {
+            catalogue = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+        GeographicCoordinates epfl = GeographicCoordinates.ofDeg(6.57, 46.52);
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 40));
+        ClosedInterval bounds = ClosedInterval.symmetric(0.5);
+
+        for (boolean horizonCulling : new boolean[]{false, true}) {
+            Viewport viewport = new Viewport(projection, bounds, bounds, horizonCulling);
+            ObservedSky all = new ObservedSky(when, epfl, projection, catalogue);
+            ObservedSky culled = new ObservedSky(when, epfl, viewport, catalogue, Double.POSITIVE_INFINITY);
+            EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(when, epfl);
+
+            Set<Integer> asterismStars = new HashSet<>();
+            for (Asterism asterism : catalogue.asterisms()) {
+                asterismStars.addAll(catalogue.asterismIndices(asterism));
+            }
+
+            int k = 0;
+            for (int i = 0; i < catalogue.starCount(); i++) {
+                double x = all.starPositions()[2 * i];
+                double y = all.starPositions()[2 * i + 1];
+                boolean aboveHorizon = conversion.apply(EquatorialCoordinates.of(catalogue.ra(i), catalogue.dec(i))).alt() >= 0;
+                boolean visible = viewport.contains(x, y) && (aboveHorizon || !horizonCulling);
+                if (visible || asterismStars.contains(i)) {
+                    assertEquals(i, culled.starIndex(k));
+                    assertSame(all.stars().get(i), culled.stars().get(k));
+                    assertEquals(x, culled.starPositions()[2 * k]);
+                    assertEquals(y, culled.starPositions()[2 * k + 1]);
+                    k++;
+                }
+            }
+            assertEquals(k, culled.starCount());
+            assertTrue(k < catalogue.starCount() / 2);
+
+            for (Asterism asterism : culled.asterisms()) {
+                List<Integer> indices = culled.asterismIndices(asterism);
+                List<Integer> catalogueIndices = catalogue.asterismIndices(asterism);
+                for (int j = 0; j < indices.size(); j++) {
+                    assertEquals((int) catalogueIndices.get(j), culled.starIndex(indices.get(j)));
+                }
+            }
+
+            for (int i = 0; i < culled.starCount(); i += 17) {
+                CartesianCoordinates position = CartesianCoordinates.of(
+                        culled.starPositions()[2 * i], culled.starPositions()[2 * i + 1]);
+                assertEquals(all.objectClosestTo(position, 0.01), culled.objectClosestTo(position, 0.01));
+            }
+        }
+    }
+
+    @Test
+    void parallelObservedSkyIsIdenticalToTheSerialOne() {
+        var rng = TestRandomizer.newRandom();
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for (int i = 0; i < 120_000; i++) {
+            builder.addStar(i, "Star" + i, rng.nextDouble(0, Angle.TAU), rng.nextDouble(-Math.PI / 2, Math.PI / 2),
+                    (float) rng.nextDouble(-1, 12), (float) rng.nextDouble(-0.5, 5.5));
+        }
+        StarCatalogue catalogue = builder.build().sortedByMagnitude();
+        GeographicCoordinates epfl = GeographicCoordinates.ofDeg(6.57, 46.52);
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(120, 25));
+        Viewport viewport = new Viewport(projection, ClosedInterval.symmetric(0.8), ClosedInterval.symmetric(0.5), true);
+
+        ObservedSky serial = new ObservedSky(when, epfl, projection, catalogue, 9, Integer.MAX_VALUE);
+        ObservedSky parallel = new ObservedSky(when, epfl, projection, catalogue, 9, 1);
+        assertEquals(serial.starCount(), parallel.starCount());
+        assertArrayEquals(serial.starPositions(), parallel.starPositions());
+        assertArrayEquals(serial.planetPositions(), parallel.planetPositions());
+        assertEquals(serial.sunPosition().x(), parallel.sunPosition().x());
+        assertEquals(serial.moonPosition().y(), parallel.moonPosition().y());
+
+        ObservedSky serialCulled = new ObservedSky(when, epfl, viewport, catalogue, 9, Integer.MAX_VALUE);
+        ObservedSky parallelCulled = new ObservedSky(when, epfl, viewport, catalogue, 9, 1);
+        assertEquals(serialCulled.starCount(), parallelCulled.starCount());
+        assertArrayEquals(serialCulled.starPositions(), parallelCulled.starPositions());
+        for (int k = 0; k < serialCulled.starCount(); k++) {
+            assertEquals(serialCulled.starIndex(k), parallelCulled.starIndex(k));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new ObservedSky(when, epfl, projection, catalogue, 9, 0));
+    }
+
+    @Test
+    void derivedSkiesAreTheSameAsNewOnes() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv");
+             InputStream astStream = getClass().getResourceAsStream("/asterisms.txt")) {
+            catalogue = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build()
+                    .sortedByMagnitude();
+        }
+        GeographicCoordinates epfl = GeographicCoordinates.ofDeg(6.57, 46.52);
+        StereographicProjection projection1 = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 40));
+        StereographicProjection projection2 = new StereographicProjection(HorizontalCoordinates.ofDeg(185, 40));
+        ObservedSky sky = new ObservedSky(when, epfl, projection1, catalogue, 5);
+
+        ObservedSky panned = sky.withProjection(projection2);
+        ObservedSky expected = new ObservedSky(when, epfl, projection2, catalogue, 5);
+        assertSame(sky.moon(), panned.moon());
+        assertSame(projection2, panned.projection());
+        assertEquals(sky.asterisms(), panned.asterisms());
+        assertArrayEquals(expected.starPositions(), panned.starPositions());
+        assertArrayEquals(expected.planetPositions(), panned.planetPositions());
+        assertEquals(expected.moonPosition().x(), panned.moonPosition().x());
+
+        Viewport viewport = new Viewport(projection2, ClosedInterval.symmetric(0.5), ClosedInterval.symmetric(0.3), true);
+        ObservedSky culled = sky.withViewport(viewport);
+        ObservedSky expectedCulled = new ObservedSky(when, epfl, viewport, catalogue, 5);
+        assertEquals(expectedCulled.starCount(), culled.starCount());
+        assertArrayEquals(expectedCulled.starPositions(), culled.starPositions());
+        for (int k = 0; k < culled.starCount(); k++) {
+            assertEquals(expectedCulled.starIndex(k), culled.starIndex(k));
+        }
+
+        // the models are reused within the tolerance from the time at which they were computed
+        Duration tolerance = Duration.ofMinutes(1);
+        ObservedSky later = sky.at(when.plusSeconds(40), epfl, tolerance);
+        ObservedSky expectedLater = new ObservedSky(when.plusSeconds(40), epfl, projection1, catalogue, 5);
+        assertSame(sky.sun(), later.sun());
+        assertEquals(when.plusSeconds(40), later.when());
+        assertArrayEquals(expectedLater.starPositions(), later.starPositions());
+        for (int i = 0; i < later.planetPositions().length; i++) {
+            // the projection stretches the positions far from its center
+            double position = expectedLater.planetPositions()[i];
+            assertEquals(position, later.planetPositions()[i], 1e-5 * (1 + position * position));
+        }
+        assertEquals(expectedLater.sunHorPos().alt(), later.sunHorPos().alt(), 1e-5);
+
+        ObservedSky evenLater = later.at(when.plusSeconds(80), epfl, tolerance);
+        assertNotSame(sky.sun(), evenLater.sun());
+        ObservedSky expectedEvenLater = new ObservedSky(when.plusSeconds(80), epfl, projection1, catalogue, 5);
+        assertArrayEquals(expectedEvenLater.planetPositions(), evenLater.planetPositions());
+
+        assertThrows(IllegalArgumentException.class, () -> sky.at(when, epfl, Duration.ofSeconds(-1)));
+
+        // the models are interpolated by the cache of ephemerides at other times
+        EphemerisCache ephemerides = new EphemerisCache(4, EphemerisCache.DEFAULT_TOLERANCE);
+        assertSame(sky.sun(), sky.at(when, epfl, ephemerides).sun());
+        ObservedSky interpolated = sky.at(when.plusSeconds(80), epfl, ephemerides);
+        assertArrayEquals(expectedEvenLater.starPositions(), interpolated.starPositions());
+        for (int i = 0; i < interpolated.planetPositions().length; i++) {
+            double position = expectedEvenLater.planetPositions()[i];
+            assertEquals(position, interpolated.planetPositions()[i], 1e-6 * (1 + position * position));
+        }
+        assertEquals(expectedEvenLater.moonPosition().x(), interpolated.moonPosition().x(), 1e-6);
+        assertTrue(ephemerides.size() > 0);
+
+        // the same sky with the instant in milliseconds, in the time zone of the previous sky
+        long epochMillis = when.plusSeconds(80).toInstant().toEpochMilli();
+        ObservedSky fromMillis = sky.at(epochMillis, epfl, ephemerides);
+        assertEquals(epochMillis, fromMillis.epochMillis());
+        assertEquals(when.plusSeconds(80), fromMillis.when());
+        assertSame(fromMillis.when(), fromMillis.when());
+        assertEquals(when.plusSeconds(80), fromMillis.withLayers(List.of()).when());
+        assertArrayEquals(interpolated.planetPositions(), fromMillis.planetPositions());
+        assertArrayEquals(interpolated.starPositions(), fromMillis.starPositions());
+    }
+
+    @Test
+    void objectClosestToFindsTheClosestObject() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv")) {
+            catalogue = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .build();
+        }
+        ObservedSky sky = new ObservedSky(when, GeographicCoordinates.ofDeg(6.57, 46.52),
+                new StereographicProjection(HorizontalCoordinates.ofDeg(90, 20)), catalogue);
+        // the objects of the layers, in the order of their positions in the buffer
+        List<CelestialObject> objects = new ArrayList<>();
+        for (SkyLayer layer : sky.layers()) {
+            assertEquals(objects.size(), sky.offsetOf(layer));
+            objects.addAll(sky.objectsOf(layer));
+        }
+        double[] positions = sky.positions();
+        assertEquals(2 * objects.size(), positions.length);
+        assertEquals(sky.sunPosition().x(), positions[2 * sky.offsetOf(SkyLayer.SUN)]);
+        assertEquals(sky.moonPosition().y(), positions[2 * sky.offsetOf(SkyLayer.MOON) + 1]);
+
+        var rng = TestRandomizer.newRandom();
+        for (int k = 0; k < 300; k++) {
+            double x = rng.nextDouble(-1.5, 1.5);
+            double y = rng.nextDouble(-1.5, 1.5);
+            double maxDistance = rng.nextDouble(0, 0.05);
+            CelestialObject expected = null;
+            double bestDistSq = maxDistance * maxDistance;
+            for (int i = 0; i < objects.size(); i++) {
+                double dx = positions[2 * i] - x;
+                double dy = positions[2 * i + 1] - y;
+                if (dx * dx + dy * dy < bestDistSq) {
+                    expected = objects.get(i);
+                    bestDistSq = dx * dx + dy * dy;
+                }
+            }
+            assertEquals(Optional.ofNullable(expected), sky.objectClosestTo(CartesianCoordinates.of(x, y), maxDistance));
+        }
+        // the positions of the objects give the objects themselves
+        assertSame(sky.moon(), sky.objectClosestTo(sky.moonPosition(), 1e-9).orElseThrow());
+    }
+
+    @Test
+    void objectClosestToOnlySearchesTheGivenLayers() {
+        var rng = TestRandomizer.newRandom();
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for (int i = 0; i < 2_000; i++) {
+            builder.addStar(i, "Star" + i, rng.nextDouble(0, Angle.TAU), rng.nextDouble(-Math.PI / 2, Math.PI / 2),
+                    (float) rng.nextDouble(-1, 6), (float) rng.nextDouble(-0.5, 5.5));
+        }
+        StarCatalogue catalogue = builder.build();
+        ObservedSky sky = new ObservedSky(when, GeographicCoordinates.ofDeg(6.57, 46.52),
+                new StereographicProjection(HorizontalCoordinates.ofDeg(90, 20)), catalogue);
+
+        // the closest planet to the position of a planet is itself, even if a star is closer
+        double[] planetPositions = sky.planetPositions();
+        for (int i = 0; i < sky.planets().size(); i++) {
+            CartesianCoordinates position = CartesianCoordinates.of(planetPositions[2 * i], planetPositions[2 * i + 1]);
+            assertSame(sky.planets().get(i), sky.objectClosestTo(position, 10, Set.of(SkyLayer.PLANETS)).orElseThrow());
+            assertTrue(sky.objectClosestTo(position, 10, Set.of(SkyLayer.STARS))
+                    .orElseThrow() instanceof Star);
+        }
+        assertEquals(Optional.empty(), sky.objectClosestTo(sky.sunPosition(), 10, Set.of()));
+        assertSame(sky.sun(), sky.objectClosestTo(sky.sunPosition(), 10,
+                Set.of(SkyLayer.SUN, SkyLayer.MOON)).orElseThrow());
+    }
+
+    @Test
+    void addedLayersAreProjectedAndSearchedWithTheBuiltInOnes() {
+        var rng = TestRandomizer.newRandom();
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for (int i = 0; i < 1_000; i++) {
+            builder.addStar(i, "Star" + i, rng.nextDouble(0, Angle.TAU), rng.nextDouble(-Math.PI / 2, Math.PI / 2),
+                    (float) rng.nextDouble(-1, 6), (float) rng.nextDouble(-0.5, 5.5));
+        }
+        GeographicCoordinates epfl = GeographicCoordinates.ofDeg(6.57, 46.52);
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(90, 20));
+        List<EquatorialCoordinates> layerPositions = List.of(EquatorialCoordinates.of(Angle.ofDeg(10.68), Angle.ofDeg(41.27)),
+                EquatorialCoordinates.of(Angle.ofDeg(83.82), Angle.ofDeg(-5.39)),
+                EquatorialCoordinates.of(Angle.ofDeg(201.37), Angle.ofDeg(-43.02)));
+        SkyLayer layer = SkyLayer.of("Deep sky", (daysSinceJ2010, eclToEquConversion) -> {
+            List<CelestialObject> objects = new ArrayList<>();
+            for (int i = 0; i < layerPositions.size(); i++) {
+                objects.add(new CelestialObject("Object" + i, layerPositions.get(i), 0, 4) {
+                });
+            }
+            return objects;
+        });
+
+        ObservedSky sky = new ObservedSky(when, epfl, projection, builder.build());
+        ObservedSky layered = sky.withLayers(List.of(layer));
+        assertEquals(SkyLayer.BUILT_IN, sky.layers());
+        assertEquals(List.of(SkyLayer.STARS, SkyLayer.PLANETS, SkyLayer.SUN, SkyLayer.MOON, layer), layered.layers());
+        assertThrows(IllegalArgumentException.class, () -> sky.objectsOf(layer));
+        assertEquals(3, layered.objectsOf(layer).size());
+        int starCount = sky.starCount();
+        assertEquals(0, layered.offsetOf(SkyLayer.STARS));
+        assertEquals(starCount, layered.offsetOf(SkyLayer.PLANETS));
+        assertEquals(starCount + 9, layered.offsetOf(layer));
+        assertEquals(2 * (starCount + 12), layered.positions().length);
+        assertArrayEquals(sky.planetPositions(), layered.planetPositions());
+        // the stars are projected once for both skies
+        assertSame(sky.starPositions(), layered.starPositions());
+
+        EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(when, epfl);
+        double[] positions = layered.positions();
+        int offset = layered.offsetOf(layer);
+        for (int i = 0; i < layerPositions.size(); i++) {
+            CartesianCoordinates expected = projection.apply(conversion.apply(layerPositions.get(i)));
+            assertEquals(expected.x(), positions[2 * (offset + i)], 1e-12);
+            assertEquals(expected.y(), positions[2 * (offset + i) + 1], 1e-12);
+
+            CelestialObject object = layered.objectsOf(layer).get(i);
+            assertSame(object, layered.objectClosestTo(expected, 10, Set.of(layer)).orElseThrow());
+            assertSame(object, layered.objectClosestTo(expected, 1e-9).orElseThrow());
+            ObservedSky.Selection within = layered.objectsWithin(expected, 1e-9);
+            assertEquals(1, within.size());
+            assertEquals(layer, within.layer(0));
+            assertEquals(i, within.index(0));
+            assertSame(object, layered.kNearest(expected, 1).object(0));
+        }
+        // the derived skies keep their layers
+        assertEquals(layered.layers(), layered.withProjection(projection).layers());
+
+        // the layers are computed at the observation time, even if the solar system of another time is reused
+        double[] layerDays = new double[1];
+        SkyLayer clock = SkyLayer.of("Clock", (daysSinceJ2010, eclToEquConversion) -> {
+            layerDays[0] = daysSinceJ2010;
+            return List.of();
+        });
+        ZonedDateTime later = when.plusMinutes(30);
+        ObservedSky reused = sky.withLayers(List.of(clock)).at(later, epfl, Duration.ofHours(1));
+        assertEquals(sky.sun().equatorialPos().ra(), reused.sun().equatorialPos().ra());
+        assertEquals(0, reused.objectsOf(clock).size());
+        assertEquals(Epoch.J2010.daysUntil(later), layerDays[0]);
+    }
+
+    @Test
+    void objectsWithinAndKNearestAgreeWithTheSky() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv")) {
+            catalogue = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .build();
+        }
+        ObservedSky sky = new ObservedSky(when, GeographicCoordinates.ofDeg(6.57, 46.52),
+                new StereographicProjection(HorizontalCoordinates.ofDeg(90, 20)), catalogue);
+        CartesianCoordinates point = CartesianCoordinates.of(0.1, -0.2);
+
+        ObservedSky.Selection within = sky.objectsWithin(point, 0.05);
+        int starCount = 0;
+        for (int i = 0; i < sky.starCount(); i++) {
+            double dx = sky.starPositions()[2 * i] - point.x();
+            double dy = sky.starPositions()[2 * i + 1] - point.y();
+            starCount += dx * dx + dy * dy <= 0.05 * 0.05 ? 1 : 0;
+        }
+        int[] stars = within.indicesOf(SkyLayer.STARS);
+        assertEquals(starCount, stars.length);
+        for (int i = 0; i < within.size(); i++) {
+            assertTrue(within.distance(i) <= 0.05);
+            if (within.layer(i) == SkyLayer.STARS) {
+                assertSame(sky.stars().get(within.index(i)), within.object(i));
+            }
+        }
+
+        ObservedSky.Selection nearest = sky.kNearest(point, 10);
+        assertEquals(10, nearest.size());
+        for (int i = 1; i < nearest.size(); i++) {
+            assertTrue(nearest.distance(i - 1) <= nearest.distance(i));
+        }
+        assertSame(sky.objectClosestTo(point, 1).orElseThrow(), nearest.object(0));
+
+        ObservedSky.Selection moon = sky.kNearest(sky.moonPosition(), 1);
+        assertEquals(SkyLayer.MOON, moon.layer(0));
+        assertSame(sky.moon(), moon.object(0));
+        assertEquals(0, moon.distance(0));
+    }
+}
@@ -0,0 +1,117 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.*;
+import ch.epfl.rigel.math.Angle;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ */
+public class MyObserverBatchTest {
+
+    private static final ZonedDateTime WHEN = ZonedDateTime.of(2020, 4, 12, 21, 30, 0, 0, ZoneOffset.UTC);
+
+    private static StarCatalogue randomCatalogue(int count) {
+        return unsortedRandomCatalogue(count).sortedByMagnitude();
+    }
+
+    private static StarCatalogue unsortedRandomCatalogue(int count) {
+        var rng = TestRandomizer.newRandom();
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for (int i = 0; i < count; i++) {
+            builder.addStar(i, "Star" + i, rng.nextDouble(0, Angle.TAU), rng.nextDouble(-Math.PI / 2, Math.PI / 2),
+                    (float) rng.nextDouble(-1, 12), (float) rng.nextDouble(-0.5, 5.5));
+        }
+        return builder.build();
+    }
+
+    private static List<GeographicCoordinates> randomObservers(int count) {
+        var rng = TestRandomizer.newRandom();
+        List<GeographicCoordinates> observers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            observers.add(GeographicCoordinates.ofDeg(rng.nextDouble(-180, 180), rng.nextDouble(-90, 90)));
+        }
+        return observers;
+    }
+
+    @Test
+    void bodyPositionsAreThoseOfTheConversion() {
+        ObserverBatch batch = new ObserverBatch(WHEN, randomCatalogue(10));
+        SolarSystem solarSystem = batch.solarSystem();
+        List<CelestialObject> bodies = new ArrayList<>();
+        bodies.add(solarSystem.sun());
+        bodies.add(solarSystem.moon());
+        bodies.addAll(solarSystem.planets());
+
+        List<GeographicCoordinates> observers = randomObservers(50);
+        double[][] positions = batch.bodyPositions(observers);
+        assertEquals(observers.size(), positions.length);
+        for (int i = 0; i < observers.size(); i++) {
+            EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(WHEN, observers.get(i));
+            assertEquals(18, positions[i].length);
+            for (int j = 0; j < bodies.size(); j++) {
+                HorizontalCoordinates expected = conversion.apply(bodies.get(j).equatorialPos());
+                assertEquals(expected.az(), positions[i][2 * j]);
+                assertEquals(expected.alt(), positions[i][2 * j + 1]);
+            }
+        }
+        assertEquals(0, batch.bodyPositions(List.of()).length);
+    }
+
+    @Test
+    void visibleStarsAreTheStarsAboveTheHorizon() {
+        // the fainter stars are skipped whether the catalogue is sorted by magnitude or not
+        for (StarCatalogue catalogue : List.of(randomCatalogue(5_000), unsortedRandomCatalogue(5_000))) {
+            ObserverBatch batch = new ObserverBatch(WHEN, catalogue);
+            List<GeographicCoordinates> observers = randomObservers(20);
+            int[][] visible = batch.visibleStars(observers, 8);
+            for (int i = 0; i < observers.size(); i++) {
+                EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(WHEN, observers.get(i));
+                int next = 0;
+                for (int j = 0; j < catalogue.starCount(); j++) {
+                    double alt = conversion.apply(EquatorialCoordinates.of(catalogue.ra(j), catalogue.dec(j))).alt();
+                    boolean listed = next < visible[i].length && visible[i][next] == j;
+                    // the stars on the horizon can be on either side because of the rounding errors
+                    if (Math.abs(alt) > 1e-12) {
+                        assertEquals(alt > 0 && catalogue.magnitude(j) <= 8, listed);
+                    }
+                    if (listed) {
+                        next++;
+                    }
+                }
+                assertEquals(visible[i].length, next);
+            }
+        }
+    }
+
+    @Test
+    void skiesAreTheSameAsIndividualOnes() {
+        StarCatalogue catalogue = randomCatalogue(5_000);
+        ObserverBatch batch = new ObserverBatch(WHEN, catalogue);
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(120, 25));
+        List<GeographicCoordinates> observers = randomObservers(10);
+        List<ObservedSky> skies = batch.skies(observers, projection, 8);
+        assertEquals(observers.size(), skies.size());
+        for (int i = 0; i < observers.size(); i++) {
+            ObservedSky expected = new ObservedSky(WHEN, observers.get(i), projection, catalogue, 8);
+            ObservedSky actual = skies.get(i);
+            assertSame(batch.solarSystem().sun(), actual.sun());
+            assertEquals(observers.get(i).lon(), actual.where().lon());
+            assertEquals(expected.starCount(), actual.starCount());
+            assertArrayEquals(expected.starPositions(), actual.starPositions());
+            assertArrayEquals(expected.planetPositions(), actual.planetPositions());
+            assertEquals(expected.sunPosition().x(), actual.sunPosition().x());
+            assertEquals(expected.moonPosition().y(), actual.moonPosition().y());
+        }
+        assertTrue(batch.skies(List.of(), projection, 8).isEmpty());
+    }
+}
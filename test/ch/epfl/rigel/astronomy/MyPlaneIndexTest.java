@@ -0,0 +1,151 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ */
+public class MyPlaneIndexTest {
+
+    private static int bruteForceNearest(double[] positions, double x, double y, double maxDistance) {
+        int best = -1;
+        double bestDistSq = maxDistance * maxDistance;
+        for (int i = 0; i < positions.length; i += 2) {
+            double dx = positions[i] - x;
+            double dy = positions[i + 1] - y;
+            if (dx * dx + dy * dy < bestDistSq) {
+                best = i / 2;
+                bestDistSq = dx * dx + dy * dy;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    void nearestGivesTheSameResultAsAScan() {
+        var rng = TestRandomizer.newRandom();
+        for (int n : new int[]{0, 1, 5, 100, 10_000}) {
+            double[] positions = new double[2 * n];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = rng.nextDouble(-2, 2);
+            }
+            PlaneIndex index = new PlaneIndex(positions);
+            assertEquals(n, index.size());
+            for (int k = 0; k < 500; k++) {
+                double x = rng.nextDouble(-2.5, 2.5);
+                double y = rng.nextDouble(-2.5, 2.5);
+                double maxDistance = rng.nextDouble(0, 1);
+                assertEquals(bruteForceNearest(positions, x, y, maxDistance), index.nearest(x, y, maxDistance));
+            }
+        }
+    }
+
+    @Test
+    void nearestOnlyFindsTheAcceptedPoints() {
+        var rng = TestRandomizer.newRandom();
+        double[] positions = new double[2 * 5_000];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = rng.nextDouble(-2, 2);
+        }
+        PlaneIndex index = new PlaneIndex(positions);
+        // only the points of a range of identifiers are accepted, as those of a layer of a sky
+        double[] accepted = Arrays.copyOfRange(positions, 2 * 1_000, 2 * 1_500);
+        for (int k = 0; k < 500; k++) {
+            double x = rng.nextDouble(-2.5, 2.5);
+            double y = rng.nextDouble(-2.5, 2.5);
+            double maxDistance = rng.nextDouble(0, 1);
+            int expected = bruteForceNearest(accepted, x, y, maxDistance);
+            assertEquals(expected == -1 ? -1 : 1_000 + expected,
+                    index.nearest(x, y, maxDistance, id -> 1_000 <= id && id < 1_500));
+        }
+        assertEquals(-1, index.nearest(0, 0, 10, id -> false));
+    }
+
+    @Test
+    void nearestWorksWithDuplicatesAndSortedPoints() {
+        double[] positions = new double[2_000];
+        for (int i = 0; i < positions.length; i += 2) {
+            positions[i] = (i / 2) / 10 * 0.01;
+            positions[i + 1] = 0;
+        }
+        PlaneIndex index = new PlaneIndex(positions);
+        for (int i = 0; i < positions.length; i += 20) {
+            // the first of the 10 points at the same place
+            assertEquals(i / 2, index.nearest(positions[i], 0.001, 0.1));
+        }
+        assertEquals(-1, index.nearest(0, 0, 0));
+    }
+
+    @Test
+    void infiniteAndUndefinedPointsAreIgnored() {
+        double[] positions = {Double.POSITIVE_INFINITY, 0, 0, Double.NaN, 1, 1, -1, Double.NEGATIVE_INFINITY};
+        PlaneIndex index = new PlaneIndex(positions);
+        assertEquals(1, index.size());
+        assertEquals(2, index.nearest(0, 0, 2));
+        assertEquals(-1, index.nearest(0, 0, 1));
+    }
+
+    @Test
+    void withinAndKNearestGiveTheSameResultsAsAScan() {
+        var rng = TestRandomizer.newRandom();
+        for (int n : new int[]{0, 3, 100, 5_000}) {
+            double[] positions = new double[2 * n];
+            for (int i = 0; i < positions.length; i++) {
+                // rounded, so that some points are at the same distance
+                positions[i] = Math.round(rng.nextDouble(-2, 2) * 20) / 20d;
+            }
+            PlaneIndex index = new PlaneIndex(positions);
+            for (int q = 0; q < 200; q++) {
+                double x = Math.round(rng.nextDouble(-2.5, 2.5) * 20) / 20d;
+                double y = Math.round(rng.nextDouble(-2.5, 2.5) * 20) / 20d;
+                double[] distSq = new double[n];
+                for (int i = 0; i < n; i++) {
+                    double dx = positions[2 * i] - x;
+                    double dy = positions[2 * i + 1] - y;
+                    distSq[i] = dx * dx + dy * dy;
+                }
+
+                double radius = rng.nextDouble(0, 0.5);
+                int count = 0;
+                for (int i = 0; i < n; i++) {
+                    count += distSq[i] <= radius * radius ? 1 : 0;
+                }
+                int[] within = index.within(x, y, radius);
+                assertEquals(count, within.length);
+                for (int j = 0; j < within.length; j++) {
+                    assertTrue(distSq[within[j]] <= radius * radius);
+                    if (j > 0) {
+                        assertTrue(within[j - 1] < within[j]);
+                    }
+                }
+
+                int k = rng.nextInt(0, 20);
+                int[] nearest = index.kNearest(x, y, k);
+                assertEquals(Math.min(k, n), nearest.length);
+                for (int j = 1; j < nearest.length; j++) {
+                    double previous = distSq[nearest[j - 1]];
+                    double current = distSq[nearest[j]];
+                    assertTrue(previous < current || (previous == current && nearest[j - 1] < nearest[j]));
+                }
+                if (nearest.length > 0) {
+                    // no other point is closer than the farthest one returned
+                    int last = nearest[nearest.length - 1];
+                    int closer = 0;
+                    for (int i = 0; i < n; i++) {
+                        if (distSq[i] < distSq[last] || (distSq[i] == distSq[last] && i <= last)) {
+                            closer++;
+                        }
+                    }
+                    assertEquals(nearest.length, closer);
+                }
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new PlaneIndex(new double[0]).kNearest(0, 0, -1));
+    }
+}
@@ -2,9 +2,11 @@ package ch.epfl.rigel.astronomy;
 
 import ch.epfl.rigel.coordinates.GeographicCoordinates;
 import ch.epfl.rigel.math.Angle;
+import ch.epfl.test.TestRandomizer;
 import org.junit.jupiter.api.Test;
 
 import java.time.*;
+import java.time.temporal.ChronoUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -50,4 +52,26 @@ public class MySiderealTimeTest {
                 1e-10);
     }
 
+    @Test
+    void primitiveTimesGiveTheSameSiderealTimes() {
+        var rng = TestRandomizer.newRandom();
+        GeographicCoordinates where = GeographicCoordinates.ofDeg(6.57, 46.52);
+        for (int i = 0; i < 1_000; i++) {
+            // before and after 01.01.1970
+            long epochMillis = rng.nextLong(-5_000_000_000_000L, 5_000_000_000_000L);
+            ZonedDateTime when = ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.of("Asia/Tokyo"));
+
+            // the computation with the zoned date times
+            ZonedDateTime whenInUTC = when.withZoneSameInstant(ZoneOffset.UTC);
+            ZonedDateTime dayStart = whenInUTC.truncatedTo(ChronoUnit.DAYS);
+            double T = Epoch.J2000.julianCenturiesUntil(dayStart);
+            double t = dayStart.until(whenInUTC, ChronoUnit.MILLIS) / 3_600_000d;
+            double expected = Angle.normalizePositive(Angle.ofHr(0.000025862 * T * T + 2400.051336 * T + 6.697374558
+                    + 1.002737909 * t));
+
+            assertEquals(expected, SiderealTime.greenwich(epochMillis), 1e-12);
+            assertEquals(SiderealTime.greenwich(when), SiderealTime.greenwich(epochMillis));
+            assertEquals(SiderealTime.local(when, where), SiderealTime.local(epochMillis, where));
+        }
+    }
 }
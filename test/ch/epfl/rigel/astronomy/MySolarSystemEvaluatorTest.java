@@ -0,0 +1,84 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ */
+public class MySolarSystemEvaluatorTest {
+
+    private static final ZonedDateTime WHEN = ZonedDateTime.of(2020, 4, 12, 21, 30, 0, 0, ZoneOffset.UTC);
+
+    private static void assertSameObject(CelestialObject expected, CelestialObject actual) {
+        assertEquals(expected.name(), actual.name());
+        assertEquals(expected.equatorialPos().ra(), actual.equatorialPos().ra());
+        assertEquals(expected.equatorialPos().dec(), actual.equatorialPos().dec());
+        assertEquals(expected.angularSize(), actual.angularSize());
+        assertEquals(expected.magnitude(), actual.magnitude());
+    }
+
+    @Test
+    void bodiesAreThoseOfTheModels() {
+        var rng = TestRandomizer.newRandom();
+        EclipticToEquatorialConversion conversion = new EclipticToEquatorialConversion(WHEN);
+        for (int i = 0; i < 1_000; i++) {
+            double days = rng.nextDouble(-50_000, 50_000);
+            SolarSystemEvaluator evaluator = new SolarSystemEvaluator(days, conversion);
+
+            List<CelestialObject> expected = new ArrayList<>();
+            Sun sun = SunModel.SUN.at(days, conversion);
+            Moon moon = MoonModel.MOON.at(days, conversion);
+            expected.add(sun);
+            expected.add(moon);
+            for (PlanetModel model : PlanetModel.ALL) {
+                if (model != PlanetModel.EARTH) {
+                    expected.add(model.at(days, conversion));
+                }
+            }
+
+            List<CelestialObject> actual = new ArrayList<>();
+            actual.add(evaluator.sun());
+            actual.add(evaluator.moon());
+            actual.addAll(evaluator.planets());
+            assertEquals(SolarSystemEvaluator.BODY_COUNT, actual.size());
+            for (int j = 0; j < expected.size(); j++) {
+                assertSameObject(expected.get(j), actual.get(j));
+            }
+            assertEquals(sun.eclipticPos().lon(), evaluator.sun().eclipticPos().lon());
+            assertEquals(sun.meanAnomaly(), evaluator.sun().meanAnomaly());
+            assertEquals(moon.info(), evaluator.moon().info());
+
+            double[] ra = new double[SolarSystemEvaluator.BODY_COUNT + 1];
+            double[] dec = new double[SolarSystemEvaluator.BODY_COUNT + 1];
+            double[] angularSizes = new double[SolarSystemEvaluator.BODY_COUNT + 1];
+            double[] magnitudes = new double[SolarSystemEvaluator.BODY_COUNT + 1];
+            evaluator.writeTo(ra, dec, angularSizes, magnitudes, 1);
+            for (int j = 0; j < expected.size(); j++) {
+                assertEquals(expected.get(j).equatorialPos().ra(), ra[j + 1]);
+                assertEquals(expected.get(j).equatorialPos().dec(), dec[j + 1]);
+                assertEquals(expected.get(j).angularSize(), (float) angularSizes[j + 1]);
+                assertEquals(expected.get(j).magnitude(), (float) magnitudes[j + 1]);
+            }
+        }
+    }
+
+    @Test
+    void writeToFailsOnTooSmallArrays() {
+        SolarSystemEvaluator evaluator = new SolarSystemEvaluator(0, new EclipticToEquatorialConversion(WHEN));
+        double[] array = new double[SolarSystemEvaluator.BODY_COUNT];
+        assertThrows(IllegalArgumentException.class, () -> evaluator.writeTo(array, array, array, array, 1));
+        assertThrows(IllegalArgumentException.class, () -> evaluator.writeTo(array, array, array, array, -1));
+        assertThrows(IllegalArgumentException.class,
+                () -> evaluator.writeTo(array, array, array, new double[1], 0));
+    }
+}
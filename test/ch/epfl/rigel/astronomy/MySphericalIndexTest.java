@@ -0,0 +1,133 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.math.Angle;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ */
+public class MySphericalIndexTest {
+
+    private static StarCatalogue hygCatalogue() throws IOException {
+        try (InputStream hygStream = MySphericalIndexTest.class.getResourceAsStream("/hygdata_v3.csv")) {
+            return new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .build();
+        }
+    }
+
+    private static boolean[] candidates(SphericalIndex index, int[] ranges) {
+        boolean[] candidates = new boolean[index.starCount()];
+        for (int r = 0; r < ranges.length; r += 2) {
+            assertTrue(ranges[r] < ranges[r + 1]);
+            if (r > 0) {
+                assertTrue(ranges[r - 1] < ranges[r]);
+            }
+            for (int p = ranges[r]; p < ranges[r + 1]; p++) {
+                candidates[index.starIndex(p)] = true;
+            }
+        }
+        return candidates;
+    }
+
+    @Test
+    void indexContainsEachStarOnce() throws IOException {
+        StarCatalogue catalogue = hygCatalogue();
+        SphericalIndex index = catalogue.spatialIndex();
+        assertSame(index, catalogue.spatialIndex());
+        assertEquals(catalogue.starCount(), index.starCount());
+
+        boolean[] seen = new boolean[index.starCount()];
+        int previousCell = 0;
+        for (int p = 0; p < index.starCount(); p++) {
+            int i = index.starIndex(p);
+            assertFalse(seen[i]);
+            seen[i] = true;
+            int cell = index.cellOf(catalogue.ra(i), catalogue.dec(i));
+            assertTrue(previousCell <= cell && cell < index.cellCount());
+            previousCell = cell;
+        }
+    }
+
+    @Test
+    void rangesInCapContainAllTheStarsOfTheCap() throws IOException {
+        StarCatalogue catalogue = hygCatalogue();
+        SphericalIndex index = catalogue.spatialIndex();
+        var rng = TestRandomizer.newRandom();
+        for (int k = 0; k < 200; k++) {
+            EquatorialCoordinates center = EquatorialCoordinates.of(
+                    rng.nextDouble(0, Angle.TAU), rng.nextDouble(-Math.PI / 2, Math.PI / 2));
+            double radius = rng.nextDouble(0, Math.PI);
+            boolean[] candidates = candidates(index, index.rangesInCap(center, radius));
+            for (int i = 0; i < catalogue.starCount(); i++) {
+                double distance = SphericalIndex.angularDistance(center,
+                        EquatorialCoordinates.of(catalogue.ra(i), catalogue.dec(i)));
+                if (distance <= radius) {
+                    assertTrue(candidates[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rangesInNarrowCapSkipMostStars() throws IOException {
+        StarCatalogue catalogue = hygCatalogue();
+        SphericalIndex index = new SphericalIndex(catalogue, 40);
+        for (double dec : new double[]{-1.5, -0.7, 0, 0.7, 1.5}) {
+            int[] ranges = index.rangesInCap(EquatorialCoordinates.of(0.1, dec), Angle.ofDeg(15));
+            int count = 0;
+            for (int r = 0; r < ranges.length; r += 2) {
+                count += ranges[r + 1] - ranges[r];
+            }
+            // the cap covers less than 2% of the sphere
+            assertTrue(count < catalogue.starCount() / 10);
+        }
+    }
+
+    @Test
+    void rangesInPolygonContainAllTheStarsOfThePolygon() throws IOException {
+        StarCatalogue catalogue = hygCatalogue();
+        SphericalIndex index = catalogue.spatialIndex();
+        List<EquatorialCoordinates> vertices = List.of(
+                EquatorialCoordinates.of(Angle.ofDeg(350), Angle.ofDeg(-10)),
+                EquatorialCoordinates.of(Angle.ofDeg(20), Angle.ofDeg(-10)),
+                EquatorialCoordinates.of(Angle.ofDeg(20), Angle.ofDeg(25)),
+                EquatorialCoordinates.of(Angle.ofDeg(350), Angle.ofDeg(25)));
+        boolean[] candidates = candidates(index, index.rangesInPolygon(vertices));
+        int inside = 0;
+        for (int i = 0; i < catalogue.starCount(); i++) {
+            double ra = Angle.normalizePositive(catalogue.ra(i) + Angle.ofDeg(10));
+            if (ra <= Angle.ofDeg(30) && catalogue.dec(i) >= Angle.ofDeg(-10) && catalogue.dec(i) <= Angle.ofDeg(25)) {
+                // the box is inside the polygon, whose edges bulge out
+                assertTrue(candidates[i]);
+                inside++;
+            }
+        }
+        assertTrue(inside > 0);
+    }
+
+    @Test
+    void invalidArgumentsFail() throws IOException {
+        StarCatalogue catalogue = hygCatalogue();
+        assertThrows(IllegalArgumentException.class, () -> new SphericalIndex(catalogue, 0));
+        assertThrows(IllegalArgumentException.class, () ->
+                catalogue.spatialIndex().rangesInCap(EquatorialCoordinates.of(0, 0), -1));
+        assertThrows(IllegalArgumentException.class, () -> catalogue.spatialIndex().rangesInPolygon(List.of()));
+    }
+
+    @Test
+    void emptyCatalogueWorks() {
+        SphericalIndex index = new StarCatalogue(List.of(), List.of()).spatialIndex();
+        assertEquals(0, index.starCount());
+        assertArrayEquals(new int[0], index.rangesInCap(EquatorialCoordinates.of(0, 0), Math.PI));
+    }
+}
@@ -6,7 +6,9 @@ import ch.epfl.test.TestRandomizer;
 import org.junit.jupiter.api.Test;
 
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -168,6 +170,161 @@ public class MyStarCatalogueTest {
         }
     }
 
+    @Test
+    void columnarStarsAreCreatedOnDemandWithTheirValues(){
+        var rng = TestRandomizer.newRandom();
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        List<double[]> values = new ArrayList<>();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; i++) {
+            var hipparcosId = rng.nextInt(0, Integer.MAX_VALUE);
+            var colorIndex = (float) rng.nextDouble(-0.5, 5.5);
+            var ra = rng.nextDouble(0, Angle.TAU);
+            var dec = rng.nextDouble(-Math.PI/2, Math.PI/2);
+            var magnitude = (float) rng.nextDouble();
+            builder.addStar(hipparcosId, i % 2 == 0 ? "EZ" : "? Ori", ra, dec, magnitude, colorIndex);
+            values.add(new double[]{hipparcosId, ra, dec, magnitude, colorIndex});
+        }
+        StarCatalogue sc = builder.build();
+        assertEquals(values.size(), sc.starCount());
+        assertEquals(values.size(), sc.stars().size());
+        for (int i = 0; i < values.size(); i++) {
+            double[] v = values.get(i);
+            Star expected = new Star((int) v[0], i % 2 == 0 ? "EZ" : "? Ori", EquatorialCoordinates.of(v[1], v[2]), (float) v[3], (float) v[4]);
+            assertEquals(expected.hipparcosId(), sc.hipparcosId(i));
+            assertEquals(expected.name(), sc.name(i));
+            assertEquals(expected.equatorialPos().ra(), sc.ra(i));
+            assertEquals(expected.equatorialPos().dec(), sc.dec(i));
+            assertEquals(expected.magnitude(), sc.magnitude(i));
+            assertEquals(expected.colorTemperature(), sc.colorTemperature(i));
+
+            Star star = sc.stars().get(i);
+            assertSame(star, sc.stars().get(i));
+            assertEquals(expected.hipparcosId(), star.hipparcosId());
+            assertEquals(expected.name(), star.name());
+            assertEquals(expected.equatorialPos().ra(), star.equatorialPos().ra());
+            assertEquals(expected.equatorialPos().dec(), star.equatorialPos().dec());
+            assertEquals(expected.magnitude(), star.magnitude());
+            assertEquals(expected.colorTemperature(), star.colorTemperature());
+        }
+    }
+
+    @Test
+    void columnarStarsKeepTheirIdentityInAsterisms(){
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for (int i = 0; i < 10; i++) {
+            builder.addStar(i, "EZ", i / 10d, 0, 0, 0);
+        }
+        Asterism asterism = new Asterism(List.of(builder.stars().get(7), builder.stars().get(3)));
+        StarCatalogue sc = builder.addAsterism(asterism).build();
+        assertEquals(List.of(7, 3), sc.asterismIndices(asterism));
+        assertSame(asterism.stars().get(0), sc.stars().get(7));
+    }
+
+    @Test
+    void columnarAddStarFailsWithInvalidValues(){
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.addStar(-1, "EZ", 0, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.addStar(0, "EZ", Angle.TAU, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.addStar(0, "EZ", 0, 2, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.addStar(0, "EZ", 0, 0, 0, 6));
+        assertThrows(NullPointerException.class, () -> builder.addStar(0, null, 0, 0, 0, 0));
+        assertEquals(0, builder.stars().size());
+    }
+
+
+    @Test
+    void asterismIndicesWorkWithSharedHipparcosIds(){
+        Star a = new Star(0, "a", EquatorialCoordinates.of(0, 0), 0, 0);
+        Star b = new Star(0, "b", EquatorialCoordinates.of(0, 0), 0, 0);
+        Star c = new Star(7, "c", EquatorialCoordinates.of(0, 0), 0, 0);
+        Star d = new Star(7, "d", EquatorialCoordinates.of(0, 0), 0, 0);
+        Asterism asterism = new Asterism(List.of(b, a, c));
+        StarCatalogue catalogue = new StarCatalogue(List.of(a, c, b, a), List.of(asterism));
+        assertEquals(List.of(2, 0, 1), catalogue.asterismIndices(asterism));
+        assertThrows(IllegalArgumentException.class, () ->
+                new StarCatalogue(List.of(a, c, b), List.of(new Asterism(List.of(d)))));
+    }
+
+    @Test
+    void catalogueConstructionScalesLinearly() throws IOException {
+        // the operations of the index per star must not grow with the size of the catalogue (it would be quadratic)
+        long operations10k = syntheticCatalogue(10_000).indexOperationCount();
+        long operations100k = syntheticCatalogue(100_000).indexOperationCount();
+        long operations1M = syntheticCatalogue(1_000_000).indexOperationCount();
+        assertTrue(operations10k > 0);
+        assertTrue(operations100k < 15 * operations10k);
+        assertTrue(operations1M < 15 * operations100k);
+    }
+
+    private static StarCatalogue syntheticCatalogue(int starCount) throws IOException {
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for (int i = 0; i < starCount; i++) {
+            builder.addStar(i % 3 == 0 ? 0 : i, "S", i * Angle.TAU / starCount, 0, 1f, 0f);
+        }
+        // an asterism every 9 stars (none of them sharing a hipparcos ID), read by the loader
+        // so that its stars are found by their hipparcos ID
+        StringBuilder asterisms = new StringBuilder();
+        for (int i = 1; i + 1 < starCount; i += 9) {
+            asterisms.append(i).append(',').append(i + 1).append('\n');
+        }
+        builder.loadFrom(new ByteArrayInputStream(asterisms.toString().getBytes()), AsterismLoader.INSTANCE);
+        StarCatalogue catalogue = builder.build();
+
+        assertEquals(starCount, catalogue.starCount());
+        Asterism last = builder.asterisms().get(builder.asterisms().size() - 1);
+        int lastIndex = catalogue.asterismIndices(last).get(0);
+        assertSame(last.stars().get(0), catalogue.stars().get(lastIndex));
+        return catalogue;
+    }
 
+    @Test
+    void sortedByMagnitudeSortsTheStarsAndRemapsTheAsterisms() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv");
+             InputStream astStream = getClass().getResourceAsStream("/asterisms.txt")) {
+            catalogue = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+        assertFalse(catalogue.isSortedByMagnitude());
+        assertEquals(catalogue.starCount(), catalogue.brighterStarCount(2));
+
+        StarCatalogue sorted = catalogue.sortedByMagnitude();
+        assertTrue(sorted.isSortedByMagnitude());
+        assertSame(sorted, sorted.sortedByMagnitude());
+        assertEquals(catalogue.starCount(), sorted.starCount());
+        for (int i = 1; i < sorted.starCount(); i++) {
+            assertTrue(sorted.magnitude(i - 1) <= sorted.magnitude(i));
+        }
 
+        int brighterCount = 0;
+        for (int i = 0; i < catalogue.starCount(); i++) {
+            if (catalogue.magnitude(i) <= 2) {
+                brighterCount++;
+            }
+        }
+        assertEquals(brighterCount, sorted.brighterStarCount(2));
+        assertEquals(0, sorted.brighterStarCount(Double.NEGATIVE_INFINITY));
+        assertEquals(sorted.starCount(), sorted.brighterStarCount(Double.POSITIVE_INFINITY));
+
+        assertEquals(catalogue.asterisms(), sorted.asterisms());
+        for (Asterism asterism : sorted.asterisms()) {
+            List<Integer> indices = sorted.asterismIndices(asterism);
+            for (int k = 0; k < indices.size(); k++) {
+                assertSame(asterism.stars().get(k), sorted.stars().get(indices.get(k)));
+            }
+        }
+    }
+
+    @Test
+    void sortedByMagnitudeIsStable() {
+        Star a = new Star(1, "a", EquatorialCoordinates.of(0, 0), 2, 0);
+        Star b = new Star(2, "b", EquatorialCoordinates.of(0, 0), -1, 0);
+        Star c = new Star(3, "c", EquatorialCoordinates.of(0, 0), 2, 0);
+        Star d = new Star(4, "d", EquatorialCoordinates.of(0, 0), -1.5f, 0);
+        StarCatalogue sorted = new StarCatalogue(List.of(a, b, c, d), List.of()).sortedByMagnitude();
+        assertEquals(List.of(d, b, a, c), sorted.stars());
+        assertEquals(2, sorted.brighterStarCount(-1));
+    }
 }
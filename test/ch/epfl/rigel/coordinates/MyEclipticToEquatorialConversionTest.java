@@ -2,6 +2,7 @@ package ch.epfl.rigel.coordinates;
 
 import ch.epfl.rigel.astronomy.Epoch;
 import ch.epfl.rigel.math.Angle;
+import ch.epfl.test.TestRandomizer;
 import org.junit.jupiter.api.Test;
 
 import java.time.*;
@@ -39,4 +40,27 @@ public class MyEclipticToEquatorialConversionTest {
         assertEquals(Angle.ofDMS(13,48,42), coordinates2.ra(), 10e-6);
         assertEquals(Angle.ofDMS(5,54,33), coordinates2.dec(), 10e-5);
     }
+
+    @Test
+    void applyBatchGivesTheSameValuesAsApply() {
+        var rng = TestRandomizer.newRandom();
+        EclipticToEquatorialConversion conversion = new EclipticToEquatorialConversion(
+                ZonedDateTime.of(2020, 4, 12, 21, 30, 0, 0, ZoneOffset.UTC));
+        double[] lon = new double[100];
+        double[] lat = new double[100];
+        for (int i = 0; i < lon.length; i++) {
+            lon[i] = rng.nextDouble(0, Angle.TAU);
+            lat[i] = rng.nextDouble(-Math.PI / 2, Math.PI / 2);
+        }
+        double[] ra = new double[100];
+        double[] dec = new double[100];
+        conversion.applyBatch(lon, lat, ra, dec, 0, lon.length);
+        for (int i = 0; i < lon.length; i++) {
+            EquatorialCoordinates expected = conversion.apply(EclipticCoordinates.of(lon[i], lat[i]));
+            assertEquals(expected.ra(), ra[i]);
+            assertEquals(expected.dec(), dec[i]);
+        }
+        assertThrows(IllegalArgumentException.class, () -> conversion.applyBatch(lon, lat, ra, dec, 0, 101));
+    }
+
 }
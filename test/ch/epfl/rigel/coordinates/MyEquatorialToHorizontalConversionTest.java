@@ -1,6 +1,7 @@
 package ch.epfl.rigel.coordinates;
 
 import ch.epfl.rigel.math.Angle;
+import ch.epfl.test.TestRandomizer;
 import org.junit.jupiter.api.Test;
 
 import java.time.*;
@@ -59,4 +60,88 @@ public class MyEquatorialToHorizontalConversionTest {
         assertEquals(0.721763, (e.apply(eC).alt()), 1e-6);
     }
 
+    @Test
+    void inverseApplyIsTheInverseOfApply() {
+        ZonedDateTime d = ZonedDateTime.of(LocalDate.of(2020, Month.APRIL, 4), LocalTime.of(21, 30), ZoneOffset.UTC);
+        for (double latDeg : new double[]{-80, -12.5, 0, 46.5, 89}) {
+            EquatorialToHorizontalConversion e = new EquatorialToHorizontalConversion(d, GeographicCoordinates.ofDeg(6.57, latDeg));
+            for (double ra = 0.05; ra < Angle.TAU; ra += 0.7) {
+                for (double dec = -1.5; dec <= 1.5; dec += 0.5) {
+                    EquatorialCoordinates equ = e.inverseApply(e.apply(EquatorialCoordinates.of(ra, dec)));
+                    assertEquals(dec, equ.dec(), 1e-9);
+                    assertEquals(0, Math.sin((ra - equ.ra()) / 2), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    void applyBatchGivesTheSameValuesAsApply() {
+        var rng = TestRandomizer.newRandom();
+        EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(
+                ZonedDateTime.of(2020, 4, 12, 21, 30, 0, 0, ZoneOffset.UTC), GeographicCoordinates.ofDeg(6.57, 46.52));
+        double[] ra = new double[100];
+        double[] dec = new double[100];
+        for (int i = 0; i < ra.length; i++) {
+            ra[i] = rng.nextDouble(0, Angle.TAU);
+            dec[i] = rng.nextDouble(-Math.PI / 2, Math.PI / 2);
+        }
+        double[] az = new double[100];
+        double[] alt = new double[100];
+        conversion.applyBatch(ra, dec, az, alt, 10, 90);
+        for (int i = 0; i < ra.length; i++) {
+            if (i < 10 || i >= 90) {
+                assertEquals(0, az[i]);
+                assertEquals(0, alt[i]);
+            } else {
+                HorizontalCoordinates expected = conversion.apply(EquatorialCoordinates.of(ra[i], dec[i]));
+                assertEquals(expected.az(), az[i]);
+                assertEquals(expected.alt(), alt[i]);
+            }
+        }
+
+        // the output arrays can be the input ones
+        conversion.applyBatch(ra, dec, ra, dec, 0, ra.length);
+        for (int i = 10; i < 90; i++) {
+            assertEquals(az[i], ra[i]);
+            assertEquals(alt[i], dec[i]);
+        }
+    }
+
+    @Test
+    void sinAltitudesAreThoseOfTheAltitudes() {
+        var rng = TestRandomizer.newRandom();
+        for (int k = 0; k < 20; k++) {
+            EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(
+                    ZonedDateTime.of(2020, 4, 12, 21, 30, 0, 0, ZoneOffset.UTC),
+                    GeographicCoordinates.ofDeg(rng.nextDouble(-180, 180), rng.nextDouble(-90, 90)));
+            double[] ra = new double[100];
+            double[] dec = new double[100];
+            for (int i = 0; i < ra.length; i++) {
+                ra[i] = rng.nextDouble(0, Angle.TAU);
+                dec[i] = rng.nextDouble(-Math.PI / 2, Math.PI / 2);
+            }
+            double[][] v = EquatorialToPlaneProjection.unitVectors(ra, dec, ra.length);
+            double[] sinAlts = new double[ra.length];
+            conversion.sinAltitudes(v[0], v[1], v[2], sinAlts, 0, ra.length);
+            for (int i = 0; i < ra.length; i++) {
+                double alt = conversion.apply(EquatorialCoordinates.of(ra[i], dec[i])).alt();
+                assertEquals(Math.sin(alt), sinAlts[i], 1e-12);
+            }
+            assertThrows(IllegalArgumentException.class,
+                    () -> conversion.sinAltitudes(v[0], v[1], v[2], new double[99], 0, 100));
+        }
+    }
+
+    @Test
+    void applyBatchFailsOnInvalidRange() {
+        EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(
+                ZonedDateTime.of(2020, 4, 12, 21, 30, 0, 0, ZoneOffset.UTC), GeographicCoordinates.ofDeg(6.57, 46.52));
+        double[] a = new double[4];
+        assertThrows(IllegalArgumentException.class, () -> conversion.applyBatch(a, a, a, new double[3], 0, 4));
+        assertThrows(IllegalArgumentException.class, () -> conversion.applyBatch(a, a, a, a, -1, 2));
+        assertThrows(IllegalArgumentException.class, () -> conversion.applyBatch(a, a, a, a, 3, 2));
+        conversion.applyBatch(a, a, a, a, 2, 2);
+    }
+
 }
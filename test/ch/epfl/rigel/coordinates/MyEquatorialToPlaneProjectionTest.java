@@ -0,0 +1,143 @@
+package ch.epfl.rigel.coordinates;
+
+import ch.epfl.rigel.math.Angle;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * @author Bastien Faivre (310929)
+ * @author Kamil Mellouk (312327)
+ */
+public class MyEquatorialToPlaneProjectionTest {
+
+    private static final ZonedDateTime WHEN = ZonedDateTime.of(2020, 4, 12, 21, 30, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    void applyGivesTheSamePositionsAsConversionAndProjection() {
+        var rng = TestRandomizer.newRandom();
+        for (int k = 0; k < 20; k++) {
+            GeographicCoordinates where = GeographicCoordinates.ofDeg(rng.nextDouble(-180, 180), rng.nextDouble(-89, 89));
+            StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.of(
+                    rng.nextDouble(0, Angle.TAU), rng.nextDouble(-Math.PI / 2, Math.PI / 2)));
+            EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(WHEN, where);
+            EquatorialToPlaneProjection equToPlane = new EquatorialToPlaneProjection(WHEN, where, projection);
+
+            int count = 200;
+            double[] ra = new double[count];
+            double[] dec = new double[count];
+            for (int i = 0; i < count; i++) {
+                ra[i] = rng.nextDouble(0, Angle.TAU);
+                dec[i] = rng.nextDouble(-Math.PI / 2, Math.PI / 2);
+            }
+            double[] xs = new double[count];
+            double[] ys = new double[count];
+            double[] sinAlts = new double[count];
+            double[][] v = EquatorialToPlaneProjection.unitVectors(ra, dec, count);
+            equToPlane.applyBatch(v[0], v[1], v[2], xs, ys, 0, count);
+            equToPlane.sinAltitudes(v[0], v[1], v[2], sinAlts, 0, count);
+
+            for (int i = 0; i < count; i++) {
+                EquatorialCoordinates equ = EquatorialCoordinates.of(ra[i], dec[i]);
+                HorizontalCoordinates hor = conversion.apply(equ);
+                CartesianCoordinates expected = projection.apply(hor);
+                // the error grows with the distance to the center of the plane
+                double delta = 1e-12 * (1 + expected.x() * expected.x() + expected.y() * expected.y());
+                assertEquals(expected.x(), xs[i], delta);
+                assertEquals(expected.y(), ys[i], delta);
+                assertEquals(expected.x(), equToPlane.apply(equ).x(), delta);
+                assertEquals(expected.y(), equToPlane.apply(equ).y(), delta);
+                assertEquals(Math.sin(hor.alt()), sinAlts[i], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    void compiledBatchAgreesWithThePointByPointProjection() {
+        var rng = TestRandomizer.newRandom();
+        EquatorialToPlaneProjection equToPlane = new EquatorialToPlaneProjection(WHEN,
+                GeographicCoordinates.ofDeg(6.57, 46.52), new StereographicProjection(HorizontalCoordinates.ofDeg(200, 30)));
+        int count = 100_000;
+        double[] ra = new double[count];
+        double[] dec = new double[count];
+        for (int i = 0; i < count; i++) {
+            ra[i] = rng.nextDouble(0, Angle.TAU);
+            dec[i] = rng.nextDouble(-Math.PI / 2, Math.PI / 2);
+        }
+        double[][] v = EquatorialToPlaneProjection.unitVectors(ra, dec, count);
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        // enough iterations for the loop to be compiled (and vectorized if the processor allows it)
+        for (int k = 0; k < 50; k++) {
+            equToPlane.applyBatch(v[0], v[1], v[2], xs, ys, 0, count);
+            for (int i = k; i < count; i += 997) {
+                CartesianCoordinates expected = equToPlane.apply(EquatorialCoordinates.of(ra[i], dec[i]));
+                double delta = 1e-12 * (1 + expected.x() * expected.x() + expected.y() * expected.y());
+                assertEquals(expected.x(), xs[i], delta);
+                assertEquals(expected.y(), ys[i], delta);
+            }
+        }
+
+        // the output arrays can be the input ones
+        equToPlane.applyBatch(v[0], v[1], v[2], v[0], v[1], 0, count);
+        assertArrayEquals(xs, v[0]);
+        assertArrayEquals(ys, v[1]);
+    }
+
+    @Test
+    void vectorAndScalarBatchesAgree() {
+        // the vector kernel is only compiled and used if the module jdk.incubator.vector is available
+        assumeTrue(EquatorialToPlaneProjection.hasVectorKernel());
+        var rng = TestRandomizer.newRandom();
+        EquatorialToPlaneProjection equToPlane = new EquatorialToPlaneProjection(WHEN,
+                GeographicCoordinates.ofDeg(6.57, 46.52), new StereographicProjection(HorizontalCoordinates.ofDeg(120, 60)));
+        // an odd count and range, so that the last points of the vector kernel are projected by the scalar loop
+        int count = 10_007;
+        double[] ra = new double[count];
+        double[] dec = new double[count];
+        for (int i = 0; i < count; i++) {
+            ra[i] = rng.nextDouble(0, Angle.TAU);
+            dec[i] = rng.nextDouble(-Math.PI / 2, Math.PI / 2);
+        }
+        double[][] v = EquatorialToPlaneProjection.unitVectors(ra, dec, count);
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        double[] scalarXs = new double[count];
+        double[] scalarYs = new double[count];
+        for (int k = 0; k < 20; k++) {
+            equToPlane.applyBatch(v[0], v[1], v[2], xs, ys, 3, count);
+            equToPlane.applyBatchScalar(v[0], v[1], v[2], scalarXs, scalarYs, 3, count);
+            assertArrayEquals(scalarXs, xs);
+            assertArrayEquals(scalarYs, ys);
+        }
+        assertEquals(0, xs[2]);
+    }
+
+    @Test
+    void centerIsProjectedOnTheOrigin() {
+        GeographicCoordinates where = GeographicCoordinates.ofDeg(6.57, 46.52);
+        EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(WHEN, where);
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 45));
+        CartesianCoordinates center = new EquatorialToPlaneProjection(WHEN, where, projection)
+                .apply(conversion.inverseApply(projection.center()));
+        assertEquals(0, center.x(), 1e-12);
+        assertEquals(0, center.y(), 1e-12);
+    }
+
+    @Test
+    void batchFailsOnInvalidRange() {
+        EquatorialToPlaneProjection equToPlane = new EquatorialToPlaneProjection(WHEN,
+                GeographicCoordinates.ofDeg(0, 0), new StereographicProjection(HorizontalCoordinates.of(0, 0)));
+        double[] a = new double[2];
+        assertThrows(IllegalArgumentException.class, () -> equToPlane.applyBatch(a, a, new double[1], a, a, 0, 2));
+        assertThrows(IllegalArgumentException.class, () -> equToPlane.applyBatch(a, a, a, a, new double[1], 0, 2));
+        assertThrows(IllegalArgumentException.class, () -> equToPlane.sinAltitudes(a, a, a, a, 1, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> EquatorialToPlaneProjection.unitVectors(new double[2], new double[1], 2));
+    }
+}
@@ -1,6 +1,7 @@
 package ch.epfl.rigel.coordinates;
 
 import ch.epfl.rigel.math.Angle;
+import ch.epfl.test.TestRandomizer;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -163,4 +164,25 @@ public class MyStereographicProjectionTest {
         assertEquals(testApplyHor.lat(), actualApplyHor.lat(), 1e-10);
     }
 
+    @Test
+    void applyBatchGivesTheSameValuesAsApply() {
+        var rng = TestRandomizer.newRandom();
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(277, -33));
+        double[] az = new double[100];
+        double[] alt = new double[100];
+        for (int i = 0; i < az.length; i++) {
+            az[i] = rng.nextDouble(0, Angle.TAU);
+            alt[i] = rng.nextDouble(-Math.PI / 2, Math.PI / 2);
+        }
+        double[] x = new double[100];
+        double[] y = new double[100];
+        projection.applyBatch(az, alt, x, y, 0, az.length);
+        for (int i = 0; i < az.length; i++) {
+            CartesianCoordinates expected = projection.apply(HorizontalCoordinates.of(az[i], alt[i]));
+            assertEquals(expected.x(), x[i]);
+            assertEquals(expected.y(), y[i]);
+        }
+        assertThrows(IllegalArgumentException.class, () -> projection.applyBatch(az, alt, x, new double[99], 0, 100));
+    }
+
 }